@@ -2,6 +2,7 @@ package com.teamgamma.musicmanagementsystem;
 
 import com.teamgamma.musicmanagementsystem.model.*;
 import com.teamgamma.musicmanagementsystem.musicplayer.MusicPlayerManager;
+import com.teamgamma.musicmanagementsystem.musicplayer.ReplayGainAnalysisTask;
 import com.teamgamma.musicmanagementsystem.ui.MainUI;
 import com.teamgamma.musicmanagementsystem.ui.PromptUI;
 import com.teamgamma.musicmanagementsystem.watchservice.Watcher;
@@ -16,7 +17,8 @@ import javafx.scene.media.MediaPlayer;
 import javafx.stage.Stage;
 
 import java.io.File;
-import java.util.Collection;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
@@ -44,6 +46,8 @@ public class ApplicationController extends Application {
     private FilePersistentStorage m_filePersistentStorage;
     private MainUI m_rootUI;
     private Stage m_stageCopy;
+    private ReplayGainAnalysisTask m_replayGainAnalysis;
+    private boolean m_isTagWriteErrorShowing = false;
 
     /**
      * Load previously saved session states
@@ -60,10 +64,48 @@ public class ApplicationController extends Application {
         m_filePersistentStorage = new FilePersistentStorage();
         if (m_databaseManager.isDatabaseFileExist()) {
             m_databaseManager.setupDatabase();
-            loadSessionState();
+            if (!restoreSessionSnapshot()) {
+                loadSessionState();
+            }
         }
     }
 
+    /**
+     * Restore the libraries, playlists, history and playback queue from the snapshot written when the application
+     * was last closed, apply the file changes made since then, then load the rest of the state from the config file.
+     *
+     * @return true if the snapshot was restored, false if there is no usable snapshot
+     */
+    private boolean restoreSessionSnapshot() {
+        System.out.println("loading session snapshot...");
+        SessionSnapshot snapshot = SessionSnapshot.load();
+        if (snapshot == null) {
+            return false;
+        }
+
+        for (Library library : snapshot.getM_libraries()) {
+            m_songManager.addLibrary(library);
+        }
+        if (!snapshot.getM_fileActions().isEmpty()) {
+            System.out.println("applying " + snapshot.getM_fileActions().size() + " changes made while closed...");
+            try {
+                m_songManager.updateAndNotifyFileSysChange(snapshot.getM_fileActions());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        for (Playlist playlist : snapshot.getM_playlists()) {
+            m_songManager.addPlaylist(playlist);
+        }
+        loadConfigState();
+        m_musicPlayerManager.loadHistory(snapshot.getM_history());
+        m_musicPlayerManager.loadPlaybackQueue(snapshot.getM_playbackQueue());
+
+        // Only drop the snapshot once the session is restored, so a failed start reads it again.
+        SessionSnapshot.delete();
+        return true;
+    }
+
     /**
      * Load the previous state of the application
      */
@@ -89,6 +131,21 @@ public class ApplicationController extends Application {
             m_songManager.addPlaylist(playlist);
         }
 
+        loadConfigState();
+
+        System.out.println("loading history");
+        List<String> historySongPaths = m_databaseManager.getHistory();
+        m_musicPlayerManager.loadHistory(m_songManager.getSongs(historySongPaths));
+
+        System.out.println("loading playback queue");
+        List<String> playbackQueueSongPaths = m_databaseManager.getPlaybackQueue();
+        m_musicPlayerManager.loadPlaybackQueue(m_songManager.getSongs(playbackQueueSongPaths));
+    }
+
+    /**
+     * Load the menu options and selected folders and playlist from the config file
+     */
+    private void loadConfigState() {
         // Get previous menu options from file
         MenuOptions menuOptions = new MenuOptions(
                 m_filePersistentStorage.getShowAllFilesInCenterPanelOption(),
@@ -129,14 +186,6 @@ public class ApplicationController extends Application {
                 m_songManager.setM_selectedPlaylist(playlist);
             }
         }
-
-        System.out.println("loading history");
-        List<String> historySongPaths = m_databaseManager.getHistory();
-        m_musicPlayerManager.loadHistory(m_songManager.getSongs(historySongPaths));
-
-        System.out.println("loading playback queue");
-        List<String> playbackQueueSongPaths = m_databaseManager.getPlaybackQueue();
-        m_musicPlayerManager.loadPlaybackQueue(m_songManager.getSongs(playbackQueueSongPaths));
     }
 
     /**
@@ -165,10 +214,13 @@ public class ApplicationController extends Application {
         primaryStage.setTitle(APP_TITLE);
 
         createRootUI(m_songManager);
+        registerTagWriteErrorPrompt();
 
         Watcher watcher = new Watcher(m_songManager);
         watcher.startWatcher();
 
+        startReplayGainAnalysis();
+
         primaryStage.setOnCloseRequest(e -> closeApp(m_musicPlayerManager, watcher));
 
         primaryStage.setScene(new Scene(m_rootUI, 1200, 650));
@@ -180,6 +232,44 @@ public class ApplicationController extends Application {
         playStartUpSound();
     }
 
+    /**
+     * Measure the loudness of the songs in the libraries that have no ReplayGain values yet, in the background
+     */
+    private void startReplayGainAnalysis() {
+        List<Song> songs = new ArrayList<>();
+        for (Library library : m_songManager.getM_libraries()) {
+            songs.addAll(library.getSongs());
+        }
+        m_replayGainAnalysis = new ReplayGainAnalysisTask(songs, m_databaseManager);
+
+        Thread analysisThread = new Thread(m_replayGainAnalysis, "replaygain-analysis");
+        analysisThread.setDaemon(true);
+        analysisThread.start();
+    }
+
+    /**
+     * Tell the user when edited song tags could not be saved to the files. The songs were already set back to their
+     * old values. Songs that fail while the prompt is showing are listed in the next prompt.
+     */
+    private void registerTagWriteErrorPrompt() {
+        TagWriter.registerWriteFailedObserver(() -> {
+            if (m_isTagWriteErrorShowing) {
+                return;
+            }
+            m_isTagWriteErrorShowing = true;
+            List<Song> failedSongs = TagWriter.takeFailedSongs();
+            while (!failedSongs.isEmpty()) {
+                String songNames = failedSongs.get(0).getFileName() +
+                        (failedSongs.size() > 1 ? " and " + (failedSongs.size() - 1) + " other songs" : "");
+                PromptUI.customPromptError("Edit Song Metadata", null,
+                        "The changes to " + songNames + " could not be saved to the file and were undone. " +
+                        "The file may be in use by another program.");
+                failedSongs = TagWriter.takeFailedSongs();
+            }
+            m_isTagWriteErrorShowing = false;
+        });
+    }
+
     /**
      * Play the start up sound when the application is launched or when user switches out of minimode
      */
@@ -198,7 +288,10 @@ public class ApplicationController extends Application {
     private void closeApp(final MusicPlayerManager musicPlayerManager, final Watcher watcher) {
 
         watcher.stopWatcher();
+        m_replayGainAnalysis.cancel();
         musicPlayerManager.setCurrentPlaylistSongPercentage();
+        musicPlayerManager.stopPlaybackQueueSaveTimer();
+        m_songManager.discardCancelledCopy();
         Stage closingStage = new Stage();
         Task closeTask = new Task() {
             @Override
@@ -216,7 +309,16 @@ public class ApplicationController extends Application {
                         m_rootUI.getCenterTableColumnsVisibility(),
                         m_rootUI.getPlaylistTableColumnsVisibility()
                 );
+                // The analysis was cancelled above, let it save what it measured before the database is closed.
+                m_replayGainAnalysis.awaitResultsSaved();
                 m_databaseManager.closeConnection();
+                TagWriter.shutdown();
+                SessionSnapshot.save(
+                        m_songManager.getM_libraries(),
+                        m_songManager.getM_playlists(),
+                        m_musicPlayerManager.getHistory(),
+                        m_musicPlayerManager.getPlayingQueue()
+                );
 
                 Platform.exit();
 
@@ -248,14 +350,10 @@ public class ApplicationController extends Application {
     }
 
     /**
-     * Clear the PlaybackQueue table in the database and re-insert songs in the current queue
+     * Write the changes to the playback queue that are still waiting to be saved to the database
      */
     private void savePlaybackQueue() {
-        Collection<Song> songsFromQueue = m_musicPlayerManager.getPlayingQueue();
-        m_databaseManager.clearPlaybackQueue();
-        for (Song song : songsFromQueue) {
-            m_databaseManager.addToPlaybackQueueTail(song.getFile().getAbsolutePath());
-        }
+        m_musicPlayerManager.savePlaybackQueue();
     }
 
     /**
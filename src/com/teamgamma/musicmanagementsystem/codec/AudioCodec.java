@@ -0,0 +1,90 @@
+package com.teamgamma.musicmanagementsystem.codec;
+
+import org.jaudiotagger.audio.AudioFile;
+import org.jaudiotagger.audio.exceptions.CannotReadException;
+import org.jaudiotagger.audio.exceptions.InvalidAudioFrameException;
+import org.jaudiotagger.audio.exceptions.ReadOnlyFileException;
+import org.jaudiotagger.tag.TagException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Interface for an audio file format. A codec recognizes its files by their first bytes, reads their tags and length,
+ * and decodes them to PCM samples for the player if it has a decoder.
+ */
+public interface AudioCodec {
+
+    /**
+     * Function to get the name of the format, to show in messages.
+     *
+     * @return The name of the format.
+     */
+    String getName();
+
+    /**
+     * Function to get the file extensions of the format, used to find its files without reading them.
+     *
+     * @return The extensions in lower case, with the dot.
+     */
+    List<String> getExtensions();
+
+    /**
+     * Function to check if a file is in this format.
+     *
+     * @param header    The first bytes of the file, after the ID3v2 tag if there is one.
+     * @param length    The number of bytes in the header, can be less than the array if the file is short.
+     * @return True if the file is in this format, false otherwise.
+     */
+    boolean isMatch(byte[] header, int length);
+
+    /**
+     * Function to read the tags and audio header of a file.
+     *
+     * @param file The file to read.
+     * @return The file with its tag, which is null if the file has none.
+     */
+    AudioFile readMetadata(File file) throws CannotReadException, IOException, TagException, ReadOnlyFileException,
+            InvalidAudioFrameException;
+
+    /**
+     * Function to get the length of a file that was read by readMetadata().
+     *
+     * @param audioFile The file with its audio header.
+     * @return The length in seconds.
+     */
+    double getLengthInSeconds(AudioFile audioFile);
+
+    /**
+     * Function to get the number of MP3 frames of a file that was read by readMetadata().
+     *
+     * @param audioFile The file with its audio header.
+     * @return The number of frames, 0 if the format has no MP3 frames.
+     */
+    long getFrameCount(AudioFile audioFile);
+
+    /**
+     * Function to check if the codec can decode its files, or only read their tags.
+     *
+     * @return True if openDecoder() can be used, false otherwise.
+     */
+    boolean canDecode();
+
+    /**
+     * Function to open a file for decoding.
+     *
+     * @param file                      The file to decode.
+     * @param startTimeInMilliseconds   The time in the song to start decoding from.
+     * @return The decoder, positioned at or just before the start time.
+     */
+    PcmDecoder openDecoder(File file, long startTimeInMilliseconds) throws IOException;
+
+    /**
+     * Function to get a file ready for seeking while it plays, for formats that need an index to seek quickly. Can
+     * read the whole file, so it should not be called on the JavaFX thread or the playback threads.
+     *
+     * @param file The file that is playing.
+     */
+    void prepareSeeking(File file) throws IOException;
+}
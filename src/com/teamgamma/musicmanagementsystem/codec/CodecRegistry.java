@@ -0,0 +1,143 @@
+package com.teamgamma.musicmanagementsystem.codec;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Class to find the codec of an audio file. The format is told by the first bytes of the file and not by its
+ * extension, so files with a wrong or missing extension are still found, and files that only have an audio extension
+ * are not.
+ *
+ * The song metadata, the player and the loudness analysis use this registry, and the library scan uses it for files
+ * without the extension of a codec. The file watcher only checks the extensions the codecs declare, since a file that
+ * was just created can still be empty.
+ */
+public class CodecRegistry {
+    private static final int HEADER_SIZE = 64;
+    private static final int ID3V2_HEADER_SIZE = 10;
+    private static final int ID3V2_FOOTER_FLAG = 0x10;
+
+    private static final AudioCodec MP3_CODEC = new Mp3Codec();
+
+    private static final List<AudioCodec> CODECS = Collections.unmodifiableList(Arrays.asList(
+            MP3_CODEC, new FlacCodec(), new WavCodec(), new OggCodec()));
+
+    private static final Set<String> EXTENSIONS = collectExtensions();
+
+    /**
+     * Function to find the codec of a file.
+     *
+     * @param file The file to check.
+     * @return The codec of the file, or null if it is not an audio file that is supported or cannot be read.
+     */
+    public static AudioCodec detect(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        byte[] header = new byte[HEADER_SIZE];
+        boolean hasId3v2Tag;
+        int length;
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            length = readFully(in, header);
+            long tagSize = getId3v2TagSize(header, length);
+            hasId3v2Tag = tagSize > 0;
+            if (hasId3v2Tag) {
+                in.seek(tagSize);
+                length = readFully(in, header);
+            }
+        } catch (IOException e) {
+            return null;
+        }
+
+        for (AudioCodec codec : CODECS) {
+            if (codec.isMatch(header, length)) {
+                return codec;
+            }
+        }
+
+        // ID3v2 tags are only used on MP3 files, some encoders pad the audio after the tag with more than the header.
+        return hasId3v2Tag ? MP3_CODEC : null;
+    }
+
+    /**
+     * Function to check if a file has the extension of a supported format. The file is not read.
+     *
+     * @param file The file to check.
+     * @return True if the name of the file ends with the extension of a codec, false otherwise.
+     */
+    public static boolean hasExtension(File file) {
+        String fileName = file.getName();
+        int dotIndex = fileName.lastIndexOf('.');
+        return dotIndex >= 0 && EXTENSIONS.contains(fileName.substring(dotIndex).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Function to get the size of the ID3v2 tag at the start of a file. Some programs put one in front of FLAC files
+     * too, so the decoders skip it the same way.
+     *
+     * @param header    The first bytes of the file.
+     * @param length    The number of bytes in the header.
+     * @return The size of the tag including its header and footer, 0 if there is no tag.
+     */
+    static long getId3v2TagSize(byte[] header, int length) {
+        if (length < ID3V2_HEADER_SIZE || header[0] != 'I' || header[1] != 'D' || header[2] != '3') {
+            return 0;
+        }
+
+        // The size is stored as four 7 bit bytes and does not include the header or the footer.
+        long tagSize = ((header[6] & 0x7F) << 21) | ((header[7] & 0x7F) << 14) |
+                ((header[8] & 0x7F) << 7) | (header[9] & 0x7F);
+        if ((header[5] & ID3V2_FOOTER_FLAG) != 0) {
+            tagSize += ID3V2_HEADER_SIZE;
+        }
+        return ID3V2_HEADER_SIZE + tagSize;
+    }
+
+    /**
+     * Helper function to collect the extensions of every codec.
+     *
+     * @return The extensions, with the dot.
+     */
+    private static Set<String> collectExtensions() {
+        Set<String> extensions = new HashSet<>();
+        for (AudioCodec codec : CODECS) {
+            extensions.addAll(codec.getExtensions());
+        }
+        return Collections.unmodifiableSet(extensions);
+    }
+
+    /**
+     * Helper function to read as much of the header as the file has.
+     *
+     * @param in        The file, at the position to read from.
+     * @param header    The array to read into.
+     * @return The number of bytes read.
+     */
+    private static int readFully(RandomAccessFile in, byte[] header) throws IOException {
+        int length = 0;
+        while (length < header.length) {
+            int count = in.read(header, length, header.length - length);
+            if (count < 0) {
+                break;
+            }
+            length += count;
+        }
+        return length;
+    }
+
+    /**********
+     * Getters
+     *************/
+
+    public static List<AudioCodec> getCodecs() {
+        return CODECS;
+    }
+}
@@ -0,0 +1,170 @@
+package com.teamgamma.musicmanagementsystem.codec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Class to read a stream bit by bit, most significant bit first, as FLAC frames are written. Has its own buffer so
+ * reading a bit does not go through a synchronized stream.
+ */
+class FlacBitReader {
+    private static final int BUFFER_SIZE = 65536;
+    private static final int BITS_PER_BYTE = 8;
+    private static final int MAX_CACHE_BITS = 56;
+
+    private final InputStream m_in;
+    private final byte[] m_buffer;
+    private int m_bufferPosition = 0;
+    private int m_bufferLength = 0;
+
+    // The next bits to read are the lowest m_cacheBits bits of the cache.
+    private long m_cache = 0;
+    private int m_cacheBits = 0;
+
+    /**
+     * Constructor
+     *
+     * @param in The stream to read, at the first bit to read.
+     */
+    FlacBitReader(InputStream in) {
+        m_in = in;
+        m_buffer = new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Function to check if every bit of the stream was read.
+     *
+     * @return True at the end of the stream, false otherwise.
+     */
+    boolean isAtEnd() throws IOException {
+        return m_cacheBits == 0 && !fillBuffer();
+    }
+
+    /**
+     * Function to read an unsigned number.
+     *
+     * @param bitCount The number of bits, at most 32.
+     * @return The number.
+     */
+    long readUnsigned(int bitCount) throws IOException {
+        if (bitCount == 0) {
+            return 0;
+        }
+        while (m_cacheBits < bitCount) {
+            m_cache = (m_cache << BITS_PER_BYTE) | readByte();
+            m_cacheBits += BITS_PER_BYTE;
+        }
+        m_cacheBits -= bitCount;
+        return (m_cache >>> m_cacheBits) & ((1L << bitCount) - 1);
+    }
+
+    /**
+     * Function to read an unsigned number that fits in an int.
+     *
+     * @param bitCount The number of bits, at most 31.
+     * @return The number.
+     */
+    int readInt(int bitCount) throws IOException {
+        return (int) readUnsigned(bitCount);
+    }
+
+    /**
+     * Function to read a two's complement signed number.
+     *
+     * @param bitCount The number of bits, at most 32.
+     * @return The number.
+     */
+    int readSigned(int bitCount) throws IOException {
+        if (bitCount == 0) {
+            return 0;
+        }
+        long value = readUnsigned(bitCount);
+        return (int) ((value << (Long.SIZE - bitCount)) >> (Long.SIZE - bitCount));
+    }
+
+    /**
+     * Function to read a unary number: the number of 0 bits before the next 1 bit.
+     *
+     * @return The number of 0 bits.
+     */
+    int readUnary() throws IOException {
+        int count = 0;
+        while (true) {
+            if (m_cacheBits == 0) {
+                fillCache();
+            }
+            long bits = m_cache & ((1L << m_cacheBits) - 1);
+            if (bits == 0) {
+                count += m_cacheBits;
+                m_cacheBits = 0;
+                continue;
+            }
+            int zeroBits = Long.numberOfLeadingZeros(bits) - (Long.SIZE - m_cacheBits);
+            m_cacheBits -= zeroBits + 1;
+            return count + zeroBits;
+        }
+    }
+
+    /**
+     * Function to read a Rice coded signed number.
+     *
+     * @param parameter The Rice parameter: the number of low bits stored after the unary high bits.
+     * @return The number.
+     */
+    int readRice(int parameter) throws IOException {
+        long value = ((long) readUnary() << parameter) | readUnsigned(parameter);
+        // The sign is folded into the lowest bit.
+        return (int) ((value >>> 1) ^ -(value & 1));
+    }
+
+    /**
+     * Function to skip the bits up to the next byte.
+     */
+    void alignToByte() {
+        m_cacheBits -= m_cacheBits % BITS_PER_BYTE;
+    }
+
+    /**
+     * Helper function to add as many whole bytes to the cache as fit.
+     */
+    private void fillCache() throws IOException {
+        m_cache = (m_cache << BITS_PER_BYTE) | readByte();
+        m_cacheBits += BITS_PER_BYTE;
+        while (m_cacheBits <= MAX_CACHE_BITS - BITS_PER_BYTE &&
+                (m_bufferPosition < m_bufferLength || fillBuffer())) {
+            m_cache = (m_cache << BITS_PER_BYTE) | (m_buffer[m_bufferPosition++] & 0xFF);
+            m_cacheBits += BITS_PER_BYTE;
+        }
+    }
+
+    /**
+     * Helper function to read the next byte from the buffer.
+     *
+     * @return The byte, from 0 to 255.
+     */
+    private int readByte() throws IOException {
+        if (m_bufferPosition == m_bufferLength && !fillBuffer()) {
+            throw new EOFException("Unexpected end of FLAC stream");
+        }
+        return m_buffer[m_bufferPosition++] & 0xFF;
+    }
+
+    /**
+     * Helper function to read the next part of the stream into the buffer once it was all read.
+     *
+     * @return True if there is more to read, false at the end of the stream.
+     */
+    private boolean fillBuffer() throws IOException {
+        if (m_bufferPosition < m_bufferLength) {
+            return true;
+        }
+        int count = m_in.read(m_buffer, 0, m_buffer.length);
+        while (count == 0) {
+            count = m_in.read(m_buffer, 0, m_buffer.length);
+        }
+        m_bufferPosition = 0;
+        m_bufferLength = Math.max(0, count);
+        return count > 0;
+    }
+}
@@ -0,0 +1,46 @@
+package com.teamgamma.musicmanagementsystem.codec;
+
+import org.jaudiotagger.audio.flac.FlacFileReader;
+import org.jaudiotagger.audio.generic.AudioFileReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Codec for FLAC files, decoded by FlacDecoder.
+ */
+public class FlacCodec extends GenericAudioCodec {
+    private static final byte[] MAGIC = {'f', 'L', 'a', 'C'};
+
+    @Override
+    public String getName() {
+        return "FLAC";
+    }
+
+    @Override
+    public List<String> getExtensions() {
+        return Collections.singletonList(".flac");
+    }
+
+    @Override
+    public boolean isMatch(byte[] header, int length) {
+        return startsWith(header, length, 0, MAGIC);
+    }
+
+    @Override
+    protected AudioFileReader createReader() {
+        return new FlacFileReader();
+    }
+
+    @Override
+    public boolean canDecode() {
+        return true;
+    }
+
+    @Override
+    public PcmDecoder openDecoder(File file, long startTimeInMilliseconds) throws IOException {
+        return new FlacDecoder(file, startTimeInMilliseconds);
+    }
+}
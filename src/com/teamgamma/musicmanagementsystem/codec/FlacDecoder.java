@@ -0,0 +1,490 @@
+package com.teamgamma.musicmanagementsystem.codec;
+
+import com.teamgamma.musicmanagementsystem.musicplayer.MusicPlayerConstants;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+
+/**
+ * Class to decode a FLAC file in pure Java, one frame at a time.
+ *
+ * Every frame has a subframe per channel, which is either a constant, the raw samples, or a fixed or LPC prediction
+ * with a Rice coded residual. Stereo frames can store the side channel instead of one of the two, which is undone
+ * after the subframes are decoded. The samples are converted to 16 bit as they are read.
+ *
+ * Seeking starts from the closest point of the SEEKTABLE before the seek time if the file has one, otherwise from the
+ * first frame, and decodes the frames up to the seek time without returning them. The checksums are not verified, a
+ * frame that cannot be decoded ends the song early.
+ */
+class FlacDecoder implements PcmDecoder {
+    private static final int MAGIC_SIZE = 4;
+    private static final int METADATA_STREAMINFO = 0;
+    private static final int METADATA_SEEKTABLE = 3;
+    private static final int STREAMINFO_SIZE_BEFORE_MD5 = 18;
+    private static final int SEEK_POINT_SIZE = 18;
+    private static final long PLACEHOLDER_SEEK_POINT = -1L;
+    private static final int FRAME_SYNC = 0x3FFE;
+    private static final int MAX_CHANNELS = 2;
+    private static final int MAX_BITS_PER_SAMPLE = 24;
+    private static final int OUTPUT_BITS_PER_SAMPLE = 16;
+    private static final int ID3V2_HEADER_SIZE = 10;
+    private static final int MAX_BLOCK_SIZE = 65535;
+
+    private static final int CHANNELS_LEFT_SIDE = 8;
+    private static final int CHANNELS_SIDE_RIGHT = 9;
+    private static final int CHANNELS_MID_SIDE = 10;
+
+    private static final int SUBFRAME_CONSTANT = 0;
+    private static final int SUBFRAME_VERBATIM = 1;
+    private static final int SUBFRAME_FIXED = 8;
+    private static final int SUBFRAME_FIXED_MAX = 12;
+    private static final int SUBFRAME_LPC = 32;
+
+    private static final int RESIDUAL_RICE = 0;
+    private static final int RESIDUAL_RICE2 = 1;
+    private static final int RICE_ESCAPE = 15;
+    private static final int RICE2_ESCAPE = 31;
+
+    // Sample sizes of the frame header codes, 0 for the size from STREAMINFO and -1 for reserved.
+    private static final int[] SAMPLE_SIZES = {0, 8, 12, -1, 16, 20, 24, 32};
+
+    private final RandomAccessFile m_file;
+    private final AudioFormat m_format;
+    private final int m_bitsPerSample;
+    private final int m_channels;
+    private final long m_startTimeInMilliseconds;
+    private final int[][] m_blockSamples;
+    private FlacBitReader m_reader;
+
+    // The decoded frame, and the next frame of it to return.
+    private int m_blockSize = 0;
+    private int m_blockPosition = 0;
+    private boolean m_isAtEnd = false;
+
+    /**
+     * Constructor. Opens the file, reads its metadata and decodes up to the start time.
+     *
+     * @param file                      The FLAC file.
+     * @param startTimeInMilliseconds   The time in the song to start decoding from.
+     */
+    FlacDecoder(File file, long startTimeInMilliseconds) throws IOException {
+        m_file = new RandomAccessFile(file, "r");
+        try {
+            byte[] header = new byte[ID3V2_HEADER_SIZE];
+            long streamStart = 0;
+            if (m_file.length() >= ID3V2_HEADER_SIZE) {
+                m_file.readFully(header);
+                streamStart = CodecRegistry.getId3v2TagSize(header, header.length);
+            }
+            m_file.seek(streamStart);
+            m_reader = new FlacBitReader(Channels.newInputStream(m_file.getChannel()));
+            if (m_reader.readUnsigned(MAGIC_SIZE * 8) != 0x664C6143L) { // "fLaC"
+                throw new IOException("Not a FLAC file: " + file.getAbsolutePath());
+            }
+
+            // Read the metadata blocks, only the stream info and the seek table are needed.
+            int maxBlockSize = 0;
+            int sampleRate = 0;
+            int channels = 0;
+            int bitsPerSample = 0;
+            long[] seekSamples = new long[0];
+            long[] seekOffsets = new long[0];
+            long firstFrameOffset = streamStart + MAGIC_SIZE;
+            boolean isLastBlock = false;
+            while (!isLastBlock) {
+                isLastBlock = m_reader.readUnsigned(1) == 1;
+                int blockType = m_reader.readInt(7);
+                int blockLength = m_reader.readInt(24);
+                firstFrameOffset += 4 + blockLength;
+
+                if (blockType == METADATA_STREAMINFO) {
+                    m_reader.readInt(16);
+                    maxBlockSize = m_reader.readInt(16);
+                    m_reader.readUnsigned(24);
+                    m_reader.readUnsigned(24);
+                    sampleRate = m_reader.readInt(20);
+                    channels = m_reader.readInt(3) + 1;
+                    bitsPerSample = m_reader.readInt(5) + 1;
+                    // The 36 bit sample count, the MD5 checksum follows.
+                    m_reader.readUnsigned(4);
+                    m_reader.readUnsigned(32);
+                    skipBytes(blockLength - STREAMINFO_SIZE_BEFORE_MD5);
+                } else if (blockType == METADATA_SEEKTABLE) {
+                    int pointCount = blockLength / SEEK_POINT_SIZE;
+                    seekSamples = new long[pointCount];
+                    seekOffsets = new long[pointCount];
+                    for (int i = 0; i < pointCount; i++) {
+                        seekSamples[i] = (m_reader.readUnsigned(32) << 32) | m_reader.readUnsigned(32);
+                        seekOffsets[i] = (m_reader.readUnsigned(32) << 32) | m_reader.readUnsigned(32);
+                        m_reader.readUnsigned(16);
+                    }
+                    skipBytes(blockLength - pointCount * SEEK_POINT_SIZE);
+                } else {
+                    skipBytes(blockLength);
+                }
+            }
+            if (sampleRate == 0 || channels > MAX_CHANNELS || bitsPerSample > MAX_BITS_PER_SAMPLE) {
+                throw new IOException("Unsupported FLAC format in " + file.getAbsolutePath() + ": " + sampleRate +
+                        " Hz, " + channels + " channels, " + bitsPerSample + " bits");
+            }
+
+            m_channels = channels;
+            m_bitsPerSample = bitsPerSample;
+            m_format = new AudioFormat(sampleRate, OUTPUT_BITS_PER_SAMPLE, channels, true, false);
+            m_blockSamples = new int[channels][(maxBlockSize > 0) ? maxBlockSize : MAX_BLOCK_SIZE];
+
+            long targetSample = startTimeInMilliseconds * sampleRate /
+                    MusicPlayerConstants.NUMBER_OF_MILISECONDS_IN_SECOND;
+            long currentSample = 0;
+            if (targetSample > 0) {
+                int seekPoint = findSeekPoint(seekSamples, targetSample);
+                if (seekPoint >= 0) {
+                    m_file.seek(firstFrameOffset + seekOffsets[seekPoint]);
+                    m_reader = new FlacBitReader(Channels.newInputStream(m_file.getChannel()));
+                    currentSample = seekSamples[seekPoint];
+                }
+            }
+
+            // Decode the frames before the start time without returning them.
+            while (targetSample > 0 && decodeFrame()) {
+                if (currentSample + m_blockSize > targetSample) {
+                    m_blockPosition = (int) (targetSample - currentSample);
+                    break;
+                }
+                currentSample += m_blockSize;
+            }
+            m_startTimeInMilliseconds = (currentSample + m_blockPosition) *
+                    MusicPlayerConstants.NUMBER_OF_MILISECONDS_IN_SECOND / sampleRate;
+        } catch (IOException | RuntimeException e) {
+            m_file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Helper function to find the last seek point at or before a sample.
+     *
+     * @param seekSamples   The first sample of every seek point.
+     * @param targetSample  The sample to seek to.
+     * @return The index of the seek point, or -1 if there is none before the sample.
+     */
+    private static int findSeekPoint(long[] seekSamples, long targetSample) {
+        int found = -1;
+        for (int i = 0; i < seekSamples.length; i++) {
+            if (seekSamples[i] != PLACEHOLDER_SEEK_POINT && seekSamples[i] <= targetSample &&
+                    (found < 0 || seekSamples[i] > seekSamples[found])) {
+                found = i;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Helper function to skip the rest of a metadata block.
+     *
+     * @param count The number of bytes to skip.
+     */
+    private void skipBytes(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            m_reader.readUnsigned(8);
+        }
+    }
+
+    @Override
+    public AudioFormat getFormat() {
+        return m_format;
+    }
+
+    @Override
+    public long getStartTimeInMilliseconds() {
+        return m_startTimeInMilliseconds;
+    }
+
+    @Override
+    public int read(short[] samples, int offset, int length) throws IOException {
+        if (m_blockPosition == m_blockSize && !decodeFrame()) {
+            return -1;
+        }
+
+        int frames = Math.min(length / m_channels, m_blockSize - m_blockPosition);
+        int shift = m_bitsPerSample - OUTPUT_BITS_PER_SAMPLE;
+        int position = offset;
+        for (int i = m_blockPosition; i < m_blockPosition + frames; i++) {
+            for (int channel = 0; channel < m_channels; channel++) {
+                int sample = m_blockSamples[channel][i];
+                samples[position++] = (short) ((shift >= 0) ? sample >> shift : sample << -shift);
+            }
+        }
+        m_blockPosition += frames;
+        return frames * m_channels;
+    }
+
+    /**
+     * Helper function to decode the next frame into the block samples.
+     *
+     * @return True if a frame was decoded, false at the end of the song or if the frame is broken.
+     */
+    private boolean decodeFrame() throws IOException {
+        m_blockPosition = 0;
+        m_blockSize = 0;
+        if (m_isAtEnd || m_reader.isAtEnd()) {
+            m_isAtEnd = true;
+            return false;
+        }
+        try {
+            if (readFrame()) {
+                return true;
+            }
+        } catch (IOException e) {
+            // A broken frame ends the song early.
+            e.printStackTrace();
+        }
+        m_isAtEnd = true;
+        m_blockSize = 0;
+        return false;
+    }
+
+    /**
+     * Helper function to read the header, subframes and footer of a frame.
+     *
+     * @return True if a frame was read, false if there is no frame sync.
+     */
+    private boolean readFrame() throws IOException {
+        FlacBitReader reader = m_reader;
+        if (reader.readInt(14) != FRAME_SYNC) {
+            // Data after the last frame, such as an ID3v1 tag, ends the song.
+            return false;
+        }
+        reader.readUnsigned(2);
+        int blockSizeCode = reader.readInt(4);
+        int sampleRateCode = reader.readInt(4);
+        int channelAssignment = reader.readInt(4);
+        int sampleSizeCode = reader.readInt(3);
+        reader.readUnsigned(1);
+
+        // The frame or sample number, UTF-8 coded, is not needed since the frames are read in order.
+        int firstByte = reader.readInt(8);
+        int extraBytes = Integer.numberOfLeadingZeros(~(firstByte << 24));
+        for (int i = 1; i < extraBytes; i++) {
+            reader.readUnsigned(8);
+        }
+
+        int blockSize;
+        if (blockSizeCode == 1) {
+            blockSize = 192;
+        } else if (blockSizeCode >= 2 && blockSizeCode <= 5) {
+            blockSize = 576 << (blockSizeCode - 2);
+        } else if (blockSizeCode == 6) {
+            blockSize = reader.readInt(8) + 1;
+        } else if (blockSizeCode == 7) {
+            blockSize = reader.readInt(16) + 1;
+        } else if (blockSizeCode >= 8) {
+            blockSize = 256 << (blockSizeCode - 8);
+        } else {
+            throw new IOException("Reserved FLAC block size");
+        }
+
+        // Only the sample rate from STREAMINFO is used, the frame can repeat it.
+        if (sampleRateCode == 12) {
+            reader.readUnsigned(8);
+        } else if (sampleRateCode == 13 || sampleRateCode == 14) {
+            reader.readUnsigned(16);
+        }
+        reader.readUnsigned(8); // CRC-8
+
+        int bitsPerSample = (SAMPLE_SIZES[sampleSizeCode] == 0) ? m_bitsPerSample : SAMPLE_SIZES[sampleSizeCode];
+        int channels = (channelAssignment < CHANNELS_LEFT_SIDE) ? channelAssignment + 1 : 2;
+        if (bitsPerSample != m_bitsPerSample || channels != m_channels || channelAssignment > CHANNELS_MID_SIDE ||
+                blockSize > m_blockSamples[0].length) {
+            throw new IOException("FLAC frame does not match the stream");
+        }
+
+        for (int channel = 0; channel < channels; channel++) {
+            // The side channel needs one more bit.
+            boolean isSide = (channelAssignment == CHANNELS_LEFT_SIDE && channel == 1) ||
+                    (channelAssignment == CHANNELS_SIDE_RIGHT && channel == 0) ||
+                    (channelAssignment == CHANNELS_MID_SIDE && channel == 1);
+            readSubframe(m_blockSamples[channel], blockSize, bitsPerSample + (isSide ? 1 : 0));
+        }
+        restoreStereo(channelAssignment, blockSize);
+
+        reader.alignToByte();
+        reader.readUnsigned(16); // CRC-16
+        m_blockSize = blockSize;
+        return true;
+    }
+
+    /**
+     * Helper function to decode the subframe of one channel.
+     *
+     * @param samples       The array to decode into.
+     * @param blockSize     The number of samples in the frame.
+     * @param bitsPerSample The sample size of the channel.
+     */
+    private void readSubframe(int[] samples, int blockSize, int bitsPerSample) throws IOException {
+        FlacBitReader reader = m_reader;
+        reader.readUnsigned(1);
+        int type = reader.readInt(6);
+        int wastedBits = 0;
+        if (reader.readUnsigned(1) == 1) {
+            wastedBits = reader.readUnary() + 1;
+        }
+        int sampleSize = bitsPerSample - wastedBits;
+
+        if (type == SUBFRAME_CONSTANT) {
+            Arrays.fill(samples, 0, blockSize, reader.readSigned(sampleSize));
+        } else if (type == SUBFRAME_VERBATIM) {
+            for (int i = 0; i < blockSize; i++) {
+                samples[i] = reader.readSigned(sampleSize);
+            }
+        } else if (type >= SUBFRAME_FIXED && type <= SUBFRAME_FIXED_MAX) {
+            int order = type - SUBFRAME_FIXED;
+            readWarmUp(samples, order, sampleSize);
+            readResidual(samples, blockSize, order);
+            restoreFixed(samples, blockSize, order);
+        } else if (type >= SUBFRAME_LPC) {
+            int order = type - SUBFRAME_LPC + 1;
+            readWarmUp(samples, order, sampleSize);
+            int precision = reader.readInt(4) + 1;
+            int shift = reader.readSigned(5);
+            if (precision > 15 || shift < 0) {
+                throw new IOException("Invalid FLAC LPC parameters");
+            }
+            int[] coefficients = new int[order];
+            for (int i = 0; i < order; i++) {
+                coefficients[i] = reader.readSigned(precision);
+            }
+            readResidual(samples, blockSize, order);
+            restoreLpc(samples, blockSize, coefficients, shift);
+        } else {
+            throw new IOException("Reserved FLAC subframe type " + type);
+        }
+
+        if (wastedBits > 0) {
+            for (int i = 0; i < blockSize; i++) {
+                samples[i] <<= wastedBits;
+            }
+        }
+    }
+
+    /**
+     * Helper function to read the unpredicted samples at the start of a subframe.
+     */
+    private void readWarmUp(int[] samples, int order, int sampleSize) throws IOException {
+        for (int i = 0; i < order; i++) {
+            samples[i] = m_reader.readSigned(sampleSize);
+        }
+    }
+
+    /**
+     * Helper function to read the Rice coded residual of a predicted subframe into the samples after the warm up.
+     *
+     * @param samples   The array to read into.
+     * @param blockSize The number of samples in the frame.
+     * @param order     The predictor order, the number of warm up samples.
+     */
+    private void readResidual(int[] samples, int blockSize, int order) throws IOException {
+        FlacBitReader reader = m_reader;
+        int method = reader.readInt(2);
+        if (method != RESIDUAL_RICE && method != RESIDUAL_RICE2) {
+            throw new IOException("Reserved FLAC residual coding");
+        }
+        int parameterBits = (method == RESIDUAL_RICE) ? 4 : 5;
+        int escape = (method == RESIDUAL_RICE) ? RICE_ESCAPE : RICE2_ESCAPE;
+        int partitionOrder = reader.readInt(4);
+        int partitionSize = blockSize >> partitionOrder;
+        if (partitionSize << partitionOrder != blockSize || partitionSize < order) {
+            throw new IOException("Invalid FLAC residual partitions");
+        }
+
+        int position = order;
+        for (int partition = 0; partition < (1 << partitionOrder); partition++) {
+            int end = (partition + 1) * partitionSize;
+            int parameter = reader.readInt(parameterBits);
+            if (parameter == escape) {
+                int rawBits = reader.readInt(5);
+                for (; position < end; position++) {
+                    samples[position] = reader.readSigned(rawBits);
+                }
+            } else {
+                for (; position < end; position++) {
+                    samples[position] = reader.readRice(parameter);
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper function to add the fixed prediction to the residual.
+     */
+    private static void restoreFixed(int[] samples, int blockSize, int order) {
+        for (int i = order; i < blockSize; i++) {
+            switch (order) {
+                case 1:
+                    samples[i] += samples[i - 1];
+                    break;
+                case 2:
+                    samples[i] += 2 * samples[i - 1] - samples[i - 2];
+                    break;
+                case 3:
+                    samples[i] += 3 * samples[i - 1] - 3 * samples[i - 2] + samples[i - 3];
+                    break;
+                case 4:
+                    samples[i] += 4 * samples[i - 1] - 6 * samples[i - 2] + 4 * samples[i - 3] - samples[i - 4];
+                    break;
+                default:
+                    // Order 0 is the residual itself.
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Helper function to add the LPC prediction to the residual.
+     */
+    private static void restoreLpc(int[] samples, int blockSize, int[] coefficients, int shift) {
+        int order = coefficients.length;
+        for (int i = order; i < blockSize; i++) {
+            long prediction = 0;
+            for (int j = 0; j < order; j++) {
+                prediction += (long) coefficients[j] * samples[i - 1 - j];
+            }
+            samples[i] += (int) (prediction >> shift);
+        }
+    }
+
+    /**
+     * Helper function to turn the side channel of a stereo frame back into the left or right channel.
+     */
+    private void restoreStereo(int channelAssignment, int blockSize) {
+        int[] first = m_blockSamples[0];
+        int[] second = (m_channels > 1) ? m_blockSamples[1] : null;
+        for (int i = 0; i < blockSize && second != null; i++) {
+            switch (channelAssignment) {
+                case CHANNELS_LEFT_SIDE:
+                    second[i] = first[i] - second[i];
+                    break;
+                case CHANNELS_SIDE_RIGHT:
+                    first[i] += second[i];
+                    break;
+                case CHANNELS_MID_SIDE:
+                    int side = second[i];
+                    int mid = (first[i] << 1) | (side & 1);
+                    first[i] = (mid + side) >> 1;
+                    second[i] = (mid - side) >> 1;
+                    break;
+                default:
+                    return;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        m_file.close();
+    }
+}
@@ -0,0 +1,74 @@
+package com.teamgamma.musicmanagementsystem.codec;
+
+import org.jaudiotagger.audio.AudioFile;
+import org.jaudiotagger.audio.AudioHeader;
+import org.jaudiotagger.audio.exceptions.CannotReadException;
+import org.jaudiotagger.audio.exceptions.InvalidAudioFrameException;
+import org.jaudiotagger.audio.exceptions.ReadOnlyFileException;
+import org.jaudiotagger.audio.generic.AudioFileReader;
+import org.jaudiotagger.audio.generic.GenericAudioHeader;
+import org.jaudiotagger.tag.TagException;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Base class for the codecs whose metadata is read by a jaudiotagger reader into a GenericAudioHeader. These formats
+ * have no MP3 frames and can seek without an index.
+ */
+abstract class GenericAudioCodec implements AudioCodec {
+
+    /**
+     * Function to create the jaudiotagger reader for the format. The reader is picked here instead of by the file
+     * extension, since the format was told by the content of the file.
+     *
+     * @return A new reader.
+     */
+    protected abstract AudioFileReader createReader();
+
+    /**
+     * Helper function to check if the header has the given bytes at an offset.
+     *
+     * @param header    The first bytes of the file.
+     * @param length    The number of bytes in the header.
+     * @param offset    The offset to check at.
+     * @param magic     The bytes to look for.
+     * @return True if the bytes are there, false otherwise.
+     */
+    protected static boolean startsWith(byte[] header, int length, int offset, byte[] magic) {
+        if (length < offset + magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (header[offset + i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public AudioFile readMetadata(File file) throws CannotReadException, IOException, TagException,
+            ReadOnlyFileException, InvalidAudioFrameException {
+        return createReader().read(file);
+    }
+
+    @Override
+    public double getLengthInSeconds(AudioFile audioFile) {
+        AudioHeader audioHeader = audioFile.getAudioHeader();
+        if (audioHeader instanceof GenericAudioHeader) {
+            return ((GenericAudioHeader) audioHeader).getPreciseLength();
+        }
+        return audioHeader.getTrackLength();
+    }
+
+    @Override
+    public long getFrameCount(AudioFile audioFile) {
+        return 0;
+    }
+
+    @Override
+    public void prepareSeeking(File file) {
+        // Seeking does not need an index.
+    }
+}
@@ -0,0 +1,86 @@
+package com.teamgamma.musicmanagementsystem.codec;
+
+import org.jaudiotagger.audio.AudioFile;
+import org.jaudiotagger.audio.exceptions.InvalidAudioFrameException;
+import org.jaudiotagger.audio.exceptions.ReadOnlyFileException;
+import org.jaudiotagger.audio.mp3.MP3File;
+import org.jaudiotagger.tag.TagException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Codec for MP3 files, decoded with JLayer. Seeking jumps to the frame from the Mp3FrameIndex of the file once
+ * prepareSeeking() has built or loaded it, only the index of the last file is kept.
+ */
+public class Mp3Codec implements AudioCodec {
+    private static final int FRAME_HEADER_SIZE = 4;
+
+    private volatile Mp3FrameIndex m_frameIndex;
+
+    @Override
+    public String getName() {
+        return "MP3";
+    }
+
+    @Override
+    public List<String> getExtensions() {
+        return Collections.singletonList(".mp3");
+    }
+
+    @Override
+    public boolean isMatch(byte[] header, int length) {
+        // Some encoders pad the start of the audio with zero bytes.
+        int start = 0;
+        while (start < length && header[start] == 0) {
+            start++;
+        }
+        if (length - start < FRAME_HEADER_SIZE) {
+            return false;
+        }
+        int frameHeader = ((header[start] & 0xFF) << 24) | ((header[start + 1] & 0xFF) << 16) |
+                ((header[start + 2] & 0xFF) << 8) | (header[start + 3] & 0xFF);
+        return Mp3FrameIndex.isFrameHeader(frameHeader);
+    }
+
+    @Override
+    public AudioFile readMetadata(File file) throws IOException, TagException, ReadOnlyFileException,
+            InvalidAudioFrameException {
+        return new MP3File(file);
+    }
+
+    @Override
+    public double getLengthInSeconds(AudioFile audioFile) {
+        return ((MP3File) audioFile).getMP3AudioHeader().getPreciseTrackLength();
+    }
+
+    @Override
+    public long getFrameCount(AudioFile audioFile) {
+        return ((MP3File) audioFile).getMP3AudioHeader().getNumberOfFrames();
+    }
+
+    @Override
+    public boolean canDecode() {
+        return true;
+    }
+
+    @Override
+    public PcmDecoder openDecoder(File file, long startTimeInMilliseconds) throws IOException {
+        Mp3FrameIndex frameIndex = m_frameIndex;
+        if (frameIndex != null && !frameIndex.isValidFor(file)) {
+            frameIndex = null;
+        }
+        return new Mp3Decoder(file, startTimeInMilliseconds, frameIndex);
+    }
+
+    @Override
+    public void prepareSeeking(File file) throws IOException {
+        Mp3FrameIndex frameIndex = m_frameIndex;
+        if (frameIndex != null && frameIndex.isValidFor(file)) {
+            return;
+        }
+        m_frameIndex = Mp3FrameIndex.loadOrBuild(file);
+    }
+}
@@ -0,0 +1,144 @@
+package com.teamgamma.musicmanagementsystem.codec;
+
+import javazoom.jl.decoder.Bitstream;
+import javazoom.jl.decoder.BitstreamException;
+import javazoom.jl.decoder.Decoder;
+import javazoom.jl.decoder.Header;
+import javazoom.jl.decoder.JavaLayerException;
+import javazoom.jl.decoder.SampleBuffer;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Class to decode an MP3 file with JLayer, one frame at a time.
+ */
+class Mp3Decoder implements PcmDecoder {
+    private static final int BITS_PER_SAMPLE = 16;
+
+    private final Bitstream m_bitstream;
+    private final Decoder m_decoder;
+    private final AudioFormat m_format;
+    private final long m_startTimeInMilliseconds;
+
+    // The header of the next frame to decode, null at the end of the song.
+    private Header m_header;
+
+    private short[] m_output;
+    private int m_outputPosition = 0;
+    private int m_outputLength = 0;
+
+    /**
+     * Constructor. Opens the file and reads up to the first frame to decode.
+     *
+     * @param file                      The MP3 file.
+     * @param startTimeInMilliseconds   The time in the song to start decoding from.
+     * @param frameIndex                The frame index of the file to jump close to the start time with, can be null.
+     */
+    Mp3Decoder(File file, long startTimeInMilliseconds, Mp3FrameIndex frameIndex) throws IOException {
+        FileInputStream fileStream = new FileInputStream(file);
+        float skippedTimeInMilliseconds = 0;
+        if (startTimeInMilliseconds > 0 && frameIndex != null) {
+            int entry = frameIndex.getEntryForTime(startTimeInMilliseconds);
+            try {
+                fileStream.getChannel().position(frameIndex.getOffset(entry));
+            } catch (IOException e) {
+                fileStream.close();
+                throw e;
+            }
+            skippedTimeInMilliseconds = frameIndex.getTimeInMilliseconds(entry);
+        }
+
+        m_bitstream = new Bitstream(new BufferedInputStream(fileStream));
+        m_decoder = new Decoder();
+        try {
+            Header header = m_bitstream.readFrame();
+            if (header == null) {
+                throw new IOException("No MP3 frames found in " + file.getAbsolutePath());
+            }
+            int channels = (header.mode() == Header.SINGLE_CHANNEL) ? 1 : 2;
+            m_format = new AudioFormat(header.frequency(), BITS_PER_SAMPLE, channels, true, false);
+
+            // Skip over the frames before the start time, they only need to be read and not decoded. With a frame
+            // index these are only the few frames after the index entry.
+            while (header != null && skippedTimeInMilliseconds + header.ms_per_frame() <= startTimeInMilliseconds) {
+                skippedTimeInMilliseconds += header.ms_per_frame();
+                m_bitstream.closeFrame();
+                header = m_bitstream.readFrame();
+            }
+            m_header = header;
+            m_startTimeInMilliseconds = (long) skippedTimeInMilliseconds;
+        } catch (BitstreamException e) {
+            close();
+            throw new IOException("Cannot read " + file.getAbsolutePath() + ": " + e.getMessage(), e);
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public AudioFormat getFormat() {
+        return m_format;
+    }
+
+    @Override
+    public long getStartTimeInMilliseconds() {
+        return m_startTimeInMilliseconds;
+    }
+
+    @Override
+    public int read(short[] samples, int offset, int length) throws IOException {
+        if (m_outputPosition == m_outputLength && !decodeFrame()) {
+            return -1;
+        }
+        int count = Math.min(length, m_outputLength - m_outputPosition);
+        System.arraycopy(m_output, m_outputPosition, samples, offset, count);
+        m_outputPosition += count;
+        return count;
+    }
+
+    /**
+     * Helper function to decode the next frame into the output buffer.
+     *
+     * @return True if a frame was decoded, false at the end of the song.
+     */
+    private boolean decodeFrame() {
+        if (m_header == null) {
+            return false;
+        }
+        try {
+            SampleBuffer output = (SampleBuffer) m_decoder.decodeFrame(m_header, m_bitstream);
+            m_output = output.getBuffer();
+            m_outputPosition = 0;
+            m_outputLength = output.getBufferLength();
+        } catch (JavaLayerException | ArrayIndexOutOfBoundsException e) {
+            // A broken frame ends the song early, the same as the JLayer player does.
+            e.printStackTrace();
+            m_header = null;
+            return false;
+        }
+
+        try {
+            m_bitstream.closeFrame();
+            m_header = m_bitstream.readFrame();
+        } catch (BitstreamException e) {
+            // The frame that was decoded is still played.
+            e.printStackTrace();
+            m_header = null;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            m_bitstream.close();
+        } catch (BitstreamException e) {
+            throw new IOException(e);
+        }
+    }
+}
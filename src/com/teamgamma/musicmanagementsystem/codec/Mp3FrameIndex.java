@@ -0,0 +1,433 @@
+package com.teamgamma.musicmanagementsystem.codec;
+
+import com.teamgamma.musicmanagementsystem.musicplayer.MusicPlayerConstants;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Class to map a time in an MP3 file to the byte offset of the frame that plays at that time, so seeking can jump
+ * straight to the frame instead of reading every frame before it.
+ *
+ * Every MPEG frame of a file plays for the same time, only the size changes with the bit rate. So the frame number for
+ * a time is exact even for VBR files, and only the offsets need to be stored. The index is built by reading the frame
+ * headers once (the audio data is skipped) and keeps the offset of every INDEX_INTERVAL_IN_FRAMES frame. It is cached
+ * in the db folder and rebuilt when the size or modified time of the file changes.
+ *
+ * The Xing TOC is not used since it only gives the offsets of every 1% of the file, which then have to be resynced to
+ * a frame header and can sync on a false header in the audio data.
+ */
+public class Mp3FrameIndex {
+    public static final int INDEX_INTERVAL_IN_FRAMES = 8;
+
+    private static final String INDEX_DIR = System.getProperty("user.dir") + File.separator + "db" +
+            File.separator + "frameindex";
+    private static final int MAGIC = 0x474D4649; // "GMFI"
+    private static final int VERSION = 1;
+    private static final int ID3V2_HEADER_SIZE = 10;
+    private static final int ID3V2_FOOTER_FLAG = 0x10;
+    private static final int FRAME_HEADER_SIZE = 4;
+    private static final int SYNC_MASK = 0xFFE00000;
+    // Sync word, version, layer and sample rate, which stay the same for every frame of a file.
+    private static final int STREAM_MASK = 0xFFFE0C00;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final int MPEG_1 = 3;
+    private static final int MPEG_2 = 2;
+    private static final int MPEG_2_5 = 0;
+    private static final int LAYER_1 = 3;
+    private static final int LAYER_2 = 2;
+    private static final int LAYER_3 = 1;
+
+    private static final int[][] BIT_RATES_IN_KBPS = {
+            // MPEG 1 layer I, II, III
+            {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},
+            {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320},
+            // MPEG 2 and 2.5 layer I, II and III
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},
+            {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160}
+    };
+
+    private static final int[] SAMPLE_RATES = {44100, 48000, 32000};
+
+    private final String m_path;
+    private final long m_fileLength;
+    private final long m_lastModified;
+    private final float m_millisecondsPerFrame;
+    private final int m_frameCount;
+    private final long[] m_offsets;
+
+    /**
+     * Constructor
+     *
+     * @param path                  The absolute path of the file.
+     * @param fileLength            The size of the file when it was indexed.
+     * @param lastModified          The modified time of the file when it was indexed.
+     * @param millisecondsPerFrame  The time each frame plays for.
+     * @param frameCount            The number of frames in the file.
+     * @param offsets               The byte offset of every INDEX_INTERVAL_IN_FRAMES frame.
+     */
+    private Mp3FrameIndex(String path, long fileLength, long lastModified, float millisecondsPerFrame,
+                          int frameCount, long[] offsets) {
+        m_path = path;
+        m_fileLength = fileLength;
+        m_lastModified = lastModified;
+        m_millisecondsPerFrame = millisecondsPerFrame;
+        m_frameCount = frameCount;
+        m_offsets = offsets;
+    }
+
+    /**
+     * Function to get the index of a file from the cache, or build and cache it if there is none or the file changed.
+     * Reads the whole file when it has to be built, so it should not be called on the JavaFX thread.
+     *
+     * @param file The MP3 file.
+     * @return The index of the file, or null if it has no MP3 frames.
+     */
+    public static Mp3FrameIndex loadOrBuild(File file) throws IOException {
+        File cacheFile = getCacheFile(file);
+        if (cacheFile.exists()) {
+            try {
+                Mp3FrameIndex index = load(cacheFile);
+                if (index.isValidFor(file)) {
+                    return index;
+                }
+            } catch (IOException e) {
+                System.out.println("**** Ignoring bad frame index " + cacheFile + ": " + e.getMessage());
+            }
+        }
+
+        Mp3FrameIndex index = build(file);
+        if (index != null) {
+            index.save(cacheFile);
+        }
+        return index;
+    }
+
+    /**
+     * Function to build the index by reading the frame headers of a file.
+     *
+     * @param file The MP3 file.
+     * @return The index of the file, or null if it has no MP3 frames.
+     */
+    public static Mp3FrameIndex build(File file) throws IOException {
+        long fileLength = file.length();
+        long lastModified = file.lastModified();
+
+        long[] offsets = new long[INITIAL_CAPACITY];
+        int frameCount = 0;
+        int streamHeader = 0;
+        float millisecondsPerFrame = 0;
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            long position = skipId3v2Tag(in);
+            int header = 0;
+            int headerBytes = 0;
+            int nextByte;
+            while ((nextByte = in.read()) != -1) {
+                header = (header << 8) | nextByte;
+                position++;
+                if (++headerBytes < FRAME_HEADER_SIZE) {
+                    continue;
+                }
+
+                // Slide one byte at a time until a frame header of this stream is found.
+                int frameLength = getFrameLength(header);
+                if (frameLength <= FRAME_HEADER_SIZE ||
+                        (frameCount > 0 && (header & STREAM_MASK) != streamHeader)) {
+                    continue;
+                }
+                if (frameCount == 0) {
+                    streamHeader = header & STREAM_MASK;
+                    millisecondsPerFrame = getMillisecondsPerFrame(header);
+                }
+
+                // A frame cut off by the end of the file is not played, so it is not counted.
+                long bodyLength = frameLength - FRAME_HEADER_SIZE;
+                if (skipFully(in, bodyLength) < bodyLength) {
+                    break;
+                }
+
+                if (frameCount % INDEX_INTERVAL_IN_FRAMES == 0) {
+                    int entry = frameCount / INDEX_INTERVAL_IN_FRAMES;
+                    if (entry == offsets.length) {
+                        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                    }
+                    offsets[entry] = position - FRAME_HEADER_SIZE;
+                }
+                frameCount++;
+                position += bodyLength;
+                header = 0;
+                headerBytes = 0;
+            }
+        }
+
+        if (frameCount == 0) {
+            return null;
+        }
+        int entryCount = (frameCount + INDEX_INTERVAL_IN_FRAMES - 1) / INDEX_INTERVAL_IN_FRAMES;
+        return new Mp3FrameIndex(file.getAbsolutePath(), fileLength, lastModified, millisecondsPerFrame, frameCount,
+                Arrays.copyOf(offsets, entryCount));
+    }
+
+    /**
+     * Helper function to skip the ID3v2 tag at the start of the file if there is one.
+     *
+     * @param in The stream at the start of the file.
+     * @return The number of bytes that were read or skipped.
+     */
+    private static long skipId3v2Tag(InputStream in) throws IOException {
+        in.mark(ID3V2_HEADER_SIZE);
+        byte[] tagHeader = new byte[ID3V2_HEADER_SIZE];
+        int read = in.read(tagHeader);
+        if (read < ID3V2_HEADER_SIZE || tagHeader[0] != 'I' || tagHeader[1] != 'D' || tagHeader[2] != '3') {
+            in.reset();
+            return 0;
+        }
+
+        // The size is stored as four 7 bit bytes and does not include the header or the footer.
+        long size = ((tagHeader[6] & 0x7F) << 21) | ((tagHeader[7] & 0x7F) << 14) |
+                ((tagHeader[8] & 0x7F) << 7) | (tagHeader[9] & 0x7F);
+        if ((tagHeader[5] & ID3V2_FOOTER_FLAG) != 0) {
+            size += ID3V2_HEADER_SIZE;
+        }
+        return ID3V2_HEADER_SIZE + skipFully(in, size);
+    }
+
+    /**
+     * Helper function to skip bytes of a stream until the count is reached or the stream ends.
+     *
+     * @param in    The stream.
+     * @param count The number of bytes to skip.
+     * @return The number of bytes skipped.
+     */
+    private static long skipFully(InputStream in, long count) throws IOException {
+        long skipped = 0;
+        while (skipped < count) {
+            long step = in.skip(count - skipped);
+            if (step <= 0) {
+                // Skip may return 0 before the end, read a byte to tell the two apart.
+                if (in.read() == -1) {
+                    break;
+                }
+                step = 1;
+            }
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    /**
+     * Function to check if four bytes are the header of an MP3 frame that can be indexed.
+     *
+     * @param header The four header bytes.
+     * @return True if it is a valid frame header, false otherwise.
+     */
+    static boolean isFrameHeader(int header) {
+        return getFrameLength(header) > FRAME_HEADER_SIZE;
+    }
+
+    /**
+     * Helper function to get the size of a frame from its header.
+     *
+     * @param header The four header bytes.
+     * @return The size of the frame including the header, or 0 if it is not a valid frame header.
+     */
+    private static int getFrameLength(int header) {
+        if ((header & SYNC_MASK) != SYNC_MASK) {
+            return 0;
+        }
+        int version = (header >>> 19) & 0x3;
+        int layer = (header >>> 17) & 0x3;
+        int bitRateIndex = (header >>> 12) & 0xF;
+        int sampleRateIndex = (header >>> 10) & 0x3;
+        int padding = (header >>> 9) & 0x1;
+
+        // Free format bit rates are not supported.
+        if (version == 1 || layer == 0 || bitRateIndex == 0 || bitRateIndex == 15 || sampleRateIndex == 3) {
+            return 0;
+        }
+
+        int bitRate = getBitRateTable(version, layer)[bitRateIndex] * 1000;
+        int sampleRate = getSampleRate(version, sampleRateIndex);
+        if (layer == LAYER_1) {
+            return (12 * bitRate / sampleRate + padding) * 4;
+        }
+        if (layer == LAYER_3 && version != MPEG_1) {
+            return 72 * bitRate / sampleRate + padding;
+        }
+        return 144 * bitRate / sampleRate + padding;
+    }
+
+    /**
+     * Helper function to get the time a frame plays for from its header.
+     *
+     * @param header The four header bytes of a valid frame.
+     * @return The time in milliseconds.
+     */
+    private static float getMillisecondsPerFrame(int header) {
+        int version = (header >>> 19) & 0x3;
+        int layer = (header >>> 17) & 0x3;
+        int sampleRate = getSampleRate(version, (header >>> 10) & 0x3);
+
+        int samplesPerFrame;
+        if (layer == LAYER_1) {
+            samplesPerFrame = 384;
+        } else if (layer == LAYER_3 && version != MPEG_1) {
+            samplesPerFrame = 576;
+        } else {
+            samplesPerFrame = 1152;
+        }
+        return samplesPerFrame * (float) MusicPlayerConstants.NUMBER_OF_MILISECONDS_IN_SECOND / sampleRate;
+    }
+
+    /**
+     * Helper function to get the bit rate table for a version and layer.
+     */
+    private static int[] getBitRateTable(int version, int layer) {
+        if (version == MPEG_1) {
+            return BIT_RATES_IN_KBPS[LAYER_1 - layer];
+        }
+        return BIT_RATES_IN_KBPS[(layer == LAYER_1) ? 3 : 4];
+    }
+
+    /**
+     * Helper function to get the sample rate for a version and sample rate index.
+     */
+    private static int getSampleRate(int version, int sampleRateIndex) {
+        int sampleRate = SAMPLE_RATES[sampleRateIndex];
+        if (version == MPEG_2) {
+            return sampleRate / 2;
+        } else if (version == MPEG_2_5) {
+            return sampleRate / 4;
+        }
+        return sampleRate;
+    }
+
+    /**
+     * Helper function to get the cache file for an MP3 file.
+     *
+     * @param file The MP3 file.
+     * @return The cache file, named after the hash of the path. The path is stored inside to tell collisions apart.
+     */
+    private static File getCacheFile(File file) {
+        return new File(INDEX_DIR, Integer.toHexString(file.getAbsolutePath().hashCode()) + ".idx");
+    }
+
+    /**
+     * Helper function to read an index from its cache file.
+     *
+     * @param cacheFile The cache file.
+     * @return The index in the file.
+     */
+    private static Mp3FrameIndex load(File cacheFile) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unknown format");
+            }
+            String path = in.readUTF();
+            long fileLength = in.readLong();
+            long lastModified = in.readLong();
+            float millisecondsPerFrame = in.readFloat();
+            int frameCount = in.readInt();
+            long[] offsets = new long[in.readInt()];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = in.readLong();
+            }
+            return new Mp3FrameIndex(path, fileLength, lastModified, millisecondsPerFrame, frameCount, offsets);
+        }
+    }
+
+    /**
+     * Helper function to write the index to its cache file. Written to a temp file first and then moved into place.
+     *
+     * @param cacheFile The cache file.
+     */
+    private void save(File cacheFile) {
+        Path tempPath = Paths.get(cacheFile.getPath() + ".tmp");
+        try {
+            Files.createDirectories(cacheFile.getParentFile().toPath());
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(m_path);
+                out.writeLong(m_fileLength);
+                out.writeLong(m_lastModified);
+                out.writeFloat(m_millisecondsPerFrame);
+                out.writeInt(m_frameCount);
+                out.writeInt(m_offsets.length);
+                for (long offset : m_offsets) {
+                    out.writeLong(offset);
+                }
+            }
+            Files.move(tempPath, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Function to check if the index still matches the file.
+     *
+     * @param file The MP3 file.
+     * @return True if the index is for this file and it did not change since, false otherwise.
+     */
+    public boolean isValidFor(File file) {
+        return m_path.equals(file.getAbsolutePath()) &&
+                m_fileLength == file.length() &&
+                m_lastModified == file.lastModified();
+    }
+
+    /**
+     * Function to get the index entry to start from to play at the given time. The entry is at or before the time.
+     *
+     * @param timeInMilliseconds The time in the song.
+     * @return The entry, to pass to getOffset() and getTimeInMilliseconds().
+     */
+    public int getEntryForTime(long timeInMilliseconds) {
+        int frame = (int) Math.min(m_frameCount - 1, Math.max(0, timeInMilliseconds / m_millisecondsPerFrame));
+        return frame / INDEX_INTERVAL_IN_FRAMES;
+    }
+
+    /**
+     * Function to get the byte offset of the frame at an index entry.
+     *
+     * @param entry The index entry.
+     * @return The offset from the start of the file.
+     */
+    public long getOffset(int entry) {
+        return m_offsets[entry];
+    }
+
+    /**
+     * Function to get the time the frame at an index entry starts playing.
+     *
+     * @param entry The index entry.
+     * @return The time in milliseconds.
+     */
+    public float getTimeInMilliseconds(int entry) {
+        return (long) entry * INDEX_INTERVAL_IN_FRAMES * m_millisecondsPerFrame;
+    }
+
+    /**********
+     * Getters
+     *************/
+
+    public String getM_path() {
+        return m_path;
+    }
+
+    public int getM_frameCount() {
+        return m_frameCount;
+    }
+
+    public float getM_millisecondsPerFrame() {
+        return m_millisecondsPerFrame;
+    }
+}
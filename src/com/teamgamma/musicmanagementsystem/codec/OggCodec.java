@@ -0,0 +1,47 @@
+package com.teamgamma.musicmanagementsystem.codec;
+
+import org.jaudiotagger.audio.generic.AudioFileReader;
+import org.jaudiotagger.audio.ogg.OggFileReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Codec for Ogg Vorbis files. Only the tags and length are read, so the songs can be managed in the library, there is
+ * no Vorbis decoder to play them with.
+ */
+public class OggCodec extends GenericAudioCodec {
+    private static final byte[] MAGIC = {'O', 'g', 'g', 'S'};
+
+    @Override
+    public String getName() {
+        return "Ogg Vorbis";
+    }
+
+    @Override
+    public List<String> getExtensions() {
+        return Collections.singletonList(".ogg");
+    }
+
+    @Override
+    public boolean isMatch(byte[] header, int length) {
+        return startsWith(header, length, 0, MAGIC);
+    }
+
+    @Override
+    protected AudioFileReader createReader() {
+        return new OggFileReader();
+    }
+
+    @Override
+    public boolean canDecode() {
+        return false;
+    }
+
+    @Override
+    public PcmDecoder openDecoder(File file, long startTimeInMilliseconds) throws IOException {
+        throw new IOException("Cannot play " + file.getName() + ": " + getName() + " files can not be decoded");
+    }
+}
@@ -0,0 +1,37 @@
+package com.teamgamma.musicmanagementsystem.codec;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Interface for a streaming decoder of an opened song. The samples are 16 bit signed and interleaved, with at most
+ * two channels, so they can be written to a line as they are.
+ */
+public interface PcmDecoder extends Closeable {
+
+    /**
+     * Function to get the format of the decoded samples.
+     *
+     * @return The format, 16 bit signed little endian.
+     */
+    AudioFormat getFormat();
+
+    /**
+     * Function to get the time in the song of the first sample the decoder returns. Can be a little before the time
+     * the decoder was opened at, for formats that can only start at a frame.
+     *
+     * @return The time in milliseconds.
+     */
+    long getStartTimeInMilliseconds();
+
+    /**
+     * Function to decode the next samples. A broken frame ends the song early, the same as the end of the file.
+     *
+     * @param samples   The array to decode into.
+     * @param offset    The index in the array of the first sample.
+     * @param length    The largest number of samples to decode.
+     * @return The number of samples decoded, or -1 at the end of the song.
+     */
+    int read(short[] samples, int offset, int length) throws IOException;
+}
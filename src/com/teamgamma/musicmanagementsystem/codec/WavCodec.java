@@ -0,0 +1,49 @@
+package com.teamgamma.musicmanagementsystem.codec;
+
+import org.jaudiotagger.audio.generic.AudioFileReader;
+import org.jaudiotagger.audio.wav.WavFileReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Codec for WAV files with PCM or 32 bit float samples.
+ */
+public class WavCodec extends GenericAudioCodec {
+    private static final byte[] RIFF_MAGIC = {'R', 'I', 'F', 'F'};
+    private static final byte[] WAVE_MAGIC = {'W', 'A', 'V', 'E'};
+    private static final int WAVE_MAGIC_OFFSET = 8;
+
+    @Override
+    public String getName() {
+        return "WAV";
+    }
+
+    @Override
+    public List<String> getExtensions() {
+        return Collections.singletonList(".wav");
+    }
+
+    @Override
+    public boolean isMatch(byte[] header, int length) {
+        return startsWith(header, length, 0, RIFF_MAGIC) &&
+                startsWith(header, length, WAVE_MAGIC_OFFSET, WAVE_MAGIC);
+    }
+
+    @Override
+    protected AudioFileReader createReader() {
+        return new WavFileReader();
+    }
+
+    @Override
+    public boolean canDecode() {
+        return true;
+    }
+
+    @Override
+    public PcmDecoder openDecoder(File file, long startTimeInMilliseconds) throws IOException {
+        return new WavDecoder(file, startTimeInMilliseconds);
+    }
+}
@@ -0,0 +1,195 @@
+package com.teamgamma.musicmanagementsystem.codec;
+
+import com.teamgamma.musicmanagementsystem.musicplayer.MusicPlayerConstants;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+
+/**
+ * Class to read the samples of a WAV file. The chunks of the RIFF file are walked to find the format and the audio
+ * data, and the samples are converted to 16 bit as they are read. Seeking is exact, since every frame has the same
+ * size.
+ */
+class WavDecoder implements PcmDecoder {
+    private static final int FORMAT_PCM = 1;
+    private static final int FORMAT_FLOAT = 3;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+    private static final int RIFF_HEADER_SIZE = 12;
+    private static final int CHUNK_HEADER_SIZE = 8;
+    private static final int FORMAT_CHUNK_SIZE = 16;
+    // The extensible format chunk has the real format tag at the start of its sub format GUID.
+    private static final int EXTENSIBLE_CHUNK_SIZE = 40;
+    private static final int SUB_FORMAT_OFFSET = 24;
+    private static final int MAX_CHANNELS = 2;
+    private static final int BITS_PER_SAMPLE = 16;
+    private static final int READ_BUFFER_SIZE = 16384;
+    private static final long UNSIGNED_INT_MASK = 0xFFFFFFFFL;
+
+    private final RandomAccessFile m_file;
+    private final InputStream m_in;
+    private final AudioFormat m_format;
+    private final int m_formatTag;
+    private final int m_bytesPerSample;
+    private final int m_blockAlign;
+    private final long m_startTimeInMilliseconds;
+    private final byte[] m_bytes;
+    private long m_bytesLeft;
+
+    /**
+     * Constructor. Opens the file and moves to the frame at the start time.
+     *
+     * @param file                      The WAV file.
+     * @param startTimeInMilliseconds   The time in the song to start reading from.
+     */
+    WavDecoder(File file, long startTimeInMilliseconds) throws IOException {
+        m_file = new RandomAccessFile(file, "r");
+        try {
+            ByteBuffer formatChunk = null;
+            long dataStart = -1;
+            long dataSize = 0;
+
+            m_file.seek(RIFF_HEADER_SIZE);
+            byte[] chunkHeader = new byte[CHUNK_HEADER_SIZE];
+            while (dataStart < 0 && m_file.getFilePointer() + CHUNK_HEADER_SIZE <= m_file.length()) {
+                m_file.readFully(chunkHeader);
+                String chunkId = new String(chunkHeader, 0, 4, "US-ASCII");
+                long chunkSize = ByteBuffer.wrap(chunkHeader).order(ByteOrder.LITTLE_ENDIAN).getInt(4) &
+                        UNSIGNED_INT_MASK;
+                long chunkStart = m_file.getFilePointer();
+
+                if (chunkId.equals("fmt ") && chunkSize >= FORMAT_CHUNK_SIZE) {
+                    byte[] formatBytes = new byte[(int) Math.min(chunkSize, EXTENSIBLE_CHUNK_SIZE)];
+                    m_file.readFully(formatBytes);
+                    formatChunk = ByteBuffer.wrap(formatBytes).order(ByteOrder.LITTLE_ENDIAN);
+                } else if (chunkId.equals("data")) {
+                    dataStart = chunkStart;
+                    // Files written while recording can have a size of 0 or too large, read to the end of the file.
+                    dataSize = (chunkSize == 0 || chunkStart + chunkSize > m_file.length()) ?
+                            m_file.length() - chunkStart : chunkSize;
+                }
+                // Chunks are padded to an even size.
+                m_file.seek(chunkStart + chunkSize + (chunkSize & 1));
+            }
+            if (formatChunk == null || dataStart < 0) {
+                throw new IOException("No audio data found in " + file.getAbsolutePath());
+            }
+
+            int formatTag = formatChunk.getShort(0) & 0xFFFF;
+            int channels = formatChunk.getShort(2) & 0xFFFF;
+            int sampleRate = formatChunk.getInt(4);
+            int blockAlign = formatChunk.getShort(12) & 0xFFFF;
+            if (formatTag == FORMAT_EXTENSIBLE && formatChunk.capacity() >= EXTENSIBLE_CHUNK_SIZE) {
+                formatTag = formatChunk.getShort(SUB_FORMAT_OFFSET) & 0xFFFF;
+            }
+            // Samples are stored in whole bytes, a 20 bit sample takes 3.
+            int bytesPerSample = (channels > 0) ? blockAlign / channels : 0;
+            boolean isSupported = (formatTag == FORMAT_PCM && bytesPerSample >= 1 && bytesPerSample <= 4) ||
+                    (formatTag == FORMAT_FLOAT && bytesPerSample == 4);
+            if (!isSupported || channels > MAX_CHANNELS || sampleRate <= 0) {
+                throw new IOException("Unsupported WAV format in " + file.getAbsolutePath() + ": format " +
+                        formatTag + ", " + channels + " channels, " + (bytesPerSample * 8) + " bits");
+            }
+
+            m_formatTag = formatTag;
+            m_bytesPerSample = bytesPerSample;
+            m_blockAlign = blockAlign;
+            m_format = new AudioFormat(sampleRate, BITS_PER_SAMPLE, channels, true, false);
+            m_bytes = new byte[READ_BUFFER_SIZE / blockAlign * blockAlign];
+
+            long frameCount = dataSize / blockAlign;
+            long startFrame = Math.min(frameCount, startTimeInMilliseconds * sampleRate /
+                    MusicPlayerConstants.NUMBER_OF_MILISECONDS_IN_SECOND);
+            m_startTimeInMilliseconds = startFrame * MusicPlayerConstants.NUMBER_OF_MILISECONDS_IN_SECOND / sampleRate;
+            m_bytesLeft = (frameCount - startFrame) * blockAlign;
+            m_file.seek(dataStart + startFrame * blockAlign);
+            m_in = new BufferedInputStream(Channels.newInputStream(m_file.getChannel()), READ_BUFFER_SIZE);
+        } catch (IOException | RuntimeException e) {
+            m_file.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public AudioFormat getFormat() {
+        return m_format;
+    }
+
+    @Override
+    public long getStartTimeInMilliseconds() {
+        return m_startTimeInMilliseconds;
+    }
+
+    @Override
+    public int read(short[] samples, int offset, int length) throws IOException {
+        int channels = m_format.getChannels();
+        int frames = (int) Math.min(Math.min(length / channels, m_bytes.length / m_blockAlign),
+                                    m_bytesLeft / m_blockAlign);
+        if (frames == 0) {
+            return (m_bytesLeft < m_blockAlign) ? -1 : 0;
+        }
+
+        int byteCount = 0;
+        int wanted = frames * m_blockAlign;
+        while (byteCount < wanted) {
+            int count = m_in.read(m_bytes, byteCount, wanted - byteCount);
+            if (count < 0) {
+                // The file is shorter than its header says, play what is there.
+                m_bytesLeft = 0;
+                break;
+            }
+            byteCount += count;
+        }
+        if (m_bytesLeft > 0) {
+            m_bytesLeft -= wanted;
+        }
+
+        int sampleCount = byteCount / m_blockAlign * channels;
+        if (sampleCount == 0) {
+            return -1;
+        }
+        for (int i = 0; i < sampleCount; i++) {
+            samples[offset + i] = toSample(i * m_bytesPerSample);
+        }
+        return sampleCount;
+    }
+
+    /**
+     * Helper function to convert one sample in the read buffer to 16 bit.
+     *
+     * @param position The position of the sample in the read buffer.
+     * @return The sample.
+     */
+    private short toSample(int position) {
+        byte[] bytes = m_bytes;
+        switch (m_bytesPerSample) {
+            case 1:
+                // 8 bit samples are unsigned.
+                return (short) (((bytes[position] & 0xFF) - 128) << 8);
+            case 2:
+                return (short) ((bytes[position] & 0xFF) | (bytes[position + 1] << 8));
+            case 3:
+                // Keep the top 16 bits.
+                return (short) ((bytes[position + 1] & 0xFF) | (bytes[position + 2] << 8));
+            default:
+                if (m_formatTag == FORMAT_FLOAT) {
+                    int bits = (bytes[position] & 0xFF) | ((bytes[position + 1] & 0xFF) << 8) |
+                            ((bytes[position + 2] & 0xFF) << 16) | (bytes[position + 3] << 24);
+                    float value = Float.intBitsToFloat(bits) * Short.MAX_VALUE;
+                    return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+                }
+                return (short) ((bytes[position + 2] & 0xFF) | (bytes[position + 3] << 8));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        m_file.close();
+    }
+}
@@ -1,12 +1,16 @@
 package com.teamgamma.musicmanagementsystem.model;
 
+import javafx.util.Pair;
+
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -35,6 +39,7 @@ public class DatabaseManager {
     private PreparedStatement m_addHistory;
     private PreparedStatement m_deleteFromHistory;
     private PreparedStatement m_getHistory;
+    private PreparedStatement m_truncateHistory;
     private PreparedStatement m_addToPlaybackQueue;
     private PreparedStatement m_incrementQueueOrder;
     private PreparedStatement m_maxOrderNumberInQueue;
@@ -58,6 +63,12 @@ public class DatabaseManager {
     private PreparedStatement m_clearResumeTime;
     private PreparedStatement m_countResumeTimeEntry;
     private PreparedStatement m_updateHistory;
+    private PreparedStatement m_updatePlaybackQueuePath;
+    private PreparedStatement m_updatePlaylistSongsPath;
+    private PreparedStatement m_getReplayGain;
+    private PreparedStatement m_saveReplayGain;
+    private PreparedStatement m_getReplayGainTimes;
+    private PreparedStatement m_updateReplayGainPath;
 
     public DatabaseManager() {
     }
@@ -110,7 +121,13 @@ public class DatabaseManager {
 
             m_getHistory = m_connection.prepareStatement("SELECT * " +
                                                          "FROM History " +
-                                                         "ORDER BY time");
+                                                         "ORDER BY time, rowid");
+
+            m_truncateHistory = m_connection.prepareStatement("DELETE FROM History " +
+                                                              "WHERE rowid NOT IN (SELECT rowid " +
+                                                                                  "FROM History " +
+                                                                                  "ORDER BY time DESC, rowid DESC " +
+                                                                                  "LIMIT ?)");
 
             m_addToPlaybackQueue = m_connection.prepareStatement("INSERT INTO PlaybackQueue (songPath, orderNumber) " +
                                                                  "VALUES (?, ?)");
@@ -197,7 +214,28 @@ public class DatabaseManager {
                                                                    "FROM ResumeTime " +
                                                                    "WHERE playlistName = ?");
 
-            m_updateHistory = m_connection.prepareStatement("UPDATE History SET songPath = ?, time = time WHERE songPath = ?");
+            m_updateHistory = m_connection.prepareStatement("UPDATE OR REPLACE History SET songPath = ?, time = time WHERE songPath = ?");
+
+            m_updatePlaybackQueuePath = m_connection.prepareStatement("UPDATE OR REPLACE PlaybackQueue " +
+                                                                      "SET songPath = ? " +
+                                                                      "WHERE songPath = ?");
+
+            m_updatePlaylistSongsPath = m_connection.prepareStatement("UPDATE OR REPLACE PlaylistSongs " +
+                                                                      "SET songPath = ? " +
+                                                                      "WHERE songPath = ?");
+
+            m_getReplayGain = m_connection.prepareStatement("SELECT * " +
+                                                            "FROM ReplayGain " +
+                                                            "WHERE songPath = ? AND lastModified = ?");
+
+            m_saveReplayGain = m_connection.prepareStatement("INSERT OR REPLACE INTO ReplayGain " +
+                                                             "VALUES (?, ?, ?, ?, ?, ?)");
+
+            m_getReplayGainTimes = m_connection.prepareStatement("SELECT songPath, lastModified FROM ReplayGain");
+
+            m_updateReplayGainPath = m_connection.prepareStatement("UPDATE OR REPLACE ReplayGain " +
+                                                                   "SET songPath = ? " +
+                                                                   "WHERE songPath = ?");
 
         } catch (SQLException e) {
             e.printStackTrace();
@@ -323,6 +361,17 @@ public class DatabaseManager {
                                         "FOREIGN KEY (playlistName) REFERENCES Playlist(playlistName) ON DELETE CASCADE" +
                                     ")");
 
+            // ReplayGain table, store the gain of each song, valid as long as the file is not modified
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS ReplayGain (" +
+                                        "songPath       TEXT    NOT NULL, " +
+                                        "lastModified   INTEGER NOT NULL, " +
+                                        "trackGain      REAL, " +
+                                        "trackPeak      REAL, " +
+                                        "albumGain      REAL, " +
+                                        "albumPeak      REAL, " +
+                                        "PRIMARY KEY (songPath)" +
+                                    ")");
+
             statement.close();
         } catch (SQLException e) {
             e.printStackTrace();
@@ -544,6 +593,21 @@ public class DatabaseManager {
         }
     }
 
+    /**
+     * Delete the oldest entries from the history table so it has at most the given number of songs
+     *
+     * @param maxSongs the number of newest songs to keep
+     */
+    public void truncateHistory(int maxSongs) {
+        try {
+            m_truncateHistory.setInt(1, maxSongs);
+            m_truncateHistory.executeUpdate();
+        }
+        catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
     /**
      * Get a list of songs in the table History
      *
@@ -695,6 +759,41 @@ public class DatabaseManager {
         }
     }
 
+    /**
+     * Replace the PlaybackQueue table with the given songs in one transaction, so a large queue is written with one
+     * batch instead of one statement per song
+     *
+     * @param songPaths the paths of the songs in the queue, in order
+     */
+    public void savePlaybackQueue(List<String> songPaths) {
+        try {
+            m_connection.setAutoCommit(false);
+            m_clearPlaybackQueue.executeUpdate();
+            int orderNumber = 1;
+            for (String songPath : songPaths) {
+                m_addToPlaybackQueue.setString(1, songPath);
+                m_addToPlaybackQueue.setInt(2, orderNumber++);
+                m_addToPlaybackQueue.addBatch();
+            }
+            m_addToPlaybackQueue.executeBatch();
+            m_connection.commit();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            try {
+                m_connection.rollback();
+            } catch (SQLException rollbackError) {
+                rollbackError.printStackTrace();
+            }
+        } finally {
+            try {
+                m_addToPlaybackQueue.clearBatch();
+                m_connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
     /**
      * Add a new song to the PlaylistSongs table
      *
@@ -982,18 +1081,187 @@ public class DatabaseManager {
     }
 
     /**
-     * Function to update the the history when a file has moved in the file system.
+     * Function to update the history, playback queue, playlist songs and ReplayGain values when files have moved in
+     * the file system. The ReplayGain values stay valid as long as the modified time of the file did not change. All
+     * updates are sent as batches in a single transaction, so either every path is updated or none is.
+     *
+     * @param relocatedPaths    Map from the old path of each song to its new path.
+     */
+    public void relocateSongs(Map<String, String> relocatedPaths) {
+        if (relocatedPaths.isEmpty()) {
+            return;
+        }
+        try {
+            m_connection.setAutoCommit(false);
+            for (Map.Entry<String, String> entry : relocatedPaths.entrySet()) {
+                for (PreparedStatement statement : new PreparedStatement[]{
+                        m_updateHistory, m_updatePlaybackQueuePath, m_updatePlaylistSongsPath,
+                        m_updateReplayGainPath}) {
+                    statement.setString(1, entry.getValue());
+                    statement.setString(2, entry.getKey());
+                    statement.addBatch();
+                }
+            }
+            m_updateHistory.executeBatch();
+            m_updatePlaybackQueuePath.executeBatch();
+            m_updatePlaylistSongsPath.executeBatch();
+            m_updateReplayGainPath.executeBatch();
+            m_connection.commit();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            try {
+                m_connection.rollback();
+            } catch (SQLException rollbackError) {
+                rollbackError.printStackTrace();
+            }
+        } finally {
+            try {
+                m_updateHistory.clearBatch();
+                m_updatePlaybackQueuePath.clearBatch();
+                m_updatePlaylistSongsPath.clearBatch();
+                m_updateReplayGainPath.clearBatch();
+                m_connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Get the ReplayGain values stored for a song
      *
-     * @param oldPath       The old path of the song.
-     * @param newPath       The new path location.
+     * @param songPath      the path of the song
+     * @param lastModified  the modified time of the song file, values stored for an older version are ignored
+     * @return the stored values, ReplayGain.NONE if there are none
      */
-    public void updateHistory(String oldPath, String newPath) {
+    public ReplayGain getReplayGain(String songPath, long lastModified) {
         try {
-            m_updateHistory.setString(1, newPath);
-            m_updateHistory.setString(2, oldPath);
-            m_updateHistory.executeUpdate();
-        } catch (SQLException e){
+            m_getReplayGain.setString(1, songPath);
+            m_getReplayGain.setLong(2, lastModified);
+            ResultSet resultSet = m_getReplayGain.executeQuery();
+            if (resultSet.next()) {
+                ReplayGain replayGain = new ReplayGain(getFloatOrNaN(resultSet, "trackGain"),
+                                                       getFloatOrNaN(resultSet, "trackPeak"),
+                                                       getFloatOrNaN(resultSet, "albumGain"),
+                                                       getFloatOrNaN(resultSet, "albumPeak"));
+                return replayGain.isEmpty() ? ReplayGain.NONE : replayGain;
+            }
+        } catch (SQLException e) {
             e.printStackTrace();
         }
+        return ReplayGain.NONE;
+    }
+
+    /**
+     * Store the ReplayGain values of a song, replacing the ones stored before
+     *
+     * @param songPath      the path of the song
+     * @param lastModified  the modified time of the song file the values were measured on
+     * @param replayGain    the values to store
+     */
+    public void saveReplayGain(String songPath, long lastModified, ReplayGain replayGain) {
+        try {
+            bindReplayGain(songPath, lastModified, replayGain);
+            m_saveReplayGain.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Store the ReplayGain values of many songs in one transaction
+     *
+     * @param replayGains   map from the path of each song to the modified time of the file the values were measured on
+     *                      and the values
+     */
+    public void saveReplayGains(Map<String, Pair<Long, ReplayGain>> replayGains) {
+        if (replayGains.isEmpty()) {
+            return;
+        }
+        try {
+            m_connection.setAutoCommit(false);
+            for (Map.Entry<String, Pair<Long, ReplayGain>> entry : replayGains.entrySet()) {
+                bindReplayGain(entry.getKey(), entry.getValue().getKey(), entry.getValue().getValue());
+                m_saveReplayGain.addBatch();
+            }
+            m_saveReplayGain.executeBatch();
+            m_connection.commit();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            try {
+                m_connection.rollback();
+            } catch (SQLException rollbackError) {
+                rollbackError.printStackTrace();
+            }
+        } finally {
+            try {
+                m_saveReplayGain.clearBatch();
+                m_connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Get the modified time every stored ReplayGain entry was measured on, to find the songs that still need to be
+     * analyzed
+     *
+     * @return map from song path to the modified time of the file when its values were stored
+     */
+    public Map<String, Long> getReplayGainTimes() {
+        Map<String, Long> replayGainTimes = new HashMap<>();
+        try {
+            ResultSet resultSet = m_getReplayGainTimes.executeQuery();
+            while (resultSet.next()) {
+                replayGainTimes.put(resultSet.getString("songPath"), resultSet.getLong("lastModified"));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return replayGainTimes;
+    }
+
+    /**
+     * Helper function to bind the values of a song to the save statement
+     *
+     * @param songPath      the path of the song
+     * @param lastModified  the modified time of the song file the values were measured on
+     * @param replayGain    the values to store
+     */
+    private void bindReplayGain(String songPath, long lastModified, ReplayGain replayGain) throws SQLException {
+        m_saveReplayGain.setString(1, songPath);
+        m_saveReplayGain.setLong(2, lastModified);
+        setFloatOrNull(m_saveReplayGain, 3, replayGain.getM_trackGain());
+        setFloatOrNull(m_saveReplayGain, 4, replayGain.getM_trackPeak());
+        setFloatOrNull(m_saveReplayGain, 5, replayGain.getM_albumGain());
+        setFloatOrNull(m_saveReplayGain, 6, replayGain.getM_albumPeak());
+    }
+
+    /**
+     * Helper function to read a REAL column that may be NULL
+     *
+     * @param resultSet the result set positioned on the row
+     * @param column    the name of the column
+     * @return the value, NaN if it is NULL
+     */
+    private float getFloatOrNaN(ResultSet resultSet, String column) throws SQLException {
+        float value = resultSet.getFloat(column);
+        return resultSet.wasNull() ? Float.NaN : value;
+    }
+
+    /**
+     * Helper function to bind a float that is stored as NULL when it is not known
+     *
+     * @param statement the statement to bind to
+     * @param index     the index of the parameter
+     * @param value     the value, NaN if it is not known
+     */
+    private void setFloatOrNull(PreparedStatement statement, int index, float value) throws SQLException {
+        if (Float.isNaN(value)) {
+            statement.setNull(index, Types.REAL);
+        } else {
+            statement.setFloat(index, value);
+        }
     }
 }
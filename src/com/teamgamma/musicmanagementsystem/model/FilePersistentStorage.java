@@ -5,20 +5,31 @@ import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Class to save state for the application.
+ * The config file is parsed once into typed fields, every save is written to a temp file and then atomically moved
+ * over config.json, and frequent saves (such as volume changes) are debounced onto a background thread.
  * Note: @SuppressWarnings("unchecked") is used because of JSONObject implementation
  * from the json-simple api
  */
 public class FilePersistentStorage {
     private static final String DB_DIR = System.getProperty("user.dir") + File.separator + "db";
     private static final String CONFIG_PATH = DB_DIR + File.separator + "config.json";
+    private static final String CONFIG_TEMP_PATH = CONFIG_PATH + ".tmp";
+    private static final long WRITE_DEBOUNCE_IN_MILLISECONDS = 500;
     private static final String VOLUME = "volume";
     private static final String RIGHT_PANEL_FOLDER = "right_panel_folder";
     private static final String CENTER_PANEL_FOLDER = "center_panel_folder";
@@ -30,13 +41,30 @@ public class FilePersistentStorage {
     private static final String CENTER_TABLE_COLUMNS_VISIBILITY = "center_table";
     private static final String PLAYLIST_TABLE_COLUMNS_VISIBILITY = "playlist_table";
 
-    private JSONObject m_jsonObject;
+    private double m_volume;
+    private String m_rightPanelFolder;
+    private String m_centerPanelFolder;
+    private String m_selectedPlaylist;
+    private boolean m_leftPanelShowFoldersOnly;
+    private boolean m_centerPanelShowAllFilesInFolder;
+    private boolean m_showFilesInFolderHit;
+    private boolean m_hideRightFilePane;
+    private Map<String, Boolean> m_centerTableColumnsVisibility;
+    private Map<String, Boolean> m_playlistTableColumnsVisibility;
+
+    private final ScheduledExecutorService m_writeExecutor;
+    private ScheduledFuture<?> m_pendingWrite;
 
     /**
      * Constructor.
      */
     public FilePersistentStorage() {
-        m_jsonObject = new JSONObject();
+        m_writeExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread writerThread = new Thread(runnable, "config-writer");
+            writerThread.setDaemon(true);
+            return writerThread;
+        });
+        setupConfigDefaults();
         setupConfig();
     }
 
@@ -53,13 +81,14 @@ public class FilePersistentStorage {
     }
 
     /**
-     * Initialize the config file.
+     * Initialize the config file by reading it into the in-memory snapshot.
      */
     private void initializeConfigFile() {
         JSONParser parser = new JSONParser();
-        try {
-            m_jsonObject = (JSONObject) parser.parse(new FileReader(CONFIG_PATH));
+        try (Reader reader = new InputStreamReader(new FileInputStream(CONFIG_PATH), StandardCharsets.UTF_8)) {
+            loadSnapshot((JSONObject) parser.parse(reader));
         } catch (Exception e) {
+            // Keep the defaults if the file could not be parsed, the next save will replace it.
             e.printStackTrace();
         }
     }
@@ -73,8 +102,6 @@ public class FilePersistentStorage {
             if(!isDbDirExists()) {
                 Files.createDirectories(configDir.getParent());
             }
-            Files.createFile(configDir);
-            setupConfigDefaults();
             writeConfigFile();
         } catch (IOException e) {
             e.printStackTrace();
@@ -82,24 +109,64 @@ public class FilePersistentStorage {
     }
 
     /**
-     * Set the default configuration in the config file.
+     * Set the default configuration in the in-memory snapshot.
+     */
+    private synchronized void setupConfigDefaults() {
+        m_volume = MusicPlayerConstants.MAX_VOLUME;
+        m_rightPanelFolder = "";
+        m_centerPanelFolder = "";
+        m_selectedPlaylist = "";
+        m_leftPanelShowFoldersOnly = false;
+        m_centerPanelShowAllFilesInFolder = false;
+        m_showFilesInFolderHit = false;
+        m_hideRightFilePane = false;
+        m_centerTableColumnsVisibility = new HashMap<>();
+        m_playlistTableColumnsVisibility = new HashMap<>();
+    }
+
+    /**
+     * Copy the values of the parsed config file into the typed snapshot. Missing or mistyped keys keep their defaults.
+     *
+     * @param jsonObject the parsed config file
+     */
+    private synchronized void loadSnapshot(JSONObject jsonObject) {
+        m_volume = getDouble(jsonObject, VOLUME, m_volume);
+        m_rightPanelFolder = getString(jsonObject, RIGHT_PANEL_FOLDER, m_rightPanelFolder);
+        m_centerPanelFolder = getString(jsonObject, CENTER_PANEL_FOLDER, m_centerPanelFolder);
+        m_selectedPlaylist = getString(jsonObject, SELECTED_PLAYLIST, m_selectedPlaylist);
+        m_leftPanelShowFoldersOnly = getBoolean(jsonObject, LEFT_PANEL_SHOW_FOLDERS_ONLY_OPTION,
+                m_leftPanelShowFoldersOnly);
+        m_centerPanelShowAllFilesInFolder = getBoolean(jsonObject, CENTER_PANEL_SHOW_ALL_FILES_IN_FOLDER_OPTION,
+                m_centerPanelShowAllFilesInFolder);
+        m_showFilesInFolderHit = getBoolean(jsonObject, SEARCH_SHOW_FILES_IN_FOLDER_OPTION, m_showFilesInFolderHit);
+        m_hideRightFilePane = getBoolean(jsonObject, HIDE_RIGHT_FILE_PANE_OPTION, m_hideRightFilePane);
+        m_centerTableColumnsVisibility = getBooleanMap(jsonObject, CENTER_TABLE_COLUMNS_VISIBILITY);
+        m_playlistTableColumnsVisibility = getBooleanMap(jsonObject, PLAYLIST_TABLE_COLUMNS_VISIBILITY);
+    }
+
+    /**
+     * Build the JSON representation of the current snapshot.
+     *
+     * @return the config file content as a JSON string
      */
     @SuppressWarnings("unchecked")
-    private void setupConfigDefaults() {
-        m_jsonObject.put(VOLUME, MusicPlayerConstants.MAX_VOLUME);
-        m_jsonObject.put(RIGHT_PANEL_FOLDER, "");
-        m_jsonObject.put(CENTER_PANEL_FOLDER, "");
-        m_jsonObject.put(SELECTED_PLAYLIST, "");
-        m_jsonObject.put(LEFT_PANEL_SHOW_FOLDERS_ONLY_OPTION, false);
-        m_jsonObject.put(CENTER_PANEL_SHOW_ALL_FILES_IN_FOLDER_OPTION, false);
-        m_jsonObject.put(SEARCH_SHOW_FILES_IN_FOLDER_OPTION, false);
-        m_jsonObject.put(HIDE_RIGHT_FILE_PANE_OPTION, false);
-        m_jsonObject.put(CENTER_TABLE_COLUMNS_VISIBILITY, new HashMap<>());
-        m_jsonObject.put(PLAYLIST_TABLE_COLUMNS_VISIBILITY, new HashMap<>());
+    private synchronized String snapshotToJson() {
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put(VOLUME, m_volume);
+        jsonObject.put(RIGHT_PANEL_FOLDER, m_rightPanelFolder);
+        jsonObject.put(CENTER_PANEL_FOLDER, m_centerPanelFolder);
+        jsonObject.put(SELECTED_PLAYLIST, m_selectedPlaylist);
+        jsonObject.put(LEFT_PANEL_SHOW_FOLDERS_ONLY_OPTION, m_leftPanelShowFoldersOnly);
+        jsonObject.put(CENTER_PANEL_SHOW_ALL_FILES_IN_FOLDER_OPTION, m_centerPanelShowAllFilesInFolder);
+        jsonObject.put(SEARCH_SHOW_FILES_IN_FOLDER_OPTION, m_showFilesInFolderHit);
+        jsonObject.put(HIDE_RIGHT_FILE_PANE_OPTION, m_hideRightFilePane);
+        jsonObject.put(CENTER_TABLE_COLUMNS_VISIBILITY, new HashMap<>(m_centerTableColumnsVisibility));
+        jsonObject.put(PLAYLIST_TABLE_COLUMNS_VISIBILITY, new HashMap<>(m_playlistTableColumnsVisibility));
+        return jsonObject.toJSONString();
     }
 
     /**
-     * Save the config file settings.
+     * Save the config file settings and write them out immediately. Should be called when the application closes.
      *
      * @param rightPanelFile selected right panel folder
      * @param centerPanelFile selected center panel folder
@@ -120,46 +187,87 @@ public class FilePersistentStorage {
         System.out.println("CENTER TABLE COLUMNS: " + centerTableColumnVisibilityMap);
         System.out.println("PLAYLIST TABLE COLUMNS: " + playlistTableColumnVisibilityMap);
 
-        if (rightPanelFile != null) {
-            saveRightPanelFolder(rightPanelFile.getAbsolutePath());
-        } else {
-            saveRightPanelFolder("");
-        }
+        synchronized (this) {
+            if (rightPanelFile != null) {
+                saveRightPanelFolder(rightPanelFile.getAbsolutePath());
+            } else {
+                saveRightPanelFolder("");
+            }
 
-        if (centerPanelFile != null) {
-            saveCenterPanelFolder(centerPanelFile.getAbsolutePath());
-        } else {
-            saveCenterPanelFolder("");
-        }
+            if (centerPanelFile != null) {
+                saveCenterPanelFolder(centerPanelFile.getAbsolutePath());
+            } else {
+                saveCenterPanelFolder("");
+            }
 
-        if (selectedPlaylist != null) {
-            saveSelectedPlaylist(selectedPlaylist.getM_playlistName());
-        } else {
-            saveSelectedPlaylist("");
-        }
+            if (selectedPlaylist != null) {
+                saveSelectedPlaylist(selectedPlaylist.getM_playlistName());
+            } else {
+                saveSelectedPlaylist("");
+            }
 
-        saveShowAllFilesInCenterPanelOption(menuOptions.getM_centerPanelShowSubfolderFiles());
-        saveLeftPanelShowOnlyFoldersOption(menuOptions.getM_leftPanelShowFoldersOnly());
-        saveShowFilesInFolderHit(menuOptions.getShowFilesInFolderSerachHit());
-        saveHideRightFilePane(menuOptions.getHideRightPanel());
+            saveShowAllFilesInCenterPanelOption(menuOptions.getM_centerPanelShowSubfolderFiles());
+            saveLeftPanelShowOnlyFoldersOption(menuOptions.getM_leftPanelShowFoldersOnly());
+            saveShowFilesInFolderHit(menuOptions.getShowFilesInFolderSerachHit());
+            saveHideRightFilePane(menuOptions.getHideRightPanel());
 
-        saveCenterTableColumnsVisibility(centerTableColumnVisibilityMap);
-        savePlaylistTableColumnsVisibility(playlistTableColumnVisibilityMap);
+            saveCenterTableColumnsVisibility(centerTableColumnVisibilityMap);
+            savePlaylistTableColumnsVisibility(playlistTableColumnVisibilityMap);
+        }
 
+        flush();
+    }
+
+    /**
+     * Write any pending changes to the file system right away and stop the background writer.
+     * Should be called when the application closes.
+     */
+    public void flush() {
+        synchronized (this) {
+            if (m_pendingWrite != null) {
+                m_pendingWrite.cancel(false);
+                m_pendingWrite = null;
+            }
+        }
         writeConfigFile();
+        m_writeExecutor.shutdown();
     }
 
     /**
-     * Write saved config settings to the file system.
+     * Schedule a write of the config file on the background writer. Saves that happen within the debounce interval
+     * of each other are collapsed into a single write.
+     */
+    private synchronized void scheduleWrite() {
+        if (m_writeExecutor.isShutdown()) {
+            return;
+        }
+        if (m_pendingWrite != null) {
+            m_pendingWrite.cancel(false);
+        }
+        m_pendingWrite = m_writeExecutor.schedule(this::writeConfigFile,
+                WRITE_DEBOUNCE_IN_MILLISECONDS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Write saved config settings to the file system. The content is written to a temp file first and then moved
+     * over the config file so a crash in the middle of a write never leaves a corrupted config file behind.
      */
     private void writeConfigFile() {
-        try {
-            FileWriter writer = new FileWriter(CONFIG_PATH);
-            writer.write(m_jsonObject.toJSONString());
-            writer.flush();
-            writer.close();
-        } catch (IOException e) {
-            e.printStackTrace();
+        Path tempPath = Paths.get(CONFIG_TEMP_PATH);
+        Path configPath = Paths.get(CONFIG_PATH);
+        synchronized (m_writeExecutor) {
+            try {
+                String content = snapshotToJson();
+                Files.write(tempPath, content.getBytes(StandardCharsets.UTF_8));
+                try {
+                    Files.move(tempPath, configPath, StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tempPath, configPath, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
     }
 
@@ -182,13 +290,15 @@ public class FilePersistentStorage {
     }
 
     /**
-     * Save the volume to the config file.
+     * Save the volume to the config file. The write happens in the background shortly after the last change.
      *
      * @param volumeLevel an integer indicating the volume.
      */
-    @SuppressWarnings("unchecked")
     public void saveVolumeState(double volumeLevel) {
-        m_jsonObject.replace(VOLUME, volumeLevel);
+        synchronized (this) {
+            m_volume = volumeLevel;
+        }
+        scheduleWrite();
     }
 
     /**
@@ -196,8 +306,8 @@ public class FilePersistentStorage {
      *
      * @return volume as a double.
      */
-    public double getVolumeConfig() {
-        return (double) getValueFromJson(VOLUME, 0.0);
+    public synchronized double getVolumeConfig() {
+        return m_volume;
     }
 
     /**
@@ -205,9 +315,8 @@ public class FilePersistentStorage {
      *
      * @param rightFolderPath path to save.
      */
-    @SuppressWarnings("unchecked")
     private void saveRightPanelFolder(String rightFolderPath) {
-        m_jsonObject.replace(RIGHT_PANEL_FOLDER, rightFolderPath);
+        m_rightPanelFolder = rightFolderPath;
     }
 
     /**
@@ -215,8 +324,8 @@ public class FilePersistentStorage {
      *
      * @return right folder path as a string.
      */
-    public String getRightPanelFolder() {
-        return (String) getValueFromJson(RIGHT_PANEL_FOLDER, "");
+    public synchronized String getRightPanelFolder() {
+        return m_rightPanelFolder;
     }
 
     /**
@@ -224,9 +333,8 @@ public class FilePersistentStorage {
      *
      * @param centerFolderPath path to save.
      */
-    @SuppressWarnings("unchecked")
     private void saveCenterPanelFolder(String centerFolderPath) {
-        m_jsonObject.replace(CENTER_PANEL_FOLDER, centerFolderPath);
+        m_centerPanelFolder = centerFolderPath;
     }
 
     /**
@@ -234,8 +342,8 @@ public class FilePersistentStorage {
      *
      * @return center folder path as a string.
      */
-    public String getCenterPanelFolder() {
-        return (String) getValueFromJson(CENTER_PANEL_FOLDER, "");
+    public synchronized String getCenterPanelFolder() {
+        return m_centerPanelFolder;
     }
 
     /**
@@ -243,9 +351,8 @@ public class FilePersistentStorage {
      *
      * @param selectedPlaylistName path to save.
      */
-    @SuppressWarnings("unchecked")
     private void saveSelectedPlaylist(String selectedPlaylistName) {
-        m_jsonObject.put(SELECTED_PLAYLIST, selectedPlaylistName);
+        m_selectedPlaylist = selectedPlaylistName;
     }
 
     /**
@@ -253,8 +360,8 @@ public class FilePersistentStorage {
      *
      * @return selected playlist name as a string.
      */
-    public String getSelectedPlaylist() {
-        return (String) getValueFromJson(SELECTED_PLAYLIST, "");
+    public synchronized String getSelectedPlaylist() {
+        return m_selectedPlaylist;
     }
 
     /**
@@ -262,9 +369,8 @@ public class FilePersistentStorage {
      *
      * @param option boolean value to save.
      */
-    @SuppressWarnings("unchecked")
     private void saveShowAllFilesInCenterPanelOption(boolean option) {
-        m_jsonObject.replace(CENTER_PANEL_SHOW_ALL_FILES_IN_FOLDER_OPTION, option);
+        m_centerPanelShowAllFilesInFolder = option;
     }
 
     /**
@@ -272,8 +378,8 @@ public class FilePersistentStorage {
      *
      * @return center folder option as a boolean.
      */
-    public boolean getShowAllFilesInCenterPanelOption() {
-        return (boolean) getValueFromJson(CENTER_PANEL_SHOW_ALL_FILES_IN_FOLDER_OPTION, false);
+    public synchronized boolean getShowAllFilesInCenterPanelOption() {
+        return m_centerPanelShowAllFilesInFolder;
     }
 
     /**
@@ -281,9 +387,8 @@ public class FilePersistentStorage {
      *
      * @param option boolean value to save.
      */
-    @SuppressWarnings("unchecked")
     private void saveLeftPanelShowOnlyFoldersOption(boolean option) {
-        m_jsonObject.replace(LEFT_PANEL_SHOW_FOLDERS_ONLY_OPTION, option);
+        m_leftPanelShowFoldersOnly = option;
     }
 
     /**
@@ -291,8 +396,8 @@ public class FilePersistentStorage {
      *
      * @return left folder option as a boolean.
      */
-    public boolean getLeftPanelShowOnlyFoldersOption() {
-        return (boolean) getValueFromJson(LEFT_PANEL_SHOW_FOLDERS_ONLY_OPTION, false);
+    public synchronized boolean getLeftPanelShowOnlyFoldersOption() {
+        return m_leftPanelShowFoldersOnly;
     }
 
     /**
@@ -300,8 +405,8 @@ public class FilePersistentStorage {
      *
      * @return True if we want to show the files in folder hits for the search results. False otherwise.
      */
-    public boolean getShowFilesInFolderHit() {
-        return (boolean) getValueFromJson(SEARCH_SHOW_FILES_IN_FOLDER_OPTION, false);
+    public synchronized boolean getShowFilesInFolderHit() {
+        return m_showFilesInFolderHit;
     }
 
     /**
@@ -309,9 +414,8 @@ public class FilePersistentStorage {
      *
      * @param option boolean value to save.
      */
-    @SuppressWarnings("unchecked")
     private void saveShowFilesInFolderHit(boolean option) {
-        m_jsonObject.replace(SEARCH_SHOW_FILES_IN_FOLDER_OPTION, option);
+        m_showFilesInFolderHit = option;
     }
 
     /**
@@ -319,9 +423,8 @@ public class FilePersistentStorage {
      *
      * @param option boolean value to save.
      */
-    @SuppressWarnings("unchecked")
     private void saveHideRightFilePane(boolean option) {
-        m_jsonObject.replace(HIDE_RIGHT_FILE_PANE_OPTION, option);
+        m_hideRightFilePane = option;
     }
 
     /**
@@ -329,8 +432,8 @@ public class FilePersistentStorage {
      *
      * @return True if we want to hide the right file pane. False otherwise.
      */
-    public boolean getHideRightFilePane() {
-        return (boolean) getValueFromJson(HIDE_RIGHT_FILE_PANE_OPTION, false);
+    public synchronized boolean getHideRightFilePane() {
+        return m_hideRightFilePane;
     }
 
     /**
@@ -338,9 +441,8 @@ public class FilePersistentStorage {
      *
      * @param map <column id, visibility state> map.
      */
-    @SuppressWarnings("unchecked")
     private void saveCenterTableColumnsVisibility(Map<String, Boolean> map) {
-        m_jsonObject.put(CENTER_TABLE_COLUMNS_VISIBILITY, map);
+        m_centerTableColumnsVisibility = (map != null) ? new HashMap<>(map) : new HashMap<>();
     }
 
     /**
@@ -348,9 +450,8 @@ public class FilePersistentStorage {
      *
      * @return <column id, visibility state> map
      */
-    @SuppressWarnings("unchecked")
-    public Map<String, Boolean> getCenterTableColumnsVisibility() {
-        return (Map<String, Boolean>) getValueFromJson(CENTER_TABLE_COLUMNS_VISIBILITY, new HashMap<>());
+    public synchronized Map<String, Boolean> getCenterTableColumnsVisibility() {
+        return new HashMap<>(m_centerTableColumnsVisibility);
     }
 
     /**
@@ -358,9 +459,8 @@ public class FilePersistentStorage {
      *
      * @param map <column id, visibility state> map.
      */
-    @SuppressWarnings("unchecked")
     private void savePlaylistTableColumnsVisibility(Map<String, Boolean> map) {
-        m_jsonObject.put(PLAYLIST_TABLE_COLUMNS_VISIBILITY, map);
+        m_playlistTableColumnsVisibility = (map != null) ? new HashMap<>(map) : new HashMap<>();
     }
 
     /**
@@ -368,25 +468,66 @@ public class FilePersistentStorage {
      *
      * @return <column id, visibility state> map
      */
-    @SuppressWarnings("unchecked")
-    public Map<String, Boolean> getPlaylistTableColumnsVisibility() {
-        return (Map<String, Boolean>) getValueFromJson(PLAYLIST_TABLE_COLUMNS_VISIBILITY, new HashMap<>());
+    public synchronized Map<String, Boolean> getPlaylistTableColumnsVisibility() {
+        return new HashMap<>(m_playlistTableColumnsVisibility);
     }
 
     /**
-     * Function to access the JSON file to get a boolean configuration flag if it exists.
+     * Function to read a number from the parsed JSON file.
      *
+     * @param jsonObject        The parsed JSON file.
      * @param key               The JSON key for the configuration option.
-     * @param defaultValue      The default value to use if the item is not in the JSON file.
-     * @return                  The value obtained by the given key or the default value if key not exist
+     * @param defaultValue      The default value to use if the key does not hold a number.
+     * @return                  The value obtained by the given key or the default value
      */
-    @SuppressWarnings("unchecked")
-    private Object getValueFromJson(String key, Object defaultValue) {
-        if (m_jsonObject.containsKey(key)) {
-            return m_jsonObject.get(key);
-        } else {
-            m_jsonObject.put(key, defaultValue);
-            return defaultValue;
+    private static double getDouble(JSONObject jsonObject, String key, double defaultValue) {
+        Object value = jsonObject.get(key);
+        return (value instanceof Number) ? ((Number) value).doubleValue() : defaultValue;
+    }
+
+    /**
+     * Function to read a string from the parsed JSON file.
+     *
+     * @param jsonObject        The parsed JSON file.
+     * @param key               The JSON key for the configuration option.
+     * @param defaultValue      The default value to use if the key does not hold a string.
+     * @return                  The value obtained by the given key or the default value
+     */
+    private static String getString(JSONObject jsonObject, String key, String defaultValue) {
+        Object value = jsonObject.get(key);
+        return (value instanceof String) ? (String) value : defaultValue;
+    }
+
+    /**
+     * Function to read a boolean configuration flag from the parsed JSON file.
+     *
+     * @param jsonObject        The parsed JSON file.
+     * @param key               The JSON key for the configuration option.
+     * @param defaultValue      The default value to use if the key does not hold a boolean.
+     * @return                  The value obtained by the given key or the default value
+     */
+    private static boolean getBoolean(JSONObject jsonObject, String key, boolean defaultValue) {
+        Object value = jsonObject.get(key);
+        return (value instanceof Boolean) ? (Boolean) value : defaultValue;
+    }
+
+    /**
+     * Function to read a <String, Boolean> map from the parsed JSON file.
+     *
+     * @param jsonObject        The parsed JSON file.
+     * @param key               The JSON key for the configuration option.
+     * @return                  The map obtained by the given key, entries that are not booleans are skipped
+     */
+    private static Map<String, Boolean> getBooleanMap(JSONObject jsonObject, String key) {
+        Map<String, Boolean> map = new HashMap<>();
+        Object value = jsonObject.get(key);
+        if (value instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (entry.getKey() instanceof String && entry.getValue() instanceof Boolean) {
+                    map.put((String) entry.getKey(), (Boolean) entry.getValue());
+                }
+            }
         }
+        return map;
     }
 }
@@ -34,6 +34,15 @@ public class Library {
         m_treeRoot = FileTreeUtils.generateTreeItems(rootDir, rootDir.getAbsolutePath(), expandedPaths);
     }
 
+    /**
+     * Constructor for a library whose file tree is already built (for example restored from a session snapshot)
+     *
+     * @param treeRoot: root node of the library file tree
+     */
+    Library(TreeItem<Item> treeRoot) {
+        m_treeRoot = treeRoot;
+    }
+
     /**
      * Search node containing the specified file in this Library
      *
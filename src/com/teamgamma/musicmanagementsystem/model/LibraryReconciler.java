@@ -0,0 +1,105 @@
+package com.teamgamma.musicmanagementsystem.model;
+
+import com.teamgamma.musicmanagementsystem.util.Action;
+import com.teamgamma.musicmanagementsystem.util.ConcreteFileActions;
+import com.teamgamma.musicmanagementsystem.util.FileActions;
+import com.teamgamma.musicmanagementsystem.util.FileManager;
+
+import javafx.scene.control.TreeItem;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class to find what changed on disk while the application was closed, by comparing a restored library tree against
+ * the folder modified times recorded when it was saved.
+ *
+ * Adding, removing or renaming an entry changes the modified time of its folder, so a folder whose time is unchanged
+ * is not listed again; only its songs are checked for removal. Changed folders are listed and compared against the
+ * tree. The differences are returned as FileActions so they go through the same path as watcher events.
+ */
+public class LibraryReconciler {
+    private final Map<String, Long> m_folderTimes;
+    private final FileActions m_fileActions;
+    private int m_foldersListed;
+    private int m_foldersSkipped;
+
+    /**
+     * Constructor
+     *
+     * @param folderTimes   The modified time of every folder when the tree was saved, by absolute path.
+     */
+    LibraryReconciler(Map<String, Long> folderTimes) {
+        m_folderTimes = folderTimes;
+        m_fileActions = new ConcreteFileActions();
+    }
+
+    /**
+     * Function to compare a library tree against the file system.
+     *
+     * @param libraryRoot   The root node of the restored library.
+     * @return The actions needed to bring the tree up to date, deletes and adds in tree order.
+     */
+    FileActions reconcile(TreeItem<Item> libraryRoot) {
+        reconcileFolder(libraryRoot);
+        System.out.println("Reconciled " + libraryRoot.getValue().getFile() + ": " + m_foldersListed +
+                " folders listed, " + m_foldersSkipped + " unchanged, " + m_fileActions.size() + " changes");
+        return m_fileActions;
+    }
+
+    /**
+     * Helper function to compare a folder node and everything under it against the file system.
+     *
+     * @param folderNode    The folder node to compare.
+     */
+    private void reconcileFolder(TreeItem<Item> folderNode) {
+        File folder = folderNode.getValue().getFile();
+        Long savedTime = m_folderTimes.get(folder.getAbsolutePath());
+
+        if (savedTime != null && savedTime == folder.lastModified()) {
+            m_foldersSkipped++;
+            for (TreeItem<Item> child : folderNode.getChildren()) {
+                Item item = child.getValue();
+                if (item instanceof Song) {
+                    // Only happens if the file system time resolution hid the change, one stat per song.
+                    if (!item.getFile().exists()) {
+                        m_fileActions.add(Action.DELETE, item.getFile());
+                    }
+                } else {
+                    reconcileFolder(child);
+                }
+            }
+            return;
+        }
+
+        m_foldersListed++;
+        Set<String> diskNames = new HashSet<>();
+        File[] diskFiles = folder.listFiles(f -> f.isDirectory() || FileManager.isAccept(f));
+        if (diskFiles != null) {
+            for (File diskFile : diskFiles) {
+                diskNames.add(diskFile.getName());
+            }
+        }
+
+        Set<String> treeNames = new HashSet<>();
+        for (TreeItem<Item> child : folderNode.getChildren()) {
+            File childFile = child.getValue().getFile();
+            treeNames.add(childFile.getName());
+            if (!diskNames.contains(childFile.getName())) {
+                m_fileActions.add(Action.DELETE, childFile);
+            } else if (!(child.getValue() instanceof Song)) {
+                reconcileFolder(child);
+            }
+        }
+
+        if (diskFiles != null) {
+            for (File diskFile : diskFiles) {
+                if (!treeNames.contains(diskFile.getName())) {
+                    m_fileActions.add(Action.ADD, diskFile);
+                }
+            }
+        }
+    }
+}
@@ -3,7 +3,10 @@ package com.teamgamma.musicmanagementsystem.model;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Class that represents a playlist
@@ -98,14 +101,19 @@ public class Playlist {
     }
 
     /**
-     * Change all occurrences of oldSong in m_songList into newSong
+     * Replace every other song object in m_songList whose path was relocated with the moved song, in a single pass
+     * over the list. The moved songs already point to their new files, so they stay as they are.
      *
-     * @param oldSong The old song
-     * @param newSong The new song
+     * @param relocatedSongs Map from the old path of each moved song to the moved song
      */
-    public void changeSongs(Song oldSong, Song newSong) {
+    public void relocateSongs(Map<String, Song> relocatedSongs) {
+        Set<Song> movedSongs = Collections.newSetFromMap(new IdentityHashMap<>());
+        movedSongs.addAll(relocatedSongs.values());
+
         for (int i = 0; i < m_songList.size(); i++) {
-            if (m_songList.get(i).equals(oldSong)) {
+            Song song = m_songList.get(i);
+            Song newSong = relocatedSongs.get(song.getFile().getAbsolutePath());
+            if (newSong != null && !movedSongs.contains(song)) {
                 m_songList.set(i, newSong);
             }
         }
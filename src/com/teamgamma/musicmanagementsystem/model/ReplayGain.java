@@ -0,0 +1,163 @@
+package com.teamgamma.musicmanagementsystem.model;
+
+import org.jaudiotagger.tag.Tag;
+import org.jaudiotagger.tag.TagField;
+import org.jaudiotagger.tag.id3.AbstractID3v2Frame;
+import org.jaudiotagger.tag.id3.framebody.FrameBodyTXXX;
+
+/**
+ * Class to hold the ReplayGain values of a song: how many dB the track (or the album it is on) has to be turned up
+ * or down to play at the reference loudness, and the peak sample value so the adjustment does not clip.
+ *
+ * Values that are not known are NaN.
+ */
+public class ReplayGain {
+    public static final ReplayGain NONE = new ReplayGain(Float.NaN, Float.NaN, Float.NaN, Float.NaN);
+
+    private static final String TRACK_GAIN_KEY = "REPLAYGAIN_TRACK_GAIN";
+    private static final String TRACK_PEAK_KEY = "REPLAYGAIN_TRACK_PEAK";
+    private static final String ALBUM_GAIN_KEY = "REPLAYGAIN_ALBUM_GAIN";
+    private static final String ALBUM_PEAK_KEY = "REPLAYGAIN_ALBUM_PEAK";
+    private static final String USER_TEXT_FRAME = "TXXX";
+    private static final String DECIBEL_SUFFIX = "dB";
+    private static final double DECIBELS_PER_AMPLITUDE_DECADE = 20.0;
+
+    private final float m_trackGain;
+    private final float m_trackPeak;
+    private final float m_albumGain;
+    private final float m_albumPeak;
+
+    /**
+     * Constructor
+     *
+     * @param trackGain The track gain in dB.
+     * @param trackPeak The track peak, where 1.0 is full scale.
+     * @param albumGain The album gain in dB.
+     * @param albumPeak The album peak, where 1.0 is full scale.
+     */
+    public ReplayGain(float trackGain, float trackPeak, float albumGain, float albumPeak) {
+        m_trackGain = trackGain;
+        m_trackPeak = trackPeak;
+        m_albumGain = albumGain;
+        m_albumPeak = albumPeak;
+    }
+
+    /**
+     * Function to read the ReplayGain values from the tag of a song. Reads the user defined text frames of ID3v2
+     * tags, and the fields of the same name for other tag formats.
+     *
+     * @param tag The tag of the song.
+     * @return The values in the tag, or NONE if there are none.
+     */
+    public static ReplayGain fromTag(Tag tag) {
+        if (tag == null) {
+            return NONE;
+        }
+        ReplayGain replayGain = new ReplayGain(
+                parseValue(getTagValue(tag, TRACK_GAIN_KEY)),
+                parseValue(getTagValue(tag, TRACK_PEAK_KEY)),
+                parseValue(getTagValue(tag, ALBUM_GAIN_KEY)),
+                parseValue(getTagValue(tag, ALBUM_PEAK_KEY)));
+        return replayGain.isEmpty() ? NONE : replayGain;
+    }
+
+    /**
+     * Helper function to find a ReplayGain value in a tag.
+     *
+     * @param tag The tag of the song.
+     * @param key The ReplayGain key.
+     * @return The text of the value, or an empty string if it is not in the tag.
+     */
+    private static String getTagValue(Tag tag, String key) {
+        for (TagField field : tag.getFields(USER_TEXT_FRAME)) {
+            if (field instanceof AbstractID3v2Frame &&
+                    ((AbstractID3v2Frame) field).getBody() instanceof FrameBodyTXXX) {
+                FrameBodyTXXX body = (FrameBodyTXXX) ((AbstractID3v2Frame) field).getBody();
+                if (key.equalsIgnoreCase(body.getDescription())) {
+                    return body.getFirstTextValue();
+                }
+            }
+        }
+        try {
+            return tag.getFirst(key);
+        } catch (RuntimeException e) {
+            // Some tag formats do not allow free form keys.
+            return "";
+        }
+    }
+
+    /**
+     * Helper function to parse a value such as "-6.48 dB" or "0.988525".
+     *
+     * @param text The text of the value.
+     * @return The value, or NaN if it is empty or not a number.
+     */
+    private static float parseValue(String text) {
+        if (text == null) {
+            return Float.NaN;
+        }
+        String value = text.trim();
+        if (value.endsWith(DECIBEL_SUFFIX)) {
+            value = value.substring(0, value.length() - DECIBEL_SUFFIX.length()).trim();
+        }
+        if (value.isEmpty()) {
+            return Float.NaN;
+        }
+        try {
+            return Float.parseFloat(value);
+        } catch (NumberFormatException e) {
+            return Float.NaN;
+        }
+    }
+
+    /**
+     * Function to check if no value is known.
+     *
+     * @return True if there is neither a track nor an album gain, false otherwise.
+     */
+    public boolean isEmpty() {
+        return Float.isNaN(m_trackGain) && Float.isNaN(m_albumGain);
+    }
+
+    /**
+     * Function to get the factor to multiply the samples with. Falls back to the track gain if there is no album gain
+     * and the other way around, and is lowered if the peak would clip.
+     *
+     * @param isAlbumMode True to use the album gain, false to use the track gain.
+     * @return The linear scale, 1.0 if no value is known.
+     */
+    public float getScale(boolean isAlbumMode) {
+        boolean isUsingAlbum = isAlbumMode ? !Float.isNaN(m_albumGain) : Float.isNaN(m_trackGain);
+        float gain = isUsingAlbum ? m_albumGain : m_trackGain;
+        float peak = isUsingAlbum ? m_albumPeak : m_trackPeak;
+        if (Float.isNaN(gain)) {
+            return 1.0f;
+        }
+
+        float scale = (float) Math.pow(10, gain / DECIBELS_PER_AMPLITUDE_DECADE);
+        if (peak > 0 && scale * peak > 1.0f) {
+            scale = 1.0f / peak;
+        }
+        return scale;
+    }
+
+    /**********
+     * Getters
+     *************/
+
+    public float getM_trackGain() {
+        return m_trackGain;
+    }
+
+    public float getM_trackPeak() {
+        return m_trackPeak;
+    }
+
+    public float getM_albumGain() {
+        return m_albumGain;
+    }
+
+    public float getM_albumPeak() {
+        return m_albumPeak;
+    }
+}
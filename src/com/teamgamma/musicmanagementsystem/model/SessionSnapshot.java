@@ -0,0 +1,415 @@
+package com.teamgamma.musicmanagementsystem.model;
+
+import com.teamgamma.musicmanagementsystem.util.ConcreteFileActions;
+import com.teamgamma.musicmanagementsystem.util.FileActions;
+
+import javafx.scene.control.TreeItem;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Class to save and restore a compact binary snapshot of the session (library trees, song metadata, playlists,
+ * playback queue and history) so the next launch does not have to re-parse every tag and query the database.
+ *
+ * The snapshot is only a cache of what is already saved in the database. It is deleted once the session has been
+ * restored from it, so it is only ever used if the previous session was closed normally. It also serves as the manifest for detecting
+ * changes made while the application was closed: songs whose size or modified time changed are parsed again while
+ * reading, and a LibraryReconciler compares the folder modified times to find added and removed files. Those are
+ * returned as FileActions for the caller to apply.
+ *
+ * Layout (big endian): magic, version, payload length, payload, CRC32 of the payload.
+ */
+public class SessionSnapshot {
+    private static final String DB_DIR = System.getProperty("user.dir") + File.separator + "db";
+    private static final String SNAPSHOT_PATH = DB_DIR + File.separator + "session.snapshot";
+    private static final String SNAPSHOT_TEMP_PATH = SNAPSHOT_PATH + ".tmp";
+    private static final String ENABLED_PROPERTY = "gamma.sessionSnapshot";
+    private static final int MAGIC = 0x474D5353; // "GMSS"
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 12;
+    private static final int CHECKSUM_SIZE = 8;
+    private static final byte FOLDER_NODE = 0;
+    private static final byte SONG_NODE = 1;
+
+    private List<Library> m_libraries;
+    private List<Playlist> m_playlists;
+    private List<Song> m_history;
+    private List<Song> m_playbackQueue;
+    private FileActions m_fileActions;
+    private int m_reparsedSongCount;
+
+    /**
+     * Constructor
+     */
+    private SessionSnapshot() {
+        m_fileActions = new ConcreteFileActions();
+        m_libraries = new ArrayList<>();
+        m_playlists = new ArrayList<>();
+        m_history = new ArrayList<>();
+        m_playbackQueue = new ArrayList<>();
+    }
+
+    /**
+     * Function to check if the snapshot is enabled. It can be turned off with -Dgamma.sessionSnapshot=false.
+     *
+     * @return True if the snapshot should be written and read, false otherwise.
+     */
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"));
+    }
+
+    /**
+     * Function to write the snapshot of the current session. Written to a temp file first and then moved into place.
+     *
+     * @param libraries         The libraries to save.
+     * @param playlists         The playlists to save.
+     * @param history           The songs in the music player history.
+     * @param playbackQueue     The songs in the playback queue.
+     */
+    public static void save(List<Library> libraries,
+                            List<Playlist> playlists,
+                            Collection<Song> history,
+                            Collection<Song> playbackQueue) {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+            DataOutputStream payload = new DataOutputStream(payloadBytes);
+
+            payload.writeInt(libraries.size());
+            for (Library library : libraries) {
+                writeNode(payload, library.getM_treeRoot());
+            }
+
+            payload.writeInt(playlists.size());
+            for (Playlist playlist : playlists) {
+                writeString(payload, playlist.getM_playlistName());
+                payload.writeInt(playlist.getM_currentSongIndex());
+                payload.writeDouble(playlist.getM_songResumeTime());
+                writeSongPaths(payload, playlist.getM_songList());
+            }
+
+            writeSongPaths(payload, history);
+            writeSongPaths(payload, playbackQueue);
+            payload.flush();
+
+            byte[] content = payloadBytes.toByteArray();
+            CRC32 checksum = new CRC32();
+            checksum.update(content);
+
+            Path tempPath = Paths.get(SNAPSHOT_TEMP_PATH);
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(content.length);
+                out.write(content);
+                out.writeLong(checksum.getValue());
+            }
+            try {
+                Files.move(tempPath, Paths.get(SNAPSHOT_PATH), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempPath, Paths.get(SNAPSHOT_PATH), StandardCopyOption.REPLACE_EXISTING);
+            }
+            System.out.println("Session snapshot saved (" + content.length + " bytes)");
+        } catch (IOException e) {
+            e.printStackTrace();
+            delete();
+        }
+    }
+
+    /**
+     * Function to read the snapshot left by the previous session. The snapshot file is kept until the caller has
+     * restored the session and calls delete(), unless it cannot be used.
+     *
+     * @return The restored snapshot, or null if there is none or it is corrupt.
+     */
+    public static SessionSnapshot load() {
+        if (!isEnabled() || !new File(SNAPSHOT_PATH).exists()) {
+            return null;
+        }
+        try {
+            // The snapshot is small, reading it to the heap keeps the file free to be deleted or replaced.
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(Paths.get(SNAPSHOT_PATH)));
+            if (buffer.remaining() < HEADER_SIZE + CHECKSUM_SIZE ||
+                    buffer.getInt() != MAGIC ||
+                    buffer.getInt() != VERSION) {
+                System.out.println("Session snapshot has an unknown format, ignoring it");
+                delete();
+                return null;
+            }
+
+            int payloadLength = buffer.getInt();
+            if (payloadLength < 0 || payloadLength != buffer.remaining() - CHECKSUM_SIZE) {
+                System.out.println("Session snapshot is truncated, ignoring it");
+                delete();
+                return null;
+            }
+
+            byte[] content = new byte[payloadLength];
+            buffer.get(content);
+            CRC32 checksum = new CRC32();
+            checksum.update(content);
+            if (checksum.getValue() != buffer.getLong()) {
+                System.out.println("Session snapshot is corrupt, ignoring it");
+                delete();
+                return null;
+            }
+
+            buffer.position(HEADER_SIZE);
+            return readPayload(buffer);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            e.printStackTrace();
+            delete();
+            return null;
+        }
+    }
+
+    /**
+     * Function to remove the snapshot file if it exists.
+     */
+    public static void delete() {
+        try {
+            Files.deleteIfExists(Paths.get(SNAPSHOT_PATH));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Helper function to read the payload that starts at the current position of the buffer.
+     *
+     * @param buffer The snapshot file.
+     * @return The restored snapshot.
+     */
+    private static SessionSnapshot readPayload(ByteBuffer buffer) {
+        SessionSnapshot snapshot = new SessionSnapshot();
+        Map<String, Song> songsByPath = new HashMap<>();
+        Map<String, Long> folderTimes = new HashMap<>();
+
+        int libraryCount = buffer.getInt();
+        for (int i = 0; i < libraryCount; ++i) {
+            TreeItem<Item> root = snapshot.readNode(buffer, songsByPath, folderTimes, true);
+            if (!root.getValue().getFile().isDirectory()) {
+                // Same as the regular loading path, a library whose folder is gone is not loaded.
+                System.out.println("Library " + root.getValue().getFile() + " no longer exists, skipping it");
+                continue;
+            }
+            snapshot.m_fileActions.addAll(new LibraryReconciler(folderTimes).reconcile(root));
+            snapshot.m_libraries.add(new Library(root));
+        }
+        System.out.println("Session snapshot: " + snapshot.m_reparsedSongCount + " changed songs parsed again");
+
+        int playlistCount = buffer.getInt();
+        for (int i = 0; i < playlistCount; ++i) {
+            String playlistName = readString(buffer);
+            Playlist playlist = new Playlist(playlistName, buffer.getInt());
+            playlist.setM_songResumeTime(buffer.getDouble());
+            playlist.addSongs(readSongs(buffer, songsByPath));
+            snapshot.m_playlists.add(playlist);
+        }
+
+        snapshot.m_history = readSongs(buffer, songsByPath);
+        snapshot.m_playbackQueue = readSongs(buffer, songsByPath);
+        return snapshot;
+    }
+
+    /**
+     * Helper function to write a tree node and its children in pre-order.
+     *
+     * @param out   The output to write to.
+     * @param node  The node to write.
+     * @throws IOException
+     */
+    private static void writeNode(DataOutputStream out, TreeItem<Item> node) throws IOException {
+        Item item = node.getValue();
+        File file = item.getFile();
+        if (item instanceof Song) {
+            Song song = (Song) item;
+            out.writeByte(SONG_NODE);
+            writeString(out, file.getAbsolutePath());
+            out.writeLong(file.lastModified());
+            out.writeLong(file.length());
+            writeString(out, song.getM_title());
+            writeString(out, song.getM_artist());
+            writeString(out, song.getM_album());
+            writeString(out, song.getM_genre());
+            out.writeInt(song.getM_rating());
+            out.writeDouble(song.getM_length());
+            out.writeLong(song.getM_frames());
+            ReplayGain replayGain = song.getM_replayGain();
+            out.writeFloat(replayGain.getM_trackGain());
+            out.writeFloat(replayGain.getM_trackPeak());
+            out.writeFloat(replayGain.getM_albumGain());
+            out.writeFloat(replayGain.getM_albumPeak());
+        } else {
+            out.writeByte(FOLDER_NODE);
+            writeString(out, file.getAbsolutePath());
+            out.writeLong(file.lastModified());
+            out.writeInt(node.getChildren().size());
+            for (TreeItem<Item> child : node.getChildren()) {
+                writeNode(out, child);
+            }
+        }
+    }
+
+    /**
+     * Helper function to read a tree node and its children in pre-order. Songs that were modified since the snapshot
+     * was written are parsed again, songs that no longer exist are kept in the tree for the reconciler to remove.
+     *
+     * @param buffer        The buffer to read from.
+     * @param songsByPath   Map to fill with every song that exists, used to resolve playlists, queue and history.
+     * @param folderTimes   Map to fill with the saved modified time of every folder.
+     * @param isRoot        True if this node is the root of a library.
+     * @return The restored node.
+     */
+    private TreeItem<Item> readNode(ByteBuffer buffer,
+                                    Map<String, Song> songsByPath,
+                                    Map<String, Long> folderTimes,
+                                    boolean isRoot) {
+        byte nodeType = buffer.get();
+        String path = readString(buffer);
+        File file = new File(path);
+        long lastModified = buffer.getLong();
+
+        if (nodeType == SONG_NODE) {
+            long size = buffer.getLong();
+            Song song = new Song(file,
+                                 readString(buffer),
+                                 readString(buffer),
+                                 readString(buffer),
+                                 readString(buffer),
+                                 buffer.getInt(),
+                                 buffer.getDouble(),
+                                 buffer.getLong(),
+                                 readReplayGain(buffer));
+            if (file.isFile()) {
+                if (file.lastModified() != lastModified || file.length() != size) {
+                    song = new Song(file);
+                    m_reparsedSongCount++;
+                }
+                songsByPath.put(path, song);
+            }
+            return new TreeItem<>(song);
+        }
+
+        if (nodeType != FOLDER_NODE) {
+            throw new IllegalArgumentException("Unknown node type " + nodeType);
+        }
+        folderTimes.put(path, lastModified);
+        TreeItem<Item> folderNode = new TreeItem<>(new Folder(file, isRoot));
+        int childCount = buffer.getInt();
+        List<TreeItem<Item>> children = new ArrayList<>(childCount);
+        for (int i = 0; i < childCount; ++i) {
+            children.add(readNode(buffer, songsByPath, folderTimes, false));
+        }
+        folderNode.getChildren().addAll(children);
+        return folderNode;
+    }
+
+    /**
+     * Helper function to write the paths of a list of songs.
+     *
+     * @param out   The output to write to.
+     * @param songs The songs to write.
+     * @throws IOException
+     */
+    private static void writeSongPaths(DataOutputStream out, Collection<Song> songs) throws IOException {
+        out.writeInt(songs.size());
+        for (Song song : songs) {
+            writeString(out, song.getFile().getAbsolutePath());
+        }
+    }
+
+    /**
+     * Helper function to read a list of song paths and resolve them against the restored songs.
+     *
+     * @param buffer        The buffer to read from.
+     * @param songsByPath   The restored songs.
+     * @return The songs that are found in the restored libraries.
+     */
+    private static List<Song> readSongs(ByteBuffer buffer, Map<String, Song> songsByPath) {
+        int songCount = buffer.getInt();
+        List<Song> songs = new ArrayList<>(songCount);
+        for (int i = 0; i < songCount; ++i) {
+            Song song = songsByPath.get(readString(buffer));
+            if (song != null) {
+                songs.add(song);
+            }
+        }
+        return songs;
+    }
+
+    /**
+     * Helper function to write a length prefixed UTF-8 string. Null is written as an empty string.
+     *
+     * @param out   The output to write to.
+     * @param value The string to write.
+     * @throws IOException
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Helper function to read a length prefixed UTF-8 string.
+     *
+     * @param buffer The buffer to read from.
+     * @return The string that is read.
+     */
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Helper function to read the ReplayGain values of a song.
+     *
+     * @param buffer The buffer to read from.
+     * @return The values that are read, NONE if none were known.
+     */
+    private static ReplayGain readReplayGain(ByteBuffer buffer) {
+        ReplayGain replayGain = new ReplayGain(buffer.getFloat(), buffer.getFloat(),
+                                               buffer.getFloat(), buffer.getFloat());
+        return replayGain.isEmpty() ? ReplayGain.NONE : replayGain;
+    }
+
+    /**********
+     * Getters
+     **********/
+
+    public List<Library> getM_libraries() {
+        return m_libraries;
+    }
+
+    public List<Playlist> getM_playlists() {
+        return m_playlists;
+    }
+
+    public List<Song> getM_history() {
+        return m_history;
+    }
+
+    public List<Song> getM_playbackQueue() {
+        return m_playbackQueue;
+    }
+
+    public FileActions getM_fileActions() {
+        return m_fileActions;
+    }
+}
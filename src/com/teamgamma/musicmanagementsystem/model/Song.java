@@ -3,14 +3,19 @@ package com.teamgamma.musicmanagementsystem.model;
 import java.io.File;
 import java.io.FileNotFoundException;
 
+import com.teamgamma.musicmanagementsystem.codec.AudioCodec;
+import com.teamgamma.musicmanagementsystem.codec.CodecRegistry;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
 import org.jaudiotagger.audio.AudioFile;
 import org.jaudiotagger.audio.AudioFileIO;
+import org.jaudiotagger.audio.exceptions.CannotReadException;
 import org.jaudiotagger.audio.exceptions.CannotWriteException;
-import org.jaudiotagger.audio.mp3.MP3File;
 import org.jaudiotagger.tag.FieldDataInvalidException;
 import org.jaudiotagger.tag.FieldKey;
 import org.jaudiotagger.tag.Tag;
-import org.jaudiotagger.tag.id3.ID3v24Tag;
 
 /**
  * Underlying data structure for a Song. A File plus data additional data.
@@ -26,6 +31,15 @@ public class Song implements Item {
     private int m_rating;
     private double m_length;
     private long m_frames;
+    private ReplayGain m_replayGain = ReplayGain.NONE;
+
+    // Properties for the song tables, only created once a table shows the song so a large library does not hold
+    // one for every song.
+    private ReadOnlyStringWrapper m_titleProperty;
+    private ReadOnlyStringWrapper m_artistProperty;
+    private ReadOnlyStringWrapper m_albumProperty;
+    private ReadOnlyStringWrapper m_genreProperty;
+    private ReadOnlyObjectWrapper<Integer> m_ratingProperty;
 
     public Song(File file) {
         m_file = file;
@@ -33,21 +47,52 @@ public class Song implements Item {
         readFileData();
     }
 
+    /**
+     * Constructor for a song whose metadata is already known (for example restored from a session snapshot),
+     * so the file does not need to be parsed again.
+     *
+     * @param file      The song file.
+     * @param title     The title tag.
+     * @param artist    The artist tag.
+     * @param album     The album tag.
+     * @param genre     The genre tag.
+     * @param rating    The rating on the five star scale.
+     * @param length    The length of the song in seconds.
+     * @param frames    The number of MP3 frames in the song.
+     * @param replayGain    The ReplayGain values of the song.
+     */
+    Song(File file, String title, String artist, String album, String genre, int rating, double length, long frames,
+         ReplayGain replayGain) {
+        m_file = file;
+        m_title = title;
+        m_artist = artist;
+        m_album = album;
+        m_genre = genre;
+        m_rating = rating;
+        m_length = length;
+        m_frames = frames;
+        m_replayGain = replayGain;
+    }
+
     /**
      * Read the contents of the file.
      */
     private void readFileData() {
         try {
-            AudioFile audioFile = AudioFileIO.read(m_file);
+            // The reader is picked by the content of the file, not by its extension.
+            AudioCodec codec = CodecRegistry.detect(m_file);
+            if (codec == null) {
+                throw new CannotReadException("Unsupported audio format: " + m_file.getAbsolutePath());
+            }
+            AudioFile audioFile = codec.readMetadata(m_file);
             Tag tag = audioFile.getTag();
             if (tag == null) {
                 tag = fillEmptyTag(audioFile);
             }
             parseTags(tag);
 
-            MP3File mp3File = new MP3File(m_file);
-            m_length = mp3File.getMP3AudioHeader().getPreciseTrackLength();
-            m_frames = mp3File.getMP3AudioHeader().getNumberOfFrames();
+            m_length = codec.getLengthInSeconds(audioFile);
+            m_frames = codec.getFrameCount(audioFile);
         } catch (Exception e) {
             e.printStackTrace(); //for now
         }
@@ -65,6 +110,7 @@ public class Song implements Item {
         m_genre = tag.getFirst(FieldKey.GENRE);
         String ratingInMetadata = tag.getFirst(FieldKey.RATING);
         m_rating = convertRatingToFiveStarScale(ratingInMetadata.equals("") ? 0 : Integer.parseInt(ratingInMetadata));
+        m_replayGain = ReplayGain.fromTag(tag);
     }
 
     /**
@@ -73,8 +119,8 @@ public class Song implements Item {
      * @param file the specified file
      */
     private Tag fillEmptyTag(AudioFile file) throws FieldDataInvalidException, CannotWriteException {
-        Tag tag;
-        tag = new ID3v24Tag();
+        // The default tag of the format of the file, e.g. ID3v2.4 for MP3 and Vorbis comments for FLAC.
+        Tag tag = file.createDefaultTag();
         tag.setField(FieldKey.TITLE, "");
         tag.setField(FieldKey.ARTIST, "");
         tag.setField(FieldKey.ALBUM, "");
@@ -202,99 +248,139 @@ public class Song implements Item {
     }
 
     /**
-     * Set the title attribute of this song object and also the title tag in the metadata
+     * Set the title attribute of this song object and queue the change of the title tag in the metadata
      *
      * @param title the specified title
      */
     public void setTitle(String title) {
-        try {
-            //update metadata
-            AudioFile file = AudioFileIO.read(m_file);
-            Tag tag = file.getTag();
-            tag.setField(FieldKey.TITLE, title);
-            AudioFileIO.write(file);
-            //update object attr
-            m_title = title;
-        } catch (Exception e) {
-            e.printStackTrace(); //for now
+        if (title.equals(m_title)) {
+            return;
         }
+        TagWriter.queueEdit(this, FieldKey.TITLE, title, m_title);
+        m_title = title;
+        updateProperty(m_titleProperty, title);
     }
 
     /**
-     * Set the artist attribute of this song object and also the artist tag in the metadata
+     * Set the artist attribute of this song object and queue the change of the artist tag in the metadata
      *
      * @param artist the specified artist
      */
     public void setArtist(String artist) {
-        try {
-            //update metadata
-            AudioFile file = AudioFileIO.read(m_file);
-            Tag tag = file.getTag();
-            tag.setField(FieldKey.ARTIST, artist);
-            AudioFileIO.write(file);
-            //update object attr
-            m_artist = artist;
-        } catch (Exception e) {
-            e.printStackTrace(); //for now
+        if (artist.equals(m_artist)) {
+            return;
         }
+        TagWriter.queueEdit(this, FieldKey.ARTIST, artist, m_artist);
+        m_artist = artist;
+        updateProperty(m_artistProperty, artist);
     }
 
     /**
-     * Set the album attribute of this song object and also the album tag in the metadata
+     * Set the album attribute of this song object and queue the change of the album tag in the metadata
      *
      * @param album the specified album
      */
     public void setAlbum(String album) {
-        try {
-            //update metadata
-            AudioFile file = AudioFileIO.read(m_file);
-            Tag tag = file.getTag();
-            tag.setField(FieldKey.ALBUM, album);
-            AudioFileIO.write(file);
-            //update object attr
-            m_album = album;
-        } catch (Exception e) {
-            e.printStackTrace(); //for now
+        if (album.equals(m_album)) {
+            return;
         }
+        TagWriter.queueEdit(this, FieldKey.ALBUM, album, m_album);
+        m_album = album;
+        updateProperty(m_albumProperty, album);
     }
 
     /**
-     * Set the genre attribute of this song object and also the genre tag in the metadata
+     * Set the genre attribute of this song object and queue the change of the genre tag in the metadata
      *
      * @param genre the specified album
      */
     public void setGenre(String genre) {
-        try {
-            //update metadata
-            AudioFile file = AudioFileIO.read(m_file);
-            Tag tag = file.getTag();
-            tag.setField(FieldKey.GENRE, genre);
-            AudioFileIO.write(file);
-            //update object attr
-            m_genre = genre;
-        } catch (Exception e) {
-            e.printStackTrace(); //for now
+        if (genre.equals(m_genre)) {
+            return;
         }
+        TagWriter.queueEdit(this, FieldKey.GENRE, genre, m_genre);
+        m_genre = genre;
+        updateProperty(m_genreProperty, genre);
     }
 
     /**
-     * Set the rating attribute of this song object and also the rating tag in the metadata
+     * Set the rating attribute of this song object and queue the change of the rating tag in the metadata
      *
      * @param rating the specified album
      */
     public void setRating(int rating) throws IllegalArgumentException {
-        try {
-            //update metadata
-            AudioFile file = AudioFileIO.read(m_file);
-            Tag tag = file.getTag();
-            tag.setField(FieldKey.RATING, Integer.toString(convertRatingFromFiveStarScale(rating)));
-            AudioFileIO.write(file);
-            //update object attr
-            m_rating = rating;
-        } catch (IllegalArgumentException e) {
-            throw e;
-        } catch (Exception e) {
-            e.printStackTrace(); //for now
+        // Convert first so a rating out of range is reported before anything is changed.
+        String ratingInMetadata = Integer.toString(convertRatingFromFiveStarScale(rating));
+        if (rating == m_rating) {
+            return;
+        }
+        TagWriter.queueEdit(this, FieldKey.RATING, ratingInMetadata, Integer.toString(m_rating));
+        m_rating = rating;
+        if (m_ratingProperty != null) {
+            m_ratingProperty.set(rating);
+        }
+    }
+
+    /**
+     * Set a tag attribute of this song object back to an earlier value, without changing the metadata. Used when a
+     * queued change could not be written to the file.
+     *
+     * @param field the tag to set back
+     * @param value the earlier value, on the five star scale for the rating
+     */
+    void restoreTag(FieldKey field, String value) {
+        switch (field) {
+            case TITLE:
+                m_title = value;
+                updateProperty(m_titleProperty, value);
+                break;
+
+            case ARTIST:
+                m_artist = value;
+                updateProperty(m_artistProperty, value);
+                break;
+
+            case ALBUM:
+                m_album = value;
+                updateProperty(m_albumProperty, value);
+                break;
+
+            case GENRE:
+                m_genre = value;
+                updateProperty(m_genreProperty, value);
+                break;
+
+            case RATING:
+                m_rating = Integer.parseInt(value);
+                if (m_ratingProperty != null) {
+                    m_ratingProperty.set(m_rating);
+                }
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Set the ReplayGain values of this song, for example ones that were measured or cached in the database.
+     * Only updates this object, the metadata of the file is not changed.
+     *
+     * @param replayGain the ReplayGain values
+     */
+    public void setReplayGain(ReplayGain replayGain) {
+        m_replayGain = replayGain;
+    }
+
+    /**
+     * Helper function to update a property of the song if a table created it.
+     *
+     * @param property  the property, null if it was not created
+     * @param value     the new value
+     */
+    private static void updateProperty(ReadOnlyStringWrapper property, String value) {
+        if (property != null) {
+            property.set(value);
         }
     }
 
@@ -341,4 +427,47 @@ public class Song implements Item {
     public long getM_frames() {
         return m_frames;
     }
+
+    public ReplayGain getM_replayGain() {
+        return m_replayGain;
+    }
+
+    /**********
+     * Properties
+     **********/
+
+    public ReadOnlyStringProperty titleProperty() {
+        if (m_titleProperty == null) {
+            m_titleProperty = new ReadOnlyStringWrapper(this, "title", m_title);
+        }
+        return m_titleProperty.getReadOnlyProperty();
+    }
+
+    public ReadOnlyStringProperty artistProperty() {
+        if (m_artistProperty == null) {
+            m_artistProperty = new ReadOnlyStringWrapper(this, "artist", m_artist);
+        }
+        return m_artistProperty.getReadOnlyProperty();
+    }
+
+    public ReadOnlyStringProperty albumProperty() {
+        if (m_albumProperty == null) {
+            m_albumProperty = new ReadOnlyStringWrapper(this, "album", m_album);
+        }
+        return m_albumProperty.getReadOnlyProperty();
+    }
+
+    public ReadOnlyStringProperty genreProperty() {
+        if (m_genreProperty == null) {
+            m_genreProperty = new ReadOnlyStringWrapper(this, "genre", m_genre);
+        }
+        return m_genreProperty.getReadOnlyProperty();
+    }
+
+    public ReadOnlyObjectProperty<Integer> ratingProperty() {
+        if (m_ratingProperty == null) {
+            m_ratingProperty = new ReadOnlyObjectWrapper<>(this, "rating", m_rating);
+        }
+        return m_ratingProperty.getReadOnlyProperty();
+    }
 }
@@ -12,7 +12,9 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -20,7 +22,6 @@ import java.util.Map;
  * Class to manage libraries and playlists
  */
 public class SongManager {
-    private static final String TRACK_NUM = "001";
     private List<Library> m_libraries;
     private List<Playlist> m_playlists;
 
@@ -41,6 +42,7 @@ public class SongManager {
     private List<Item> m_itemsToCopy;
     private List<Item> m_itemsToMove;
     private File m_copyDest;
+    private CopyPlan m_cancelledCopy;
     private File m_moveDest;
     private File m_renamedFile;
 
@@ -87,6 +89,7 @@ public class SongManager {
         m_itemsToCopy = null;
         m_itemsToMove = null;
         m_copyDest = null;
+        m_cancelledCopy = null;
         m_moveDest = null;
         m_renamedFile = null;
 
@@ -111,19 +114,28 @@ public class SongManager {
             return false;
         }
         try {
-            Library newLibrary = new Library(directoryPath);
-            if (!newLibrary.getRootDir().exists()) {
-                return false;
-            }
-            m_libraries.add(newLibrary);
-            addLibraryToFileTree(newLibrary);
-            return true;
+            return addLibrary(new Library(directoryPath));
         } catch(NullPointerException e) {
             e.printStackTrace();
         }
         return false;
     }
 
+    /**
+     * Add an already built library to m_libraries if its root folder still exists and it is not already in the list
+     *
+     * @param newLibrary the library to add
+     * @return true if new library is added to the list, false otherwise
+     */
+    public boolean addLibrary(Library newLibrary) {
+        if (!newLibrary.getRootDir().exists() || m_libraries.contains(newLibrary)) {
+            return false;
+        }
+        m_libraries.add(newLibrary);
+        addLibraryToFileTree(newLibrary);
+        return true;
+    }
+
     /**
      * Remove a library (this doesn't actually delete the files in the filesystem)
      *
@@ -220,43 +232,61 @@ public class SongManager {
     }
 
     /**
-     * Copy files in buffer to destination
+     * Plan copying the files in buffer to destination. The returned task does the copy when it is run and updates
+     * the file tree as files are done. If the same copy was cancelled before, the task resumes it.
      *
      * @param dest the destination folder
+     * @return The task that copies the files, or null if there is nothing to copy
      * @throws Exception if m_itemsToCopy is null
-     * @throws IOException If copy file fails
-     * @throws InvalidPathException If file path is invalid
+     * @throws IOException If a folder would be copied into itself or a source cannot be read
      */
-    public void copyToDestination(File dest) throws Exception {
+    public CopyTask copyToDestination(File dest) throws Exception {
         if (m_itemsToCopy == null) {
             throw new Exception("Files to copy should not be null");
         }
 
-        List<Item> itemsToSkip = new ArrayList<>();
+        List<File> filesToCopy = new ArrayList<>();
         for (Item itemToCopy : m_itemsToCopy) {
-            try {
-                if (dest.getAbsolutePath().equals(itemToCopy.getFile().getParent())){
-                    return;
-                }
+            if (dest.getAbsolutePath().equals(itemToCopy.getFile().getParent())){
+                return null;
+            }
+            filesToCopy.add(itemToCopy.getFile());
+        }
 
-                if (!FileManager.copyFilesRecursively(itemToCopy.getFile(), dest)) {
-                    throw new IOException("Fail to copy");
-                }
-            } catch (FileAlreadyExistsException ex) {
-                System.out.println("### Skipping song: " + itemToCopy.getFile());
+        CopyPlan plan;
+        if (m_cancelledCopy != null && m_cancelledCopy.isSameCopy(filesToCopy, dest)) {
+            System.out.println("### Resuming cancelled copy to: " + dest);
+            plan = m_cancelledCopy;
+            m_cancelledCopy = null;
+        } else {
+            discardCancelledCopy();
+            plan = CopyPlan.create(filesToCopy, dest);
+        }
+
+        List<Item> itemsToSkip = new ArrayList<>();
+        for (Item itemToCopy : m_itemsToCopy) {
+            if (plan.getM_skippedSources().contains(itemToCopy.getFile())) {
                 itemsToSkip.add(itemToCopy);
             }
         }
-
         removeItemsToSkip(m_itemsToCopy, itemsToSkip);
 
         m_copyDest = dest;
 
-        FileActions copyFileActions = new ConcreteFileActions(Action.PASTE, null);
-
-        updateFilesInFileTree(copyFileActions);
+        CopyTask copyTask = new CopyTask(this, plan);
+        copyTask.setOnCancelled(event -> m_cancelledCopy = plan);
+        return copyTask;
+    }
 
-        notifyFileObservers(copyFileActions);
+    /**
+     * Function to give up on resuming the last cancelled copy, deleting the partial files it left behind. Called when
+     * a different copy is started and when the application closes.
+     */
+    public void discardCancelledCopy() {
+        if (m_cancelledCopy != null) {
+            m_cancelledCopy.deletePartialFiles();
+            m_cancelledCopy = null;
+        }
     }
 
     /**
@@ -271,8 +301,7 @@ public class SongManager {
             throw new Exception("Files to move should not be null");
         }
 
-        FileActions moveFileAction = new ConcreteFileActions();
-        List<Pair<Song, File>> songFilePairs = new ArrayList<>();
+        Map<File, File> relocations = new LinkedHashMap<>();
         List<Item> itemsToSkip = new ArrayList<>();
         for(Item itemToMove : m_itemsToMove) {
             try {
@@ -282,13 +311,7 @@ public class SongManager {
                 }
 
                 File movedFile = FileManager.moveFile(fileToMove, destDir);
-
-                moveFileAction.add(Action.DELETE, fileToMove);
-                moveFileAction.add(Action.ADD, movedFile);
-
-                if (itemToMove instanceof Song) {
-                    songFilePairs.add(new Pair<>((Song) itemToMove, movedFile));
-                }
+                relocations.put(fileToMove, movedFile);
             } catch (FileAlreadyExistsException ex) {
                 System.out.println("### Skipping song: " + itemToMove.getFile());
                 itemsToSkip.add(itemToMove);
@@ -299,50 +322,138 @@ public class SongManager {
 
         m_moveDest = destDir;
 
-        updateFilesInFileTree(moveFileAction);
+        relocateFiles(relocations);
+    }
 
-        for (Pair<Song, File> entry : songFilePairs) {
-            Song newSongLocation = getSong(entry.getValue());
+    /**
+     * Update the model after files or folders were moved or renamed on disk. The tree nodes are moved keeping the same
+     * Item objects, then all playlists, the playback queue, the history and the database are updated in one pass.
+     *
+     * @param relocations Map from the old location of each moved file or folder to its new location
+     * @throws IOException If the file tree cannot be updated
+     */
+    public void relocateFiles(Map<File, File> relocations) throws IOException {
+        FileActions relocateFileActions = new ConcreteFileActions();
+        for (Map.Entry<File, File> relocation : relocations.entrySet()) {
+            relocateFileActions.add(Action.DELETE, relocation.getKey());
+            relocateFileActions.add(Action.ADD, relocation.getValue());
+        }
+        relocateFiles(relocations, relocateFileActions);
+    }
+
+    /**
+     * Helper function to update the model after files or folders were moved or renamed on disk. Files that stay in
+     * the same folder are renamed in place, others are moved to their new folder.
+     *
+     * The songs are collected with their old paths before the nodes change. The moved songs are the same objects
+     * afterwards, pointing to their new files, so the playlists, the playback queue and the history match them by
+     * object and only replace other objects still at an old path, and the database is updated from the old paths.
+     *
+     * @param relocations   Map from the old location of each moved file or folder to its new location
+     * @param fileActions   The actions to notify the file observers with
+     * @throws IOException If the file tree cannot be updated
+     */
+    private void relocateFiles(Map<File, File> relocations, FileActions fileActions) throws IOException {
+        Map<String, TreeItem<Item>> treeIndex = FileTreeUtils.indexTreeItems(m_fileTreeRoot);
+        Map<String, Song> relocatedSongs = new HashMap<>();
+
+        for (Map.Entry<File, File> relocation : relocations.entrySet()) {
+            File oldFile = relocation.getKey();
+            File newFile = relocation.getValue();
+            boolean isRename = oldFile.getParentFile().equals(newFile.getParentFile());
+
+            TreeItem<Item> nodeToMove = treeIndex.get(oldFile.getAbsolutePath());
+            TreeItem<Item> destParentNode = treeIndex.get(newFile.getParentFile().getAbsolutePath());
+            if (nodeToMove == null || (!isRename && destParentNode == null)) {
+                // Moved into or out of the libraries, nothing to keep.
+                FileTreeUtils.updateTreeItems(this, m_fileTreeRoot, Action.DELETE, oldFile);
+                FileTreeUtils.updateTreeItems(this, m_fileTreeRoot, Action.ADD, newFile);
+                continue;
+            }
+
+            List<Song> movedSongs = new ArrayList<>();
+            List<String> oldPaths = new ArrayList<>();
+            collectSongs(nodeToMove, movedSongs, oldPaths);
+
+            if (isRename) {
+                FileTreeUtils.renameNode(nodeToMove, newFile);
+            } else {
+                FileTreeUtils.moveNode(nodeToMove, destParentNode, newFile);
+            }
+
+            for (int i = 0; i < movedSongs.size(); ++i) {
+                relocatedSongs.put(oldPaths.get(i), movedSongs.get(i));
+            }
+        }
+
+        if (!relocatedSongs.isEmpty()) {
             for (Playlist playlist : m_playlists) {
-                playlist.changeSongs(entry.getKey(), newSongLocation);
+                playlist.relocateSongs(relocatedSongs);
             }
-            m_musicPlayerManager.updateSongLocation(entry.getKey(), newSongLocation);
+            m_musicPlayerManager.relocateSongs(relocatedSongs);
         }
 
-        notifyFileObservers(moveFileAction);
+        updateSearchResults();
+        notifyFileObservers(fileActions);
     }
 
     /**
-     * Delete a file
+     * Helper function to collect the songs under a node together with their current paths
      *
-     * @param filesToDelete
-     * @throws Exception
+     * @param node      the root node of the sub-tree
+     * @param songs     list to add the songs to
+     * @param paths     list to add the path of each song to, in the same order
      */
-    public void deleteFile(List<File> filesToDelete) throws Exception {
-        FileActions deleteFileAction = new ConcreteFileActions();
-        for (File fileToDelete: filesToDelete) {
-            // Skip this song if it does not exist in the file system
-            if (!fileToDelete.exists()) {
-                break;
+    private static void collectSongs(TreeItem<Item> node, List<Song> songs, List<String> paths) {
+        Item item = node.getValue();
+        if (item instanceof Song) {
+            songs.add((Song) item);
+            paths.add(item.getFile().getAbsolutePath());
+        }
+        for (TreeItem<Item> child : node.getChildren()) {
+            collectSongs(child, songs, paths);
+        }
+    }
+
+    /**
+     * Plan deleting files. The returned task deletes the files in the background when it is run, and the file tree is
+     * updated with one batch once it succeeds.
+     *
+     * @param filesToDelete the files and folders to delete
+     * @return The task that deletes the files
+     */
+    public DeleteTask deleteFile(List<File> filesToDelete) {
+        DeleteTask deleteTask = new DeleteTask(filesToDelete);
+        deleteTask.setOnSucceeded(event -> {
+            try {
+                removeDeletedFiles(deleteTask.getValue());
+            } catch (IOException e) {
+                e.printStackTrace();
             }
+        });
+        return deleteTask;
+    }
 
-            if (m_rightFolderSelected != null && m_rightFolderSelected.getAbsolutePath().equals(fileToDelete.getAbsolutePath())) {
+    /**
+     * Remove files that were deleted from the file tree and notify the file observers
+     *
+     * @param deleteFileActions DELETE actions for the files that were deleted
+     * @throws IOException If the file tree cannot be updated
+     */
+    private void removeDeletedFiles(FileActions deleteFileActions) throws IOException {
+        for (Pair<Action, File> deleteFileAction : deleteFileActions) {
+            String deletedPath = deleteFileAction.getValue().getAbsolutePath();
+            if (m_rightFolderSelected != null && m_rightFolderSelected.getAbsolutePath().equals(deletedPath)) {
                 m_rightFolderSelected = null;
             }
-            if (m_selectedCenterFolder != null && m_selectedCenterFolder.getAbsolutePath().equals(fileToDelete.getAbsolutePath())) {
+            if (m_selectedCenterFolder != null && m_selectedCenterFolder.getAbsolutePath().equals(deletedPath)) {
                 m_selectedCenterFolder = null;
             }
-
-            if (!FileManager.removeFile(fileToDelete)) {
-                throw new FileSystemException("File " + fileToDelete.getAbsolutePath() + " could not be deleted");
-            }
-
-            deleteFileAction.add(Action.DELETE, fileToDelete);
         }
 
-        updateFilesInFileTree(deleteFileAction);
+        updateFilesInFileTree(deleteFileActions);
 
-        notifyFileObservers(deleteFileAction);
+        notifyFileObservers(deleteFileActions);
     }
 
     /**
@@ -558,35 +669,23 @@ public class SongManager {
     }
 
     /**
-     * Copy a playlist to a destination
+     * Plan exporting a playlist to a destination. The returned task copies the songs into a folder named after the
+     * playlist when it is run.
      *
      * @param playlist The playlist to copy
      * @param file The destination file
+     * @param isWritingM3U True to write an M3U file listing the exported songs
+     * @return The task that exports the playlist
      */
-    public void copyPlaylistToDestination(Playlist playlist, File file) {
-        try {
-            // Create playlist folder
-            String target = file.getAbsolutePath() + File.separator + playlist.getM_playlistName();
-            Path path = Paths.get(target);
-            if(!Files.exists(path)) {
-                Files.createDirectories(path);
-            }
-            File destFile = path.toFile();
-
-            // Copy songs
-            String trackNum = TRACK_NUM;
-            for (Song song : playlist.getM_songList()) {
-                trackNum = String.format("%03d", Integer.parseInt(trackNum));
-                FileManager.exportFile(song.getFile(), destFile, trackNum);
-                trackNum = String.valueOf(Integer.parseInt(trackNum) + 1);
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    public PlaylistExportTask copyPlaylistToDestination(Playlist playlist, File file, boolean isWritingM3U) {
+        File destFolder = new File(file.getAbsolutePath() + File.separator + playlist.getM_playlistName());
+        return new PlaylistExportTask(playlist.getM_playlistName(), playlist.getM_songList(), destFolder,
+                isWritingM3U);
     }
 
     /**
-     * Rename a file and notify file observers
+     * Rename a file, update the playlists, playback queue, history and database like a move, and notify file
+     * observers
      *
      * @param fileToRename
      * @param newPath
@@ -594,8 +693,7 @@ public class SongManager {
     public void renameFile(File fileToRename, Path newPath) throws IOException {
         m_renamedFile = new File(newPath.toString());
         FileActions renameFileAction = new ConcreteFileActions(Action.RENAME, fileToRename);
-        updateFilesInFileTree(renameFileAction);
-        notifyFileObservers(renameFileAction);
+        relocateFiles(Collections.singletonMap(fileToRename, m_renamedFile), renameFileAction);
     }
 
     /**
@@ -0,0 +1,201 @@
+package com.teamgamma.musicmanagementsystem.model;
+
+import com.teamgamma.musicmanagementsystem.util.GeneralObserver;
+
+import javafx.application.Platform;
+import org.jaudiotagger.audio.AudioFile;
+import org.jaudiotagger.audio.AudioFileIO;
+import org.jaudiotagger.tag.FieldKey;
+import org.jaudiotagger.tag.Tag;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class to write edited song tags to the files on a background thread.
+ *
+ * Edits are queued per file and written after a short delay, so changing several fields of a song (or the same field
+ * several times) reads and rewrites the file once. The files are written one at a time in the order they were first
+ * edited, and a write that fails, for example because the file is locked by another program, is tried again a few
+ * times before it is given up. When a write is given up, the songs are set back to the values they had before the
+ * edits and the write failed observers are notified on the JavaFX thread.
+ */
+public class TagWriter {
+    private static final long COALESCE_DELAY_IN_MILLISECONDS = 300;
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_IN_MILLISECONDS = 1000;
+    private static final long SHUTDOWN_TIMEOUT_IN_SECONDS = 30;
+
+    private static final ScheduledExecutorService WRITER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread writerThread = new Thread(runnable, "tag-writer");
+        writerThread.setDaemon(true);
+        return writerThread;
+    });
+
+    // The edits waiting to be written by the path of the song. An entry is taken out when its write starts, so edits
+    // made during a write are queued for another one.
+    private static final Map<String, PendingEdit> PENDING_EDITS = new LinkedHashMap<>();
+
+    // Only used on the JavaFX thread.
+    private static final List<GeneralObserver> WRITE_FAILED_OBSERVERS = new ArrayList<>();
+    private static final List<Song> FAILED_SONGS = new ArrayList<>();
+
+    /**
+     * Function to queue a change to a tag of a song. Must be called on the JavaFX thread.
+     *
+     * @param song          The song to change.
+     * @param field         The tag to change.
+     * @param value         The new value of the tag, as it is written to the file.
+     * @param oldValue      The value of the song before the change, to set it back if the write fails.
+     */
+    static void queueEdit(Song song, FieldKey field, String value, String oldValue) {
+        String songPath = song.getFile().getAbsolutePath();
+        synchronized (PENDING_EDITS) {
+            PendingEdit pendingEdit = PENDING_EDITS.get(songPath);
+            if (pendingEdit == null) {
+                pendingEdit = new PendingEdit(song);
+                PENDING_EDITS.put(songPath, pendingEdit);
+                WRITER.schedule(() -> writePendingEdit(songPath), COALESCE_DELAY_IN_MILLISECONDS, TimeUnit.MILLISECONDS);
+            }
+            pendingEdit.m_fields.put(field, value);
+            if (!pendingEdit.m_oldValues.containsKey(field)) {
+                pendingEdit.m_oldValues.put(field, oldValue);
+            }
+        }
+    }
+
+    /**
+     * Function to register an observer to notify when the edits of a song could not be written and were undone.
+     *
+     * @param observer The observer, called on the JavaFX thread.
+     */
+    public static void registerWriteFailedObserver(GeneralObserver observer) {
+        WRITE_FAILED_OBSERVERS.add(observer);
+    }
+
+    /**
+     * Function to get the songs whose edits could not be written since this was last called. Must be called on the
+     * JavaFX thread.
+     *
+     * @return The songs, in the order their writes failed.
+     */
+    public static List<Song> takeFailedSongs() {
+        List<Song> failedSongs = new ArrayList<>(FAILED_SONGS);
+        FAILED_SONGS.clear();
+        return failedSongs;
+    }
+
+    /**
+     * Function to write the edits that are still queued and stop the writer thread. Blocks until the writes are done,
+     * so it should be called when the application closes, off the UI thread.
+     */
+    public static void shutdown() {
+        // Writes that were already scheduled still run after shutdown.
+        WRITER.shutdown();
+        try {
+            if (!WRITER.awaitTermination(SHUTDOWN_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)) {
+                System.out.println("Gave up waiting for the song tags to be written");
+            }
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Helper function to take the queued edits of a song and write them to its file in one read-modify-write.
+     *
+     * @param songPath The path the edits were queued under.
+     */
+    private static void writePendingEdit(String songPath) {
+        PendingEdit pendingEdit;
+        synchronized (PENDING_EDITS) {
+            pendingEdit = PENDING_EDITS.remove(songPath);
+        }
+        if (pendingEdit == null) {
+            return;
+        }
+
+        for (int attempt = 1; attempt <= MAX_WRITE_ATTEMPTS; attempt++) {
+            try {
+                writeTags(pendingEdit.m_song.getFile(), pendingEdit.m_fields);
+                return;
+            } catch (Exception e) {
+                if (attempt == MAX_WRITE_ATTEMPTS) {
+                    System.out.println("Unable to write the tags of " + songPath);
+                    e.printStackTrace();
+                    Platform.runLater(() -> undoEdit(songPath, pendingEdit));
+                    return;
+                }
+                try {
+                    Thread.sleep(RETRY_DELAY_IN_MILLISECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper function to set a song back to the values it had before edits that could not be written. Fields that
+     * were edited again since are left alone, their new edit is still queued and is undone to the same values if it
+     * fails too.
+     *
+     * @param songPath      The path the edits were queued under.
+     * @param failedEdit    The edits that could not be written.
+     */
+    private static void undoEdit(String songPath, PendingEdit failedEdit) {
+        synchronized (PENDING_EDITS) {
+            PendingEdit newerEdit = PENDING_EDITS.get(songPath);
+            for (Map.Entry<FieldKey, String> oldValue : failedEdit.m_oldValues.entrySet()) {
+                if (newerEdit == null || !newerEdit.m_fields.containsKey(oldValue.getKey())) {
+                    failedEdit.m_song.restoreTag(oldValue.getKey(), oldValue.getValue());
+                } else {
+                    newerEdit.m_oldValues.put(oldValue.getKey(), oldValue.getValue());
+                }
+            }
+        }
+        FAILED_SONGS.add(failedEdit.m_song);
+        for (GeneralObserver observer : WRITE_FAILED_OBSERVERS) {
+            observer.update();
+        }
+    }
+
+    /**
+     * Helper function to change tags in a file.
+     *
+     * @param file      The song file.
+     * @param fields    The new value of each tag to change.
+     * @throws Exception If the file could not be read or written.
+     */
+    private static void writeTags(File file, Map<FieldKey, String> fields) throws Exception {
+        AudioFile audioFile = AudioFileIO.read(file);
+        Tag tag = audioFile.getTagOrCreateAndSetDefault();
+        for (Map.Entry<FieldKey, String> field : fields.entrySet()) {
+            tag.setField(field.getKey(), field.getValue());
+        }
+        AudioFileIO.write(audioFile);
+    }
+
+    /**
+     * Class for the edits of a song that are waiting to be written.
+     */
+    private static class PendingEdit {
+        // The file is taken from the song when it is written, in case the song was moved or renamed in the meantime.
+        private final Song m_song;
+        private final Map<FieldKey, String> m_fields = new EnumMap<>(FieldKey.class);
+        private final Map<FieldKey, String> m_oldValues = new EnumMap<>(FieldKey.class);
+
+        private PendingEdit(Song song) {
+            m_song = song;
+        }
+    }
+}
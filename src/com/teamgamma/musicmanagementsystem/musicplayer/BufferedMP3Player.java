@@ -0,0 +1,1090 @@
+package com.teamgamma.musicmanagementsystem.musicplayer;
+
+import com.teamgamma.musicmanagementsystem.codec.AudioCodec;
+import com.teamgamma.musicmanagementsystem.codec.CodecRegistry;
+import com.teamgamma.musicmanagementsystem.codec.PcmDecoder;
+import com.teamgamma.musicmanagementsystem.model.Song;
+
+import javafx.application.Platform;
+import javafx.util.Duration;
+import javafx.util.Pair;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Class to implement a music player that decodes ahead of what is being heard.
+ *
+ * A decoder thread decodes the song with the PcmDecoder of its codec (see CodecRegistry) into a PcmRingBuffer, and a
+ * playback worker thread copies the samples from the ring buffer to the sound card. Slow reads (e.g. from a network
+ * share) only drain the buffer instead of being heard as a gap, as long as they are shorter than the buffer depth.
+ * The depth can be set with -Dgamma.player.bufferMilliseconds.
+ *
+ * Both threads are started once and live as long as the player. The public functions only open the song file, so
+ * errors are reported right away, and send a command (play, pause, resume, stop) to the worker. The worker owns the
+ * line and keeps it open across songs, it is only opened again when the sample rate or channel count changes.
+ *
+ * When a song is near its end the next song from the manager is opened and decoded behind it in the same buffer, so
+ * songs with the same format follow each other without a gap. With -Dgamma.player.crossfadeMilliseconds the next song
+ * is decoded into a second ring buffer instead, while the end of the current one is still in the first, and the
+ * worker mixes the two over that time with the curve set by -Dgamma.player.crossfadeCurve (linear, equal_power or
+ * s_curve). The curve is a fixed point table made once, so mixing does not allocate or call any math functions.
+ *
+ * Seeking opens the decoder again at the seek time. The codec of the song is asked to get ready for seeking in the
+ * background when the song starts playing, so an MP3 can jump to the frame from its Mp3FrameIndex.
+ *
+ * The playback time is a clock kept by the worker from the samples it wrote, less the ones still queued in the line,
+ * so it stays exact across pause, seek and song changes and reading it is a single volatile read.
+ *
+ * The volume and the ReplayGain of the song are applied by the worker as it copies the samples to the line, so a
+ * volume change is heard after the line buffer and not after the whole ring buffer, and the system mixer is not
+ * changed.
+ *
+ * The worker writes to a SourceDataLine directly instead of a JLayer AudioDevice, since the AudioDevice cannot be
+ * paused without losing the samples it holds.
+ */
+public class BufferedMP3Player implements IMusicPlayer {
+    private static final String BUFFER_DEPTH_PROPERTY = "gamma.player.bufferMilliseconds";
+    private static final int DEFAULT_BUFFER_DEPTH_IN_MILLISECONDS = 2000;
+    private static final String CROSSFADE_PROPERTY = "gamma.player.crossfadeMilliseconds";
+    private static final String CROSSFADE_CURVE_PROPERTY = "gamma.player.crossfadeCurve";
+    private static final int FADE_CURVE_STEPS = 1024;
+    private static final int MAX_SAMPLE_RATE = 48000;
+    private static final int MAX_CHANNELS = 2;
+    private static final int BYTES_PER_SAMPLE = 2;
+    private static final int OUTPUT_CHUNK_IN_SAMPLES = 4608;
+    private static final int LINE_BUFFER_IN_MILLISECONDS = 200;
+    private static final long WAIT_IN_NANOSECONDS = 2000000;
+    private static final long WAIT_FOR_NEXT_SONG_IN_MILLISECONDS = 50;
+    private static final long MICROSECONDS_IN_MILLISECOND = 1000;
+    private static final double MICROSECONDS_IN_SECOND = 1000000.0;
+    // The gain is applied as a fixed point number with 12 fraction bits, so a full scale sample times the largest gain
+    // still fits in an int.
+    private static final int GAIN_FRACTION_BITS = 12;
+    private static final int UNITY_GAIN = 1 << GAIN_FRACTION_BITS;
+    private static final float MAX_GAIN = 4.0f;
+
+    // Gets the songs ready for seeking in the background so they do not take CPU or disk time from the playback threads.
+    private static final ExecutorService INDEXER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread indexerThread = new Thread(runnable, "player-indexer");
+        indexerThread.setDaemon(true);
+        indexerThread.setPriority(Thread.MIN_PRIORITY);
+        return indexerThread;
+    });
+
+    private final MusicPlayerManager m_manager;
+
+    // Two buffers so the next song can be decoded while the end of the current one is mixed into it.
+    private final PcmRingBuffer[] m_ringBuffers;
+
+    private final int m_bufferDepthInMilliseconds;
+
+    private final int m_crossfadeInMilliseconds;
+
+    // The fade in gain at every step of the crossfade, in fixed point. The fade out gain is the same table backwards.
+    private final int[] m_fadeCurve;
+
+    private final BlockingQueue<PlayerCommand> m_commands;
+
+    private final Thread m_workerThread;
+
+    private final Thread m_decoderThread;
+
+    private volatile Song m_currentSong;
+
+    private volatile int m_playbackId = 0;
+
+    private volatile boolean m_isPaused = false;
+
+    private volatile boolean m_isPlaying = false;
+
+    private volatile boolean m_isReady = false;
+
+    private volatile Song m_transitionedSong;
+
+    // The playback clock, written by the worker and read by the JavaFX thread.
+    private volatile long m_playbackTimeInMicroseconds = 0;
+
+    // Read by the decoder to check if the next song has the same format.
+    private volatile AudioFormat m_format;
+
+    // Written by the JavaFX thread and read by the worker for every chunk.
+    private volatile float m_volume = (float) MusicPlayerConstants.MAX_VOLUME;
+
+    // Only used by the worker thread.
+    private SourceDataLine m_line;
+
+    private long m_trackStartFrame = 0;
+
+    private long m_startTimeInMicroseconds = 0;
+
+    private boolean m_isTrackLoaded = false;
+
+    private boolean m_isOutputPaused = false;
+
+    private int m_loadedPlaybackId = 0;
+
+    private long m_framesWritten = 0;
+
+    private float m_trackGain = 1.0f;
+
+    private float m_fadeOutGain = 1.0f;
+
+    private TrackBoundary m_fadeBoundary;
+
+    private int m_fadeLengthInSamples = 0;
+
+    private boolean m_isFading = false;
+
+    // Written by the worker, read by the decoder when it takes a job.
+    private volatile PcmRingBuffer m_playingRing;
+
+    // Hand-over between the worker and the decoder thread.
+    private final AtomicReference<OpenedTrack> m_decoderJob;
+
+    private final Queue<TrackBoundary> m_trackBoundaries;
+
+    private volatile int m_decoderGeneration = 0;
+
+    private volatile int m_decoderIdleGeneration = 0;
+
+    private volatile boolean m_isDecoderFinished = true;
+
+    private final AtomicLong m_underrunCount;
+
+    private final AtomicLong m_framesDecoded;
+
+    private final AtomicLong m_preloadCount;
+
+    /**
+     * Constructor
+     *
+     * @param manager
+     */
+    public BufferedMP3Player(MusicPlayerManager manager) {
+        m_manager = manager;
+        m_bufferDepthInMilliseconds = Integer.getInteger(BUFFER_DEPTH_PROPERTY, DEFAULT_BUFFER_DEPTH_IN_MILLISECONDS);
+        m_crossfadeInMilliseconds = Math.max(0, Integer.getInteger(CROSSFADE_PROPERTY, 0));
+        m_fadeCurve = FadeCurve.fromProperty(System.getProperty(CROSSFADE_CURVE_PROPERTY))
+                .createTable(FADE_CURVE_STEPS, UNITY_GAIN);
+
+        // Each buffer also holds the whole fade, so the end of a song is decoded before its fade starts.
+        int ringCapacity = (int) ((long) (m_bufferDepthInMilliseconds + m_crossfadeInMilliseconds) *
+                MAX_SAMPLE_RATE * MAX_CHANNELS / MusicPlayerConstants.NUMBER_OF_MILISECONDS_IN_SECOND);
+        m_ringBuffers = new PcmRingBuffer[]{new PcmRingBuffer(ringCapacity), new PcmRingBuffer(ringCapacity)};
+        m_playingRing = m_ringBuffers[0];
+        m_commands = new LinkedBlockingQueue<>();
+        m_decoderJob = new AtomicReference<>();
+        m_trackBoundaries = new ConcurrentLinkedQueue<>();
+        m_underrunCount = new AtomicLong();
+        m_framesDecoded = new AtomicLong();
+        m_preloadCount = new AtomicLong();
+
+        m_workerThread = new Thread(this::workerRoutine, "player-worker");
+        m_decoderThread = new Thread(this::decoderRoutine, "player-decoder");
+        m_workerThread.setDaemon(true);
+        m_decoderThread.setDaemon(true);
+        m_workerThread.setPriority(Thread.MAX_PRIORITY);
+        m_decoderThread.setPriority(Thread.MAX_PRIORITY);
+        m_workerThread.start();
+        m_decoderThread.start();
+    }
+
+    @Override
+    public void playSong(Song songToPlay) {
+        if (songToPlay != null && songToPlay == m_transitionedSong) {
+            // Already playing, the worker went on to it without a gap.
+            m_transitionedSong = null;
+            m_currentSong = songToPlay;
+            requestSeeking(songToPlay);
+            m_manager.notifyNewSongObservers();
+            m_manager.notifyPlaybackObservers();
+            return;
+        }
+
+        m_isPaused = false;
+        if (!startPlayback(songToPlay, 0)) {
+            return;
+        }
+
+        // Only upon success save the song
+        m_currentSong = songToPlay;
+        requestSeeking(songToPlay);
+        m_manager.notifyNewSongObservers();
+        m_manager.notifyPlaybackObservers();
+        m_manager.notifyChangeStateObservers();
+    }
+
+    /**
+     * Helper function to open the song at the start time and tell the worker to play it.
+     *
+     * @param songToPlay                The song to play.
+     * @param startTimeInMilliseconds   The time in the song to start playing from.
+     * @return True if the song could be opened, false if the error was reported to the manager.
+     */
+    private boolean startPlayback(Song songToPlay, long startTimeInMilliseconds) {
+        OpenedTrack track;
+        try {
+            track = openTrack(songToPlay, startTimeInMilliseconds, m_manager.getPlaybackGain(songToPlay));
+        } catch (IOException e) {
+            e.printStackTrace();
+            m_isReady = false;
+            m_isPlaying = false;
+            m_manager.setError(e);
+            m_manager.notifyError();
+            return false;
+        }
+
+        m_transitionedSong = null;
+        m_isReady = true;
+        m_isPlaying = !m_isPaused;
+        m_commands.add(new PlayerCommand(PlayerCommand.Type.PLAY, track, ++m_playbackId, m_isPaused));
+        return true;
+    }
+
+    /**
+     * Helper function to open a song with the decoder of its codec.
+     *
+     * @param song                      The song to open.
+     * @param startTimeInMilliseconds   The time in the song to start decoding from.
+     * @param gain                      The ReplayGain scale of the song.
+     * @return The opened song, ready to be decoded.
+     */
+    private static OpenedTrack openTrack(Song song, long startTimeInMilliseconds, float gain) throws IOException {
+        AudioCodec codec = CodecRegistry.detect(song.getFile());
+        if (codec == null) {
+            throw new IOException("Cannot play " + song.getFile().getName() + ": unknown audio format");
+        }
+        if (!codec.canDecode()) {
+            throw new IOException("Cannot play " + song.getFile().getName() + ": " + codec.getName() +
+                    " files can not be decoded");
+        }
+
+        PcmDecoder decoder = codec.openDecoder(song.getFile(), startTimeInMilliseconds);
+        return new OpenedTrack(song, decoder, decoder.getFormat(), decoder.getStartTimeInMilliseconds(), gain);
+    }
+
+    /**
+     * The main routine of the playback worker. Runs the commands it is sent and, while a song is loaded and not
+     * paused, copies samples from the ring buffer to the line. When the decoder already queued the next song, the
+     * switch (or the start of the crossfade) happens on the exact sample where it is due.
+     */
+    private void workerRoutine() {
+        short[] samples = new short[OUTPUT_CHUNK_IN_SAMPLES];
+        short[] incomingSamples = new short[OUTPUT_CHUNK_IN_SAMPLES];
+        byte[] bytes = new byte[OUTPUT_CHUNK_IN_SAMPLES * BYTES_PER_SAMPLE];
+        boolean hasStarted = false;
+        boolean isStarved = false;
+
+        try {
+            while (true) {
+                boolean isOutputting = m_isTrackLoaded && !m_isOutputPaused;
+                PlayerCommand command = isOutputting ? m_commands.poll() : m_commands.take();
+                if (command != null) {
+                    runCommand(command);
+                    hasStarted = false;
+                    isStarved = false;
+                    continue;
+                }
+
+                // Check the decoder before the buffer so the last samples are not missed.
+                boolean isDecoderFinished = m_isDecoderFinished;
+                boolean isMixed = false;
+                int count;
+                TrackBoundary boundary = m_trackBoundaries.peek();
+                if (boundary == null) {
+                    count = m_playingRing.read(samples, 0, samples.length);
+                } else {
+                    long samplesToBoundary = boundary.m_position - m_playingRing.getReadPosition();
+                    if (samplesToBoundary <= 0) {
+                        switchToNextTrack(boundary);
+                        continue;
+                    }
+
+                    // Never read past the start of the fade or of the next song, so it starts on the exact sample.
+                    int fadeLength = getFadeLength(boundary, samplesToBoundary);
+                    if (samplesToBoundary > fadeLength) {
+                        count = m_playingRing.read(samples, 0,
+                                                   (int) Math.min(samples.length, samplesToBoundary - fadeLength));
+                    } else {
+                        if (!m_isFading) {
+                            m_isFading = true;
+                            m_fadeOutGain = m_trackGain;
+                            startNextTrack(boundary);
+                        }
+                        count = readCrossfade(boundary, samplesToBoundary, samples, incomingSamples);
+                        isMixed = true;
+                    }
+                }
+
+                if (count == 0) {
+                    if (isDecoderFinished && m_trackBoundaries.isEmpty()) {
+                        finishTrack();
+                        continue;
+                    }
+                    if (hasStarted && !isStarved) {
+                        isStarved = true;
+                        m_underrunCount.incrementAndGet();
+                    }
+                    // The line keeps playing what it has while the buffer is empty.
+                    updatePlaybackClock();
+                    command = m_commands.poll(WAIT_IN_NANOSECONDS, TimeUnit.NANOSECONDS);
+                    if (command != null) {
+                        runCommand(command);
+                        hasStarted = false;
+                        isStarved = false;
+                    }
+                    continue;
+                }
+                hasStarted = true;
+                isStarved = false;
+
+                // Mixed samples already have the volume and gains applied.
+                writeToLine(samples, count, bytes, isMixed ? UNITY_GAIN : toFixedPointGain(m_volume * m_trackGain));
+                updatePlaybackClock();
+            }
+        } catch (InterruptedException e) {
+            // The player is only interrupted when the application exits.
+        }
+    }
+
+    /**
+     * Helper function for the worker to scale samples and write them to the line.
+     *
+     * @param samples   The samples to write.
+     * @param count     The number of samples to write.
+     * @param bytes     The array to convert the samples into, at least twice as long as the count.
+     * @param gain      The gain to scale the samples with, in fixed point.
+     */
+    private void writeToLine(short[] samples, int count, byte[] bytes, int gain) {
+        for (int i = 0; i < count; i++) {
+            int sample = samples[i];
+            if (gain != UNITY_GAIN) {
+                sample = clampSample((sample * gain) >> GAIN_FRACTION_BITS);
+            }
+            bytes[i * BYTES_PER_SAMPLE] = (byte) sample;
+            bytes[i * BYTES_PER_SAMPLE + 1] = (byte) (sample >> 8);
+        }
+        m_line.write(bytes, 0, count * BYTES_PER_SAMPLE);
+        m_framesWritten += count / m_format.getChannels();
+    }
+
+    /**
+     * Helper function for the worker to get how many samples before the end of the current song the fade into the
+     * next song starts. Set the first time the worker sees the boundary: the crossfade time, or all that is left of
+     * the song if it is shorter.
+     *
+     * @param boundary          The end of the current song.
+     * @param samplesToBoundary The number of samples left in the current song.
+     * @return The length of the fade in samples, 0 if the songs follow each other without a fade.
+     */
+    private int getFadeLength(TrackBoundary boundary, long samplesToBoundary) {
+        if (boundary.m_ring == m_playingRing) {
+            return 0;
+        }
+        if (boundary != m_fadeBoundary) {
+            int channels = m_format.getChannels();
+            long crossfadeInSamples = (long) m_crossfadeInMilliseconds * (int) m_format.getFrameRate() /
+                    MusicPlayerConstants.NUMBER_OF_MILISECONDS_IN_SECOND * channels;
+            // Whole frames, so both songs are mixed channel to channel.
+            m_fadeLengthInSamples = (int) (Math.min(crossfadeInSamples, samplesToBoundary) / channels * channels);
+            m_fadeBoundary = boundary;
+        }
+        return m_fadeLengthInSamples;
+    }
+
+    /**
+     * Helper function for the worker to read from both songs during the crossfade and mix them. The incoming song is
+     * only read as far as it is decoded, so both stay on the same sample.
+     *
+     * @param boundary          The end of the current song and the start of the next one.
+     * @param samplesToBoundary The number of samples left in the current song.
+     * @param outgoingSamples   The array to read the current song into, holds the mixed samples afterwards.
+     * @param incomingSamples   The array to read the next song into.
+     * @return The number of mixed samples, 0 if the next song is not decoded far enough yet.
+     */
+    private int readCrossfade(TrackBoundary boundary, long samplesToBoundary, short[] outgoingSamples,
+                              short[] incomingSamples) {
+        // Check the decoder before the buffer so the last samples are not missed.
+        boolean isIncomingDecoded = boundary.m_isDecoded;
+        int count = (int) Math.min(outgoingSamples.length, samplesToBoundary);
+        if (!isIncomingDecoded) {
+            count = Math.min(count, boundary.m_ring.getAvailable());
+        }
+        count = m_playingRing.read(outgoingSamples, 0, count);
+        int incomingCount = boundary.m_ring.read(incomingSamples, 0, count);
+        // A next song shorter than the fade is followed by silence.
+        Arrays.fill(incomingSamples, incomingCount, count, (short) 0);
+
+        int channels = m_format.getChannels();
+        int fadeLengthInFrames = Math.max(1, m_fadeLengthInSamples / channels);
+        long fadePosition = m_fadeLengthInSamples - samplesToBoundary;
+        int outgoingGain = toFixedPointGain(m_volume * m_fadeOutGain);
+        int incomingGain = toFixedPointGain(m_volume * m_trackGain);
+        for (int i = 0; i < count; i++) {
+            int step = (int) ((fadePosition + i) / channels * FADE_CURVE_STEPS / fadeLengthInFrames);
+            int outgoing = ((outgoingSamples[i] * outgoingGain) >> GAIN_FRACTION_BITS) *
+                    m_fadeCurve[FADE_CURVE_STEPS - step];
+            int incoming = ((incomingSamples[i] * incomingGain) >> GAIN_FRACTION_BITS) * m_fadeCurve[step];
+            outgoingSamples[i] = (short) clampSample((outgoing + incoming) >> GAIN_FRACTION_BITS);
+        }
+        return count;
+    }
+
+    /**
+     * Helper function for the worker when the last sample of the current song was read. Goes on to the buffer of the
+     * next song, and starts it if it was not started by a crossfade.
+     *
+     * @param boundary The end of the current song and the start of the next one.
+     */
+    private void switchToNextTrack(TrackBoundary boundary) {
+        m_trackBoundaries.poll();
+        if (m_isFading) {
+            m_isFading = false;
+        } else {
+            startNextTrack(boundary);
+        }
+        m_playingRing = boundary.m_ring;
+    }
+
+    /**
+     * Helper function to turn a gain into the fixed point number the samples are multiplied with.
+     *
+     * @param gain The linear gain.
+     * @return The gain in fixed point, limited to the largest gain.
+     */
+    private static int toFixedPointGain(float gain) {
+        return (int) (Math.min(gain, MAX_GAIN) * UNITY_GAIN);
+    }
+
+    /**
+     * Helper function to limit a sample to the 16 bit range.
+     *
+     * @param sample The sample.
+     * @return The sample, clipped if it is too loud.
+     */
+    private static int clampSample(int sample) {
+        return Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sample));
+    }
+
+    /**
+     * Helper function for the worker to run a command.
+     *
+     * @param command The command to run.
+     */
+    private void runCommand(PlayerCommand command) {
+        switch (command.m_type) {
+            case PLAY:
+                loadTrack(command);
+                break;
+            case PAUSE:
+                m_isOutputPaused = true;
+                if (m_line != null) {
+                    m_line.stop();
+                }
+                break;
+            case RESUME:
+                m_isOutputPaused = false;
+                if (m_isTrackLoaded) {
+                    m_line.start();
+                }
+                break;
+            case STOP:
+                unloadTrack();
+                break;
+        }
+    }
+
+    /**
+     * Helper function for the worker to drop what is playing and start the song of a play command.
+     *
+     * @param command The play command.
+     */
+    private void loadTrack(PlayerCommand command) {
+        unloadTrack();
+        OpenedTrack track = command.m_track;
+        try {
+            openLine(track.m_format);
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            closeDecoder(track.m_decoder);
+            reportError(e, command.m_playbackId);
+            return;
+        }
+
+        m_format = track.m_format;
+        m_trackGain = track.m_gain;
+        m_framesWritten = 0;
+        m_trackStartFrame = 0;
+        m_startTimeInMicroseconds = track.m_startTimeInMilliseconds * MICROSECONDS_IN_MILLISECOND;
+        m_playbackTimeInMicroseconds = m_startTimeInMicroseconds;
+        m_loadedPlaybackId = command.m_playbackId;
+        m_isOutputPaused = command.m_isPaused;
+        m_isTrackLoaded = true;
+
+        m_isDecoderFinished = false;
+        m_decoderJob.set(track);
+        LockSupport.unpark(m_decoderThread);
+
+        if (!m_isOutputPaused) {
+            m_line.start();
+        }
+    }
+
+    /**
+     * Helper function for the worker to move the playback clock to the sample being heard: the samples written for
+     * the current song, less the ones still waiting in the line.
+     */
+    private void updatePlaybackClock() {
+        long queuedFrames = (m_line.getBufferSize() - m_line.available()) / m_format.getFrameSize();
+        // The frames before the start of the current song belong to the previous one.
+        long playedFrames = Math.max(0, m_framesWritten - m_trackStartFrame - queuedFrames);
+        m_playbackTimeInMicroseconds = m_startTimeInMicroseconds +
+                (long) (playedFrames * MICROSECONDS_IN_SECOND / m_format.getFrameRate());
+    }
+
+    /**
+     * Helper function for the worker to stop the decoder and throw away everything that was not heard yet. The line
+     * stays open for the next song.
+     */
+    private void unloadTrack() {
+        stopDecoder();
+        for (PcmRingBuffer ringBuffer : m_ringBuffers) {
+            ringBuffer.clear();
+        }
+        m_trackBoundaries.clear();
+        m_fadeBoundary = null;
+        m_isFading = false;
+        if (m_line != null) {
+            m_line.stop();
+            m_line.flush();
+        }
+        m_isTrackLoaded = false;
+    }
+
+    /**
+     * Helper function for the worker to open the line for a format, or keep the open one if it already has the format.
+     *
+     * @param format The format of the samples to play.
+     */
+    private void openLine(AudioFormat format) throws LineUnavailableException {
+        if (m_line != null && m_line.getFormat().matches(format)) {
+            return;
+        }
+        if (m_line != null) {
+            m_line.close();
+            m_line = null;
+        }
+
+        SourceDataLine line = AudioSystem.getSourceDataLine(format);
+        line.open(format, (int) (format.getFrameRate() * format.getFrameSize() *
+                LINE_BUFFER_IN_MILLISECONDS / MusicPlayerConstants.NUMBER_OF_MILISECONDS_IN_SECOND));
+        m_line = line;
+    }
+
+    /**
+     * Helper function for the worker when the last sample of the last decoded song was written. Waits for it to be
+     * heard and moves on to the next song.
+     */
+    private void finishTrack() {
+        m_line.drain();
+        updatePlaybackClock();
+        m_isTrackLoaded = false;
+
+        int playbackId = m_loadedPlaybackId;
+        Platform.runLater(() -> {
+            // Ignore if the user started something else while the song was finishing.
+            if (playbackId == m_playbackId) {
+                m_isPlaying = false;
+                m_manager.notifyChangeStateObservers();
+                m_manager.playNextSong();
+            }
+        });
+    }
+
+    /**
+     * Helper function for the worker when it reaches the first sample of a pre-loaded song. Restarts the playback time
+     * from there and lets the manager move on to the song without restarting the player.
+     *
+     * @param boundary The start of the song.
+     */
+    private void startNextTrack(TrackBoundary boundary) {
+        Song song = boundary.m_song;
+        m_trackGain = boundary.m_gain;
+        m_trackStartFrame = m_framesWritten;
+        m_startTimeInMicroseconds = 0;
+        m_transitionedSong = song;
+
+        int playbackId = m_loadedPlaybackId;
+        Platform.runLater(() -> {
+            // Ignore if the user started something else in the mean time.
+            if (playbackId == m_playbackId) {
+                m_manager.advanceToPreloadedSong(song);
+            }
+        });
+    }
+
+    /**
+     * Helper function for the worker to report an error to the manager on the JavaFX thread.
+     *
+     * @param e             The error.
+     * @param playbackId    The playback the error is for.
+     */
+    private void reportError(Exception e, int playbackId) {
+        e.printStackTrace();
+        Platform.runLater(() -> {
+            if (playbackId == m_playbackId) {
+                m_isReady = false;
+                m_isPlaying = false;
+                m_manager.setError(e);
+                m_manager.notifyError();
+            }
+        });
+    }
+
+    /**
+     * Helper function for the worker to stop the decoder and wait until it no longer writes to the ring buffer. Only
+     * takes as long as the decoder needs to finish the chunk it is on.
+     */
+    private void stopDecoder() {
+        int generation = ++m_decoderGeneration;
+        OpenedTrack pendingTrack = m_decoderJob.getAndSet(null);
+        if (pendingTrack != null) {
+            closeDecoder(pendingTrack.m_decoder);
+        }
+        LockSupport.unpark(m_decoderThread);
+        while (m_decoderIdleGeneration != generation) {
+            LockSupport.parkNanos(WAIT_IN_NANOSECONDS);
+        }
+    }
+
+    /**
+     * The main routine of the decoder thread. Waits for the worker to hand it a song, then decodes it into the
+     * ring buffer, waiting whenever the buffer is full. At the end of a song the next song is opened right away and
+     * decoded into the same buffer behind it, so the worker can go from one song to the next without a gap.
+     */
+    private void decoderRoutine() {
+        short[] samples = new short[OUTPUT_CHUNK_IN_SAMPLES];
+        while (true) {
+            int generation = m_decoderGeneration;
+            OpenedTrack track = m_decoderJob.getAndSet(null);
+            if (track == null) {
+                // Tell the worker nothing is being written any more.
+                m_decoderIdleGeneration = generation;
+                LockSupport.park(this);
+                continue;
+            }
+
+            PcmRingBuffer ringBuffer = m_playingRing;
+            TrackBoundary boundary = null;
+            try {
+                while (track != null && generation == m_decoderGeneration) {
+                    decodeTrack(track, ringBuffer, samples, generation);
+                    track = null;
+                    if (boundary != null) {
+                        // Lets the worker finish a fade into a song that is shorter than the fade.
+                        boundary.m_isDecoded = true;
+                    }
+                    if (generation != m_decoderGeneration) {
+                        break;
+                    }
+
+                    track = openNextTrack(generation);
+                    if (track != null) {
+                        long endPosition = ringBuffer.getWritePosition();
+                        if (m_crossfadeInMilliseconds > 0) {
+                            // The other buffer is free once the worker finished the previous fade.
+                            waitForTrackBoundaries(generation);
+                            if (generation != m_decoderGeneration) {
+                                break;
+                            }
+                            ringBuffer = (ringBuffer == m_ringBuffers[0]) ? m_ringBuffers[1] : m_ringBuffers[0];
+                        }
+                        // The worker switches songs, or starts the fade, when it reaches this sample.
+                        boundary = new TrackBoundary(endPosition, ringBuffer, track.m_song, track.m_gain);
+                        m_trackBoundaries.add(boundary);
+                    }
+                }
+            } finally {
+                if (track != null) {
+                    closeDecoder(track.m_decoder);
+                }
+            }
+            if (generation == m_decoderGeneration) {
+                m_isDecoderFinished = true;
+            }
+        }
+    }
+
+    /**
+     * Helper function for the decoder to wait until the worker went past every song boundary that was queued.
+     *
+     * @param generation The decoder generation, gives up when it changes.
+     */
+    private void waitForTrackBoundaries(int generation) {
+        while (!m_trackBoundaries.isEmpty() && generation == m_decoderGeneration) {
+            LockSupport.parkNanos(WAIT_IN_NANOSECONDS);
+        }
+    }
+
+    /**
+     * Helper function to decode all of a song into a ring buffer and close it.
+     *
+     * @param track         The song to decode.
+     * @param ringBuffer    The ring buffer to decode into.
+     * @param samples       The array to decode each chunk into.
+     * @param generation    The decoder generation, decoding stops when it changes.
+     */
+    private void decodeTrack(OpenedTrack track, PcmRingBuffer ringBuffer, short[] samples, int generation) {
+        PcmDecoder decoder = track.m_decoder;
+        int channels = track.m_format.getChannels();
+        try {
+            while (generation == m_decoderGeneration) {
+                int count = decoder.read(samples, 0, samples.length);
+                if (count < 0) {
+                    break;
+                }
+                writeToRingBuffer(ringBuffer, samples, count, generation);
+                m_framesDecoded.addAndGet(count / channels);
+            }
+        } catch (IOException e) {
+            // A read error ends the song early, the same as a broken frame.
+            if (generation == m_decoderGeneration) {
+                e.printStackTrace();
+            }
+        } finally {
+            closeDecoder(decoder);
+        }
+    }
+
+    /**
+     * Helper function to find out what the manager will play next and open it, so it can be decoded while the end of
+     * the current song is still in the buffer.
+     *
+     * @param generation The decoder generation, gives up when it changes.
+     * @return The opened next song, or null if there is none or it cannot be played on the same line without a gap.
+     */
+    private OpenedTrack openNextTrack(int generation) {
+        Pair<Song, Float> nextSong = getNextSongFromManager(generation);
+        if (nextSong == null) {
+            return null;
+        }
+
+        OpenedTrack track;
+        try {
+            track = openTrack(nextSong.getKey(), 0, nextSong.getValue());
+        } catch (IOException e) {
+            // Let the manager deal with it when it moves on to the song the usual way.
+            return null;
+        }
+        if (!track.m_format.matches(m_format)) {
+            // A different sample rate or channel count needs the line to be opened again.
+            closeDecoder(track.m_decoder);
+            return null;
+        }
+        m_preloadCount.incrementAndGet();
+        return track;
+    }
+
+    /**
+     * Helper function to let the codec of the song get ready for seeking in the background, so seeking in the song
+     * does not have to decode it from the start.
+     *
+     * @param song The song that is playing.
+     */
+    private void requestSeeking(Song song) {
+        INDEXER.submit(() -> {
+            AudioCodec codec = CodecRegistry.detect(song.getFile());
+            if (codec == null) {
+                return;
+            }
+            try {
+                codec.prepareSeeking(song.getFile());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Helper function to ask the manager for the next song and its ReplayGain scale on the JavaFX thread, where the
+     * manager is updated.
+     *
+     * @param generation The decoder generation, gives up when it changes.
+     * @return The next song and its gain, or null if there is none or playback was stopped while waiting.
+     */
+    private Pair<Song, Float> getNextSongFromManager(int generation) {
+        FutureTask<Pair<Song, Float>> nextSongTask = new FutureTask<>(() -> {
+            Song nextSong = m_manager.getNextSong();
+            return (nextSong == null) ? null : new Pair<>(nextSong, m_manager.getPlaybackGain(nextSong));
+        });
+        Platform.runLater(nextSongTask);
+
+        // Do not wait forever, the JavaFX thread may be waiting for a command that stops this song.
+        while (generation == m_decoderGeneration) {
+            try {
+                return nextSongTask.get(WAIT_FOR_NEXT_SONG_IN_MILLISECONDS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Check if we were stopped and keep waiting.
+            } catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Helper function to close a decoder, ignoring errors.
+     *
+     * @param decoder The decoder to close.
+     */
+    private static void closeDecoder(PcmDecoder decoder) {
+        try {
+            decoder.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Helper function to copy all the samples into a ring buffer, waiting for the worker to make room.
+     *
+     * @param ringBuffer    The ring buffer to copy into.
+     * @param samples       The samples to copy.
+     * @param length        The number of samples to copy.
+     * @param generation    The decoder generation, gives up when it changes.
+     */
+    private void writeToRingBuffer(PcmRingBuffer ringBuffer, short[] samples, int length, int generation) {
+        int written = 0;
+        while (written < length && generation == m_decoderGeneration) {
+            int count = ringBuffer.write(samples, written, length - written);
+            if (count == 0) {
+                LockSupport.parkNanos(WAIT_IN_NANOSECONDS);
+            }
+            written += count;
+        }
+    }
+
+    @Override
+    public void pauseSong() {
+        m_isPaused = true;
+        m_isPlaying = false;
+        m_commands.add(new PlayerCommand(PlayerCommand.Type.PAUSE, null, m_playbackId, true));
+    }
+
+    @Override
+    public void resumeSong() {
+        if (!m_isReady) {
+            return;
+        }
+        m_isPaused = false;
+        m_isPlaying = true;
+        m_commands.add(new PlayerCommand(PlayerCommand.Type.RESUME, null, m_playbackId, false));
+        m_manager.notifyPlaybackObservers();
+    }
+
+    @Override
+    public boolean isPlayingSong() {
+        return m_isPlaying;
+    }
+
+    @Override
+    public boolean isReadyToUse() {
+        return m_isReady;
+    }
+
+    @Override
+    public void stopSong() {
+        m_isPlaying = false;
+        m_isReady = false;
+        m_transitionedSong = null;
+        m_commands.add(new PlayerCommand(PlayerCommand.Type.STOP, null, ++m_playbackId, false));
+        System.out.println("**** Player stats: frames decoded " + m_framesDecoded + ", underruns " + m_underrunCount +
+                ", gapless transitions " + m_preloadCount);
+    }
+
+    @Override
+    public void setVolume(double volumeLevel) {
+        m_volume = (float) volumeLevel;
+    }
+
+    @Override
+    public Duration getCurrentPlayTime() {
+        return new Duration((double) m_playbackTimeInMicroseconds / MICROSECONDS_IN_MILLISECOND);
+    }
+
+    @Override
+    public void seekToTime(double percent) {
+        if (m_currentSong == null) {
+            return;
+        }
+        long seekTimeInMilliseconds = Math.round(percent * m_currentSong.getM_length() *
+                MusicPlayerConstants.NUMBER_OF_MILISECONDS_IN_SECOND);
+
+        if (startPlayback(m_currentSong, seekTimeInMilliseconds)) {
+            m_manager.notifyPlaybackObservers();
+        }
+    }
+
+    /**********
+     * Getters for the player statistics
+     *************/
+
+    public int getBufferDepthInMilliseconds() {
+        return m_bufferDepthInMilliseconds;
+    }
+
+    public int getCrossfadeInMilliseconds() {
+        return m_crossfadeInMilliseconds;
+    }
+
+    public long getUnderrunCount() {
+        return m_underrunCount.get();
+    }
+
+    public long getFramesDecoded() {
+        return m_framesDecoded.get();
+    }
+
+    public long getPreloadCount() {
+        return m_preloadCount.get();
+    }
+
+    public int getBufferedSamples() {
+        return m_playingRing.getAvailable();
+    }
+
+    /**
+     * A command for the playback worker.
+     */
+    private static class PlayerCommand {
+        private enum Type {
+            PLAY, PAUSE, RESUME, STOP
+        }
+
+        private final Type m_type;
+        private final OpenedTrack m_track;
+        private final int m_playbackId;
+        private final boolean m_isPaused;
+
+        PlayerCommand(Type type, OpenedTrack track, int playbackId, boolean isPaused) {
+            m_type = type;
+            m_track = track;
+            m_playbackId = playbackId;
+            m_isPaused = isPaused;
+        }
+    }
+
+    /**
+     * A song that is opened and positioned on the first sample to decode.
+     */
+    private static class OpenedTrack {
+        private final Song m_song;
+        private final PcmDecoder m_decoder;
+        private final AudioFormat m_format;
+        private final long m_startTimeInMilliseconds;
+        private final float m_gain;
+
+        OpenedTrack(Song song, PcmDecoder decoder, AudioFormat format, long startTimeInMilliseconds, float gain) {
+            m_song = song;
+            m_decoder = decoder;
+            m_format = format;
+            m_startTimeInMilliseconds = startTimeInMilliseconds;
+            m_gain = gain;
+        }
+    }
+
+    /**
+     * The position in the ring buffer where the current song ends, and the ring buffer the next song is decoded into:
+     * the same one when the songs follow each other without a gap, the other one when they are crossfaded.
+     */
+    private static class TrackBoundary {
+        private final long m_position;
+        private final PcmRingBuffer m_ring;
+        private final Song m_song;
+        private final float m_gain;
+        private volatile boolean m_isDecoded = false;
+
+        TrackBoundary(long position, PcmRingBuffer ring, Song song, float gain) {
+            m_position = position;
+            m_ring = ring;
+            m_song = song;
+            m_gain = gain;
+        }
+    }
+
+    /**
+     * The shapes of the crossfade. Each fades in with a curve whose reverse is used to fade out.
+     */
+    private enum FadeCurve {
+        LINEAR, EQUAL_POWER, S_CURVE;
+
+        /**
+         * Function to get the curve named by the crossfade curve property.
+         *
+         * @param name The name of the curve, can be null.
+         * @return The curve, equal power if the name is not given or not known.
+         */
+        static FadeCurve fromProperty(String name) {
+            if (name == null) {
+                return EQUAL_POWER;
+            }
+            try {
+                return valueOf(name.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.out.println("**** Unknown crossfade curve " + name + ", using equal power");
+                return EQUAL_POWER;
+            }
+        }
+
+        /**
+         * Function to get the fade in gain part way through the fade.
+         *
+         * @param progress How far through the fade, from 0 to 1.
+         * @return The gain, from 0 to 1.
+         */
+        double getFadeInGain(double progress) {
+            switch (this) {
+                case LINEAR:
+                    return progress;
+                case S_CURVE:
+                    return (1 - Math.cos(Math.PI * progress)) / 2;
+                default:
+                    // Keeps the power constant for songs that are not correlated.
+                    return Math.sin(Math.PI / 2 * progress);
+            }
+        }
+
+        /**
+         * Function to make the fixed point table of the fade in gain.
+         *
+         * @param steps The number of steps, the table has one more entry for the end.
+         * @param unity The fixed point value of a gain of 1.
+         * @return The table.
+         */
+        int[] createTable(int steps, int unity) {
+            int[] table = new int[steps + 1];
+            for (int step = 0; step <= steps; step++) {
+                table[step] = (int) Math.round(getFadeInGain((double) step / steps) * unity);
+            }
+            return table;
+        }
+    }
+}
@@ -53,4 +53,11 @@ public interface IMusicPlayer {
      * @param The percent of the song you want to seek to
      */
     void seekToTime(double percent);
+
+    /**
+     * Function to set the volume of the player.
+     *
+     * @param volumeLevel The volume, from MusicPlayerConstants.MIN_VOLUME to MusicPlayerConstants.MAX_VOLUME.
+     */
+    void setVolume(double volumeLevel);
 }
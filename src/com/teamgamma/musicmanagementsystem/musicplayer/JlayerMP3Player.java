@@ -2,7 +2,6 @@ package com.teamgamma.musicmanagementsystem.musicplayer;
 
 import com.teamgamma.musicmanagementsystem.model.Song;
 
-import javafx.concurrent.Task;
 import javafx.util.Duration;
 
 import javazoom.jl.decoder.BitstreamException;
@@ -12,6 +11,9 @@ import javazoom.jl.player.advanced.AdvancedPlayer;
 import javazoom.jl.player.advanced.PlaybackEvent;
 import javazoom.jl.player.advanced.PlaybackListener;
 
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.FloatControl;
+import javax.sound.sampled.Port;
 import java.io.BufferedInputStream;
 import java.io.FileInputStream;
 import java.util.concurrent.locks.Lock;
@@ -40,8 +42,6 @@ public class JlayerMP3Player implements IMusicPlayer{
 
     private Lock m_lock = new ReentrantLock();
 
-    private Thread m_currentUIThread;
-
     private Thread m_currentPlaybackThread;
 
     private BufferedInputStream m_bufferedStream;
@@ -117,23 +117,12 @@ public class JlayerMP3Player implements IMusicPlayer{
             @Override
             public void playbackStarted(PlaybackEvent playbackEvent) {
                 super.playbackStarted(playbackEvent);
-                // Wait for the current UI thread to stop if it is still running.
                 try {
                     m_lock.lock();
-                    m_isPlaying = false;
-                    if (m_currentUIThread != null && m_currentUIThread.isAlive()) {
-                        // Spawn a new thread to join it so we do not get any UI hangs.
-                        createTerminationThread(m_currentUIThread).start();
-                    }
                     m_isPlaying = true;
 
-                    // Initial notify
+                    // The manager updates the playback observers from here on while the song is playing.
                     m_manager.notifyPlaybackObservers();
-                    m_currentUIThread = new Thread(createUpdateUIThread());
-                    if (m_currentUIThread.getState() == Thread.State.NEW) {
-                        m_currentUIThread.start();
-                    }
-
                     m_manager.notifyChangeStateObservers();
                 } finally {
                     m_lock.unlock();
@@ -271,6 +260,30 @@ public class JlayerMP3Player implements IMusicPlayer{
         return m_isReady;
     }
 
+    /**
+     * Function to set the volume using Java Sound API. JLayer has no volume of its own, so this changes the speaker
+     * port of the system mixer.
+     * Based on http://stackoverflow.com/questions/648107/changing-volume-in-java-when-using-jlayer
+     *
+     * @param volumeLevel The volume to set it at.
+     */
+    @Override
+    public void setVolume(double volumeLevel) {
+        try {
+            Port speakerPort = (Port) AudioSystem.getLine(Port.Info.SPEAKER);
+            speakerPort.open();
+
+            FloatControl volCtrl = (FloatControl) speakerPort.getControl(
+                    FloatControl.Type.VOLUME);
+
+            volCtrl.setValue((float) volumeLevel);
+
+        } catch (Exception e) {
+            m_manager.setError(e);
+            m_manager.notifyError();
+        }
+    }
+
     @Override
     public void seekToTime(double percent) {
         stopSong();
@@ -356,8 +369,6 @@ public class JlayerMP3Player implements IMusicPlayer{
                     try {
                         m_currentPlaybackThread.interrupt();
                         m_currentPlaybackThread.join();
-                        m_currentUIThread.interrupt();
-                        m_currentUIThread.join();
                     } catch (Exception e) {
 
                     }
@@ -368,33 +379,6 @@ public class JlayerMP3Player implements IMusicPlayer{
         }
     }
 
-    /**
-     * Function to create the thread that will notify the playback observer to update the UI.
-     *
-     * @return  A thread containing the logic to notify the updates.
-     */
-    private Runnable createUpdateUIThread() {
-        return (() -> {
-            Task task = new Task<Void>() {
-                @Override
-                public Void call() {
-                    while (m_isPlaying) {
-                        m_manager.notifyPlaybackObservers();
-                        try{
-                            Thread.sleep(MusicPlayerConstants.UPDATE_INTERVAL_IN_MILLISECONDS);
-                        } catch (Exception e) {
-                            // It is alright if we get interrupted while we sleep.
-                            // Make sure to return and stop the thread.
-                            return null;
-                        }
-                    }
-                    return null;
-                }
-            };
-            task.run();
-        });
-    }
-
     /**
      * Helper function to convert from milliseconds to the number of frames based on the current song playing.
      *
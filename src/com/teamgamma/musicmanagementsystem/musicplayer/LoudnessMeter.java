@@ -0,0 +1,214 @@
+package com.teamgamma.musicmanagementsystem.musicplayer;
+
+import java.util.Arrays;
+
+/**
+ * Class to measure the integrated loudness of a song as defined by ITU-R BS.1770 and EBU R128, and its sample peak.
+ *
+ * The samples go through the K-weighting filter (a high shelf followed by a high pass), and the mean square of every
+ * 100 ms is kept. At the end these are combined into 400 ms blocks overlapping by 75%, the blocks quieter than
+ * -70 LUFS are dropped, then the ones more than 10 LU below the loudness of the rest, and the loudness of what is left
+ * is the integrated loudness.
+ *
+ * The filter coefficients are calculated for the sample rate of the song, the same way libebur128 does.
+ */
+public class LoudnessMeter {
+    // ReplayGain 2.0 plays every song at -18 LUFS.
+    public static final double REFERENCE_LOUDNESS = -18.0;
+
+    private static final double LOUDNESS_OFFSET = -0.691;
+    private static final double ABSOLUTE_GATE = -70.0;
+    private static final double RELATIVE_GATE = -10.0;
+    private static final int SUB_BLOCK_IN_MILLISECONDS = 100;
+    private static final int SUB_BLOCKS_PER_BLOCK = 4;
+    private static final int INITIAL_SUB_BLOCK_CAPACITY = 4096;
+    private static final double FULL_SCALE = 32768.0;
+
+    private static final double SHELF_FREQUENCY = 1681.974450955533;
+    private static final double SHELF_GAIN_IN_DECIBELS = 3.999843853973347;
+    private static final double SHELF_Q = 0.7071752369554196;
+    private static final double SHELF_BAND_EXPONENT = 0.4996667741545416;
+    private static final double HIGH_PASS_FREQUENCY = 38.13547087602444;
+    private static final double HIGH_PASS_Q = 0.5003270373238773;
+
+    private final int m_channels;
+    private final int m_framesPerSubBlock;
+
+    // Coefficients of the two filter stages, the leading a0 is normalized to 1.
+    private final double m_shelfB0;
+    private final double m_shelfB1;
+    private final double m_shelfB2;
+    private final double m_shelfA1;
+    private final double m_shelfA2;
+    private final double m_highPassA1;
+    private final double m_highPassA2;
+
+    // Filter state of every channel, in transposed direct form II.
+    private final double[] m_shelfState1;
+    private final double[] m_shelfState2;
+    private final double[] m_highPassState1;
+    private final double[] m_highPassState2;
+
+    private int m_channel = 0;
+    private int m_framesInSubBlock = 0;
+    private double m_subBlockEnergy = 0;
+    private double[] m_subBlockEnergies;
+    private int m_subBlockCount = 0;
+    private int m_peak = 0;
+
+    /**
+     * Constructor
+     *
+     * @param sampleRate    The sample rate of the song in Hz.
+     * @param channels      The number of interleaved channels.
+     */
+    public LoudnessMeter(int sampleRate, int channels) {
+        m_channels = channels;
+        m_framesPerSubBlock = sampleRate * SUB_BLOCK_IN_MILLISECONDS /
+                MusicPlayerConstants.NUMBER_OF_MILISECONDS_IN_SECOND;
+        m_subBlockEnergies = new double[INITIAL_SUB_BLOCK_CAPACITY];
+
+        double k = Math.tan(Math.PI * SHELF_FREQUENCY / sampleRate);
+        double highGain = Math.pow(10, SHELF_GAIN_IN_DECIBELS / 20);
+        double bandGain = Math.pow(highGain, SHELF_BAND_EXPONENT);
+        double a0 = 1 + k / SHELF_Q + k * k;
+        m_shelfB0 = (highGain + bandGain * k / SHELF_Q + k * k) / a0;
+        m_shelfB1 = 2 * (k * k - highGain) / a0;
+        m_shelfB2 = (highGain - bandGain * k / SHELF_Q + k * k) / a0;
+        m_shelfA1 = 2 * (k * k - 1) / a0;
+        m_shelfA2 = (1 - k / SHELF_Q + k * k) / a0;
+
+        k = Math.tan(Math.PI * HIGH_PASS_FREQUENCY / sampleRate);
+        a0 = 1 + k / HIGH_PASS_Q + k * k;
+        m_highPassA1 = 2 * (k * k - 1) / a0;
+        m_highPassA2 = (1 - k / HIGH_PASS_Q + k * k) / a0;
+
+        m_shelfState1 = new double[channels];
+        m_shelfState2 = new double[channels];
+        m_highPassState1 = new double[channels];
+        m_highPassState2 = new double[channels];
+    }
+
+    /**
+     * Function to add decoded samples to the measurement.
+     *
+     * @param samples   The interleaved 16 bit samples.
+     * @param length    The number of samples to add, over all channels.
+     */
+    public void addSamples(short[] samples, int length) {
+        for (int i = 0; i < length; i++) {
+            int sample = samples[i];
+            m_peak = Math.max(m_peak, Math.abs(sample));
+
+            int channel = m_channel;
+            double x = sample / FULL_SCALE;
+            double shelved = m_shelfB0 * x + m_shelfState1[channel];
+            m_shelfState1[channel] = m_shelfB1 * x - m_shelfA1 * shelved + m_shelfState2[channel];
+            m_shelfState2[channel] = m_shelfB2 * x - m_shelfA2 * shelved;
+
+            // The high pass numerator is 1, -2, 1.
+            double weighted = shelved + m_highPassState1[channel];
+            m_highPassState1[channel] = -2 * shelved - m_highPassA1 * weighted + m_highPassState2[channel];
+            m_highPassState2[channel] = shelved - m_highPassA2 * weighted;
+            m_subBlockEnergy += weighted * weighted;
+
+            if (++m_channel == m_channels) {
+                m_channel = 0;
+                if (++m_framesInSubBlock == m_framesPerSubBlock) {
+                    addSubBlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper function to keep the energy of the 100 ms that were just added and start the next.
+     */
+    private void addSubBlock() {
+        if (m_subBlockCount == m_subBlockEnergies.length) {
+            m_subBlockEnergies = Arrays.copyOf(m_subBlockEnergies, m_subBlockCount * 2);
+        }
+        m_subBlockEnergies[m_subBlockCount++] = m_subBlockEnergy;
+        m_subBlockEnergy = 0;
+        m_framesInSubBlock = 0;
+    }
+
+    /**
+     * Function to get the gated loudness of everything added so far. A song shorter than one block has no loudness.
+     *
+     * @return The integrated loudness in LUFS, or NaN if there is no block louder than the absolute gate.
+     */
+    public double getIntegratedLoudness() {
+        int blockCount = m_subBlockCount - SUB_BLOCKS_PER_BLOCK + 1;
+        if (blockCount <= 0) {
+            return Double.NaN;
+        }
+
+        double[] blockEnergies = new double[blockCount];
+        double blockEnergy = 0;
+        for (int i = 0; i < m_subBlockCount; i++) {
+            blockEnergy += m_subBlockEnergies[i];
+            if (i >= SUB_BLOCKS_PER_BLOCK) {
+                blockEnergy -= m_subBlockEnergies[i - SUB_BLOCKS_PER_BLOCK];
+            }
+            if (i >= SUB_BLOCKS_PER_BLOCK - 1) {
+                blockEnergies[i - SUB_BLOCKS_PER_BLOCK + 1] =
+                        Math.max(0, blockEnergy) / (SUB_BLOCKS_PER_BLOCK * m_framesPerSubBlock);
+            }
+        }
+
+        double absoluteGatedLoudness = getGatedLoudness(blockEnergies, ABSOLUTE_GATE);
+        if (Double.isNaN(absoluteGatedLoudness)) {
+            return Double.NaN;
+        }
+        return getGatedLoudness(blockEnergies, Math.max(ABSOLUTE_GATE, absoluteGatedLoudness + RELATIVE_GATE));
+    }
+
+    /**
+     * Helper function to get the loudness of the blocks louder than a gate.
+     *
+     * @param blockEnergies The mean square of every block, summed over the channels.
+     * @param gate          The loudness a block must be above to count, in LUFS.
+     * @return The loudness in LUFS, or NaN if no block is above the gate.
+     */
+    private static double getGatedLoudness(double[] blockEnergies, double gate) {
+        double gateEnergy = Math.pow(10, (gate - LOUDNESS_OFFSET) / 10);
+        double energySum = 0;
+        int count = 0;
+        for (double blockEnergy : blockEnergies) {
+            if (blockEnergy > gateEnergy) {
+                energySum += blockEnergy;
+                count++;
+            }
+        }
+        return (count == 0) ? Double.NaN : toLoudness(energySum / count);
+    }
+
+    /**
+     * Helper function to turn a mean square into a loudness.
+     *
+     * @param energy The mean square, summed over the channels.
+     * @return The loudness in LUFS.
+     */
+    private static double toLoudness(double energy) {
+        return LOUDNESS_OFFSET + 10 * Math.log10(energy);
+    }
+
+    /**
+     * Function to get the ReplayGain 2.0 gain of everything added so far.
+     *
+     * @return The gain in dB to reach the reference loudness, or NaN if the song is silent.
+     */
+    public double getReplayGain() {
+        return REFERENCE_LOUDNESS - getIntegratedLoudness();
+    }
+
+    /**
+     * Function to get the largest sample added so far.
+     *
+     * @return The peak, where 1.0 is full scale.
+     */
+    public double getPeak() {
+        return m_peak / FULL_SCALE;
+    }
+}
@@ -12,8 +12,6 @@ public class MusicPlayerConstants {
 
     public static final int MIN_VOLUME = 0;
 
-    public static final int UPDATE_INTERVAL_IN_MILLISECONDS = 1000;
-
     public static final int NUMBER_OF_MILISECONDS_IN_SECOND = 1000;
 
     public static final int SECONDS_IN_MINUTE = 60;
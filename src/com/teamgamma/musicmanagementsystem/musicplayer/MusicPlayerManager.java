@@ -2,13 +2,16 @@ package com.teamgamma.musicmanagementsystem.musicplayer;
 
 import com.teamgamma.musicmanagementsystem.model.DatabaseManager;
 import com.teamgamma.musicmanagementsystem.model.Playlist;
+import com.teamgamma.musicmanagementsystem.model.ReplayGain;
 import com.teamgamma.musicmanagementsystem.model.Song;
 import com.teamgamma.musicmanagementsystem.util.GeneralObserver;
 
+import javafx.animation.AnimationTimer;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.util.Duration;
 import javafx.util.Pair;
 
-import javax.sound.sampled.*;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.*;
@@ -17,12 +20,19 @@ import java.util.*;
  * Class to manage the the MusicPlayer.
  */
 public class MusicPlayerManager {
+    private static final String PLAYER_PROPERTY = "gamma.player";
+    private static final String JLAYER_PLAYER = "jlayer";
+    private static final String REPLAY_GAIN_PROPERTY = "gamma.replayGain";
+    private static final String REPLAY_GAIN_OFF = "off";
+    private static final String REPLAY_GAIN_ALBUM = "album";
+    // Changes to the playback queue are written to the database once it has not changed for this long.
+    private static final Duration QUEUE_SAVE_DELAY = Duration.seconds(1);
 
     private IMusicPlayer m_musicPlayer;
 
-    private List<Song> m_playingQueue;
+    private PlaybackQueue m_playingQueue;
 
-    private List<Song> m_songHistory;
+    private SongHistory m_songHistory;
 
     private List<GeneralObserver> m_newSongObservers;
 
@@ -50,23 +60,101 @@ public class MusicPlayerManager {
 
     private DatabaseManager m_databaseManager;
 
+    private boolean m_isAdvancingToPreloadedSong = false;
+
+    private AnimationTimer m_playbackTimer;
+
+    private PauseTransition m_queueSaveTimer;
+
+    private volatile boolean m_isQueueChanged = false;
+
     /**
      * Constructor
      */
     public MusicPlayerManager(DatabaseManager databaseManager) {
         m_databaseManager = databaseManager;
 
-        m_playingQueue = new ArrayList<>();
+        m_playingQueue = new PlaybackQueue();
 
-        m_songHistory = new ArrayList<>();
+        m_songHistory = new SongHistory(MusicPlayerConstants.MAX_SONG_HISTORY);
 
         m_newSongObservers = new ArrayList<>();
         m_playbackObservers = new ArrayList<>();
         m_changeStateObserver = new ArrayList<>();
         m_errorObservers = new ArrayList<>();
         m_queuingObserver = new ArrayList<>();
-        m_musicPlayer = new JlayerMP3Player(this);
+        m_musicPlayer = createMusicPlayer();
+        m_playbackTimer = createPlaybackTimer();
+        m_queueSaveTimer = new PauseTransition(QUEUE_SAVE_DELAY);
+        m_queueSaveTimer.setOnFinished(event -> savePlaybackQueue());
+    }
 
+    /**
+     * Helper function to create the timer that updates the playback observers on every JavaFX pulse while a song is
+     * playing, so the progress is drawn once per frame instead of by a sleeping thread.
+     *
+     * @return The timer, not started.
+     */
+    private AnimationTimer createPlaybackTimer() {
+        return new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                notifyPlaybackObservers();
+                if (!isSomethingPlaying()) {
+                    // Stop asking for pulses when there is nothing to draw.
+                    stop();
+                }
+            }
+        };
+    }
+
+    /**
+     * Helper function to start or stop the playback timer depending on whether a song is playing.
+     */
+    private void updatePlaybackTimer() {
+        Platform.runLater(() -> {
+            if (isSomethingPlaying()) {
+                m_playbackTimer.start();
+            } else {
+                m_playbackTimer.stop();
+                notifyPlaybackObservers();
+            }
+        });
+    }
+
+    /**
+     * Helper function to create the music player. The buffered player is used unless -Dgamma.player=jlayer is given.
+     *
+     * @return The music player to use.
+     */
+    private IMusicPlayer createMusicPlayer() {
+        if (JLAYER_PLAYER.equals(System.getProperty(PLAYER_PROPERTY))) {
+            return new JlayerMP3Player(this);
+        }
+        return new BufferedMP3Player(this);
+    }
+
+    /**
+     * Function to get the factor the samples of a song are multiplied with so songs play at the same loudness.
+     * Uses the track gain unless -Dgamma.replayGain=album or -Dgamma.replayGain=off is given. Songs without ReplayGain
+     * tags use the values stored in the database, if any. Must be called on the JavaFX thread.
+     *
+     * @param song The song that is going to be played.
+     * @return The linear scale, 1.0 if the song is not adjusted.
+     */
+    public float getPlaybackGain(Song song) {
+        String mode = System.getProperty(REPLAY_GAIN_PROPERTY);
+        if (REPLAY_GAIN_OFF.equals(mode)) {
+            return 1.0f;
+        }
+
+        ReplayGain replayGain = song.getM_replayGain();
+        if (replayGain.isEmpty()) {
+            File file = song.getFile();
+            replayGain = m_databaseManager.getReplayGain(file.getAbsolutePath(), file.lastModified());
+            song.setReplayGain(replayGain);
+        }
+        return replayGain.getScale(REPLAY_GAIN_ALBUM.equals(mode));
     }
 
     /**
@@ -81,8 +169,8 @@ public class MusicPlayerManager {
         } else if (!m_playingQueue.isEmpty()){
             m_historyIndex = m_songHistory.size() - 1;
             m_isPlayingOnHistory = false;
-            Song nextSong = m_playingQueue.get(0);
-            m_playingQueue.remove(0);
+            Song nextSong = m_playingQueue.pollFirst();
+            savePlaybackQueueLater();
             playSongRightNow(nextSong);
 
         } else if (isThereNextSongOnPlaylist()) {
@@ -94,6 +182,27 @@ public class MusicPlayerManager {
         notifyNewSongObservers();
     }
 
+    /**
+     * Function called by the player when it went on to a song it pre-loaded from getNextSong(). Moves the manager to
+     * the next song the same way playNextSong() does, but without stopping the player.
+     *
+     * @param preloadedSong The song the player is now playing.
+     */
+    public void advanceToPreloadedSong(Song preloadedSong) {
+        if (getNextSong() != preloadedSong) {
+            // The queue changed after the song was pre-loaded, so play what is next now instead.
+            playNextSong();
+            return;
+        }
+
+        m_isAdvancingToPreloadedSong = true;
+        try {
+            playNextSong();
+        } finally {
+            m_isAdvancingToPreloadedSong = false;
+        }
+    }
+
     /**
      * Function to play the next song from the playlist.
      */
@@ -109,7 +218,7 @@ public class MusicPlayerManager {
      * @param songToPlay
      */
     public void playSongRightNow(Song songToPlay) {
-        if (m_musicPlayer.isPlayingSong()){
+        if (m_musicPlayer.isPlayingSong() && !m_isAdvancingToPreloadedSong){
             stopSong();
         }
         m_currentSong = songToPlay;
@@ -129,8 +238,8 @@ public class MusicPlayerManager {
             m_currentSong = nextSong;
             m_musicPlayer.playSong(nextSong);
         } else {
-            m_playingQueue.add(nextSong);
-            m_databaseManager.addToPlaybackQueueTail(nextSong.getFile().getAbsolutePath());
+            m_playingQueue.addLast(nextSong);
+            savePlaybackQueueLater();
         }
 
         notifyQueingObserver();
@@ -151,7 +260,8 @@ public class MusicPlayerManager {
      * @param songToPlace The song to place in the queue
      */
     public void placeSongAtStartOfQueue(Song songToPlace) {
-        m_playingQueue.add(0, songToPlace);
+        m_playingQueue.addFirst(songToPlace);
+        savePlaybackQueueLater();
         if (isNoSongPlayingOrNext()){
             playNextSong();
         }
@@ -270,15 +380,15 @@ public class MusicPlayerManager {
                 return;
             }
         }
-        m_songHistory.add(m_currentSong);
+        boolean isOldestSongDropped = m_songHistory.append(m_currentSong);
         m_databaseManager.addToHistory(m_currentSong.getFile().getAbsolutePath());
+        if (isOldestSongDropped) {
+            m_databaseManager.truncateHistory(MusicPlayerConstants.MAX_SONG_HISTORY);
+        }
 
         // On insertion of new song in history set the last played index to be the latest song in history list.
         m_historyIndex = m_songHistory.size() - 1;
         m_isPlayingOnHistory = false;
-        if (m_songHistory.size() > MusicPlayerConstants.MAX_SONG_HISTORY) {
-            m_songHistory.remove(0);
-        }
     }
 
     /**
@@ -298,10 +408,15 @@ public class MusicPlayerManager {
     }
 
     /**
-     * Function to notify all observers for playback.
+     * Function to notify all observers for playback. The observers always run on the JavaFX thread, the playback timer
+     * calls this there on every pulse and calls from the player threads are passed to it.
      */
     public void notifyPlaybackObservers() {
-        notifyAll(m_playbackObservers);
+        if (Platform.isFxApplicationThread()) {
+            notifyAll(m_playbackObservers);
+        } else {
+            Platform.runLater(() -> notifyAll(m_playbackObservers));
+        }
     }
 
     /**
@@ -385,6 +500,7 @@ public class MusicPlayerManager {
      * Function to notify all the observers for the change state observers.
      */
     public void notifyChangeStateObservers() {
+        updatePlaybackTimer();
         notifyAll(m_changeStateObserver);
     }
 
@@ -494,26 +610,6 @@ public class MusicPlayerManager {
         return m_volumeLevel;
     }
 
-    /**
-     * Function to set the volume using Java Sound API.
-     * Based on http://stackoverflow.com/questions/648107/changing-volume-in-java-when-using-jlayer
-     */
-    private void setVolumeControl() {
-        try {
-            Port speakerPort = (Port) AudioSystem.getLine(Port.Info.SPEAKER);
-            speakerPort.open();
-
-            FloatControl volCtrl = (FloatControl) speakerPort.getControl(
-                    FloatControl.Type.VOLUME);
-
-            volCtrl.setValue((float) m_volumeLevel);
-
-        } catch (Exception e) {
-            m_lastException = e;
-            notifyError();
-        }
-    }
-
     /**
      * Function to get the history of songs that have been played in the music player
      *
@@ -544,6 +640,10 @@ public class MusicPlayerManager {
      */
     public void loadHistory(List<Song> songs) {
         m_songHistory.addAll(songs);
+        if (songs.size() > MusicPlayerConstants.MAX_SONG_HISTORY) {
+            // Only the newest songs were kept, drop the rest from the database too.
+            m_databaseManager.truncateHistory(MusicPlayerConstants.MAX_SONG_HISTORY);
+        }
 
         // TODO: Will have to set the history index to actual location that was left off
         if (!m_songHistory.isEmpty()) {
@@ -602,7 +702,7 @@ public class MusicPlayerManager {
      */
     public void setVolumeLevel(double volumeLevel) {
         m_volumeLevel = volumeLevel;
-        setVolumeControl();
+        m_musicPlayer.setVolume(volumeLevel);
     }
 
     /**
@@ -611,14 +711,9 @@ public class MusicPlayerManager {
      * @param songToDelete The Song to delete.
      */
     public void removeSongFromHistory(Song songToDelete){
-        while (m_songHistory.contains(songToDelete)){
-            if (m_songHistory.indexOf(songToDelete) < m_historyIndex) {
-                // Decrement the index if we are removing something ahead of the current index.
-                m_historyIndex--;
-            }
-            m_songHistory.remove(songToDelete);
-        }
-        m_databaseManager.deleteFromHistory(songToDelete.getFile().getAbsolutePath());
+        String path = songToDelete.getFile().getAbsolutePath();
+        m_historyIndex = m_songHistory.removeAllInstances(path, m_historyIndex);
+        m_databaseManager.deleteFromHistory(path);
     }
 
     /**
@@ -647,7 +742,7 @@ public class MusicPlayerManager {
             return m_songHistory.get(m_historyIndex + 1);
         }
         if (!m_playingQueue.isEmpty()) {
-            return m_playingQueue.get(0);
+            return m_playingQueue.peekFirst();
         } else if (isThereNextSongOnPlaylist()){
             return m_currentPlayList.getNextSong();
         }
@@ -753,6 +848,7 @@ public class MusicPlayerManager {
     public void removeSongFromPlaybackQueue(int index){
         if (m_playingQueue.size() > index) {
             m_playingQueue.remove(index);
+            savePlaybackQueueLater();
         }
         notifyQueingObserver();
     }
@@ -763,7 +859,9 @@ public class MusicPlayerManager {
      * @param path      The path to the song that is to be deleted.
      */
     public void removeAllInstancesOfSongFromPlaybackQueue(String path) {
-        removeSongFromList(path, m_playingQueue);
+        if (m_playingQueue.removeAllInstances(path) > 0) {
+            savePlaybackQueueLater();
+        }
         notifyQueingObserver();
     }
 
@@ -773,33 +871,11 @@ public class MusicPlayerManager {
      * @param path      The path to the song.
      */
     public void removeAllInstancesOfSongFromHistory(String path) {
-        for (int i = 0; i < m_songHistory.size(); ++i) {
-            if (m_songHistory.get(i).getFile().getAbsolutePath().equals(path)) {
-                if (i < m_historyIndex) {
-                    m_historyIndex--;
-                }
-                m_songHistory.remove(i);
-            }
-        }
+        m_historyIndex = m_songHistory.removeAllInstances(path, m_historyIndex);
+        m_databaseManager.deleteFromHistory(path);
         notifyNewSongObservers();
     }
 
-    /**
-     * Function to remove a song from the list passed in.
-     *
-     * @param path              The path of the song that is to be removed.
-     * @param listToModify      The list to modify.
-     */
-    private void removeSongFromList(String path, List<Song> listToModify) {
-        List<Song> songsToRemove = new ArrayList<>();
-        for (Song song : listToModify) {
-            if (song.getFile().getAbsolutePath().equals(path) && !songsToRemove.contains(song)) {
-                songsToRemove.add(song);
-            }
-        }
-        listToModify.removeAll(songsToRemove);
-    }
-
     /**
      * Set the resume time for current playlist
      */
@@ -866,35 +942,62 @@ public class MusicPlayerManager {
      * Function to clear the playback queue.
      */
     private void clearPlaybackQueue() {
-        m_playingQueue = new ArrayList<>();
+        m_playingQueue.clear();
+        savePlaybackQueueLater();
         notifyQueingObserver();
     }
 
     /**
-     * Function to update the song passed in the first paramter to point to the new location indicated by the second
-     * parameter.
-     *
-     * @param songToUpdate      The song to find to update
-     * @param newSong           The song with updated location.
+     * Helper function to write the playback queue to the database once it stops changing, so adding a folder of songs
+     * or skipping through the queue is written in one transaction instead of one statement per song. The timer can
+     * only be started on the JavaFX thread, calls from the player threads when a song ends are passed to it.
+     */
+    private void savePlaybackQueueLater() {
+        m_isQueueChanged = true;
+        if (Platform.isFxApplicationThread()) {
+            m_queueSaveTimer.playFromStart();
+        } else {
+            Platform.runLater(m_queueSaveTimer::playFromStart);
+        }
+    }
+
+    /**
+     * Function to stop waiting to write the playback queue, before it is written one last time when the application
+     * closes. Must be called on the JavaFX thread.
      */
-    public void updateSongLocation(Song songToUpdate, Song newSong) {
-        updateSongInList(m_songHistory, songToUpdate, newSong);
-        m_databaseManager.updateHistory(songToUpdate.getFile().getAbsolutePath(), newSong.getFile().getAbsolutePath());
-        updateSongInList(m_playingQueue, songToUpdate, newSong);
+    public void stopPlaybackQueueSaveTimer() {
+        m_queueSaveTimer.stop();
     }
 
     /**
-     * Function to update the the list with the new song.
+     * Function to write the playback queue to the database now if it changed since it was last written. Called when
+     * the application closes so the last changes are not lost, after stopPlaybackQueueSaveTimer().
+     */
+    public void savePlaybackQueue() {
+        if (m_isQueueChanged) {
+            m_isQueueChanged = false;
+            m_databaseManager.savePlaybackQueue(m_playingQueue.getSongPaths());
+        }
+    }
+
+    /**
+     * Function to point the history and playback queue to the new location of songs that were moved, and update the
+     * history, playback queue, playlist songs and ReplayGain values in the database in one transaction.
      *
-     * @param listToUpdate      List to update
-     * @param songToUpdate      The song to find to update
-     * @param newSong           The song with updated location.
+     * @param relocatedSongs    Map from the old path of each moved song to the moved song, which already points to its
+     *                          new file.
      */
-    private void updateSongInList(List<Song> listToUpdate, Song songToUpdate, Song newSong) {
-        for (int i = 0; i < listToUpdate.size(); ++i) {
-            if (listToUpdate.get(i).equals(songToUpdate)) {
-                listToUpdate.set(i, newSong);
-            }
+    public void relocateSongs(Map<String, Song> relocatedSongs) {
+        if (relocatedSongs.isEmpty()) {
+            return;
+        }
+        m_songHistory.relocate(relocatedSongs);
+        m_playingQueue.relocate(relocatedSongs);
+
+        Map<String, String> relocatedPaths = new HashMap<>();
+        for (Map.Entry<String, Song> entry : relocatedSongs.entrySet()) {
+            relocatedPaths.put(entry.getKey(), entry.getValue().getFile().getAbsolutePath());
         }
+        m_databaseManager.relocateSongs(relocatedPaths);
     }
 }
@@ -0,0 +1,138 @@
+package com.teamgamma.musicmanagementsystem.musicplayer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free ring buffer of 16 bit PCM samples shared by exactly one producer (the decoder thread) and one consumer
+ * (the output thread).
+ *
+ * Both positions only ever grow and count samples since the buffer was created, the slot of a position is found by
+ * masking it with the capacity. The producer is the only one writing the write position and the consumer the only one
+ * writing the read position, so no locks are needed: each side publishes its position after it is done with the
+ * samples and reads the other side's position to know how far it can go.
+ */
+public class PcmRingBuffer {
+    private final short[] m_samples;
+    private final int m_mask;
+
+    private final AtomicLong m_writePosition;
+    private final AtomicLong m_readPosition;
+
+    /**
+     * Constructor
+     *
+     * @param minimumCapacity The minimum number of samples the buffer can hold, rounded up to a power of two.
+     */
+    public PcmRingBuffer(int minimumCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(minimumCapacity, 2) - 1) << 1;
+        m_samples = new short[capacity];
+        m_mask = capacity - 1;
+        m_writePosition = new AtomicLong();
+        m_readPosition = new AtomicLong();
+    }
+
+    /**
+     * Function to copy samples into the buffer. Only to be called by the producer. Never blocks, if there is not enough
+     * room only the samples that fit are copied.
+     *
+     * @param source    The samples to copy.
+     * @param offset    The index of the first sample to copy.
+     * @param length    The number of samples to copy.
+     * @return The number of samples that were copied.
+     */
+    public int write(short[] source, int offset, int length) {
+        long writePosition = m_writePosition.get();
+        int count = (int) Math.min(length, m_samples.length - (writePosition - m_readPosition.get()));
+        if (count <= 0) {
+            return 0;
+        }
+
+        int start = (int) (writePosition & m_mask);
+        int firstPart = Math.min(count, m_samples.length - start);
+        System.arraycopy(source, offset, m_samples, start, firstPart);
+        System.arraycopy(source, offset + firstPart, m_samples, 0, count - firstPart);
+
+        // Publish the samples to the consumer only after they are copied.
+        m_writePosition.lazySet(writePosition + count);
+        return count;
+    }
+
+    /**
+     * Function to copy samples out of the buffer. Only to be called by the consumer. Never blocks, if there are not
+     * enough samples only the ones available are copied.
+     *
+     * @param destination   The array to copy the samples to.
+     * @param offset        The index to start copying to.
+     * @param length        The maximum number of samples to copy.
+     * @return The number of samples that were copied.
+     */
+    public int read(short[] destination, int offset, int length) {
+        long readPosition = m_readPosition.get();
+        int count = (int) Math.min(length, m_writePosition.get() - readPosition);
+        if (count <= 0) {
+            return 0;
+        }
+
+        int start = (int) (readPosition & m_mask);
+        int firstPart = Math.min(count, m_samples.length - start);
+        System.arraycopy(m_samples, start, destination, offset, firstPart);
+        System.arraycopy(m_samples, 0, destination, offset + firstPart, count - firstPart);
+
+        // Give the slots back to the producer only after they are copied.
+        m_readPosition.lazySet(readPosition + count);
+        return count;
+    }
+
+    /**
+     * Function to drop every sample that is in the buffer. Only to be called by the consumer, or when the producer is
+     * not running.
+     */
+    public void clear() {
+        m_readPosition.set(m_writePosition.get());
+    }
+
+    /**
+     * Function to get the number of samples waiting to be read.
+     *
+     * @return The number of samples in the buffer.
+     */
+    public int getAvailable() {
+        return (int) (m_writePosition.get() - m_readPosition.get());
+    }
+
+    /**
+     * Function to get the number of samples that can be written without overwriting unread samples.
+     *
+     * @return The free space in samples.
+     */
+    public int getFree() {
+        return m_samples.length - getAvailable();
+    }
+
+    /**
+     * Function to get the number of samples the buffer can hold.
+     *
+     * @return The capacity in samples.
+     */
+    public int getCapacity() {
+        return m_samples.length;
+    }
+
+    /**
+     * Function to get the total number of samples written since the buffer was created.
+     *
+     * @return The write position.
+     */
+    public long getWritePosition() {
+        return m_writePosition.get();
+    }
+
+    /**
+     * Function to get the total number of samples read since the buffer was created.
+     *
+     * @return The read position.
+     */
+    public long getReadPosition() {
+        return m_readPosition.get();
+    }
+}
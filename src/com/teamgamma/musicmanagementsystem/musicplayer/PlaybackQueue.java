@@ -0,0 +1,405 @@
+package com.teamgamma.musicmanagementsystem.musicplayer;
+
+import com.teamgamma.musicmanagementsystem.model.Song;
+
+import java.util.AbstractCollection;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Class for the playback queue. The songs are kept in a ring buffer so songs can be added and taken at both ends in
+ * constant time, with an index from each song to its positions so every instance of a song can be removed without
+ * scanning the whole queue. The index is by song object and not by path, since renaming or moving a song changes the
+ * file of the same object.
+ *
+ * Positions are sequence numbers that grow at the tail and shrink at the head, so they stay the same while songs are
+ * added and taken. Removing a song from the middle only clears its slot, and the buffer is compacted once half of it
+ * is cleared slots.
+ */
+public class PlaybackQueue extends AbstractCollection<Song> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    // The capacity is always a power of 2, so a sequence number is turned into a slot with a mask.
+    private Song[] m_slots = new Song[INITIAL_CAPACITY];
+
+    // The sequence number of the first slot in use, and one past the last one.
+    private int m_headSequence = 0;
+    private int m_tailSequence = 0;
+
+    private int m_size = 0;
+
+    // The positions of every song in the queue, from the front of the queue to the back.
+    private final Map<Song, ArrayDeque<Integer>> m_positions = new IdentityHashMap<>();
+
+    private int m_modificationCount = 0;
+
+    /**
+     * Function to add a song to the back of the queue.
+     *
+     * @param song The song to add.
+     */
+    public void addLast(Song song) {
+        ensureCapacity();
+        int sequence = m_tailSequence++;
+        m_slots[toSlot(sequence)] = song;
+        getPositions(song).addLast(sequence);
+        m_size++;
+        m_modificationCount++;
+    }
+
+    /**
+     * Function to add a song to the front of the queue.
+     *
+     * @param song The song to add.
+     */
+    public void addFirst(Song song) {
+        ensureCapacity();
+        int sequence = --m_headSequence;
+        m_slots[toSlot(sequence)] = song;
+        getPositions(song).addFirst(sequence);
+        m_size++;
+        m_modificationCount++;
+    }
+
+    @Override
+    public boolean add(Song song) {
+        addLast(song);
+        return true;
+    }
+
+    /**
+     * Function to get the song at the front of the queue.
+     *
+     * @return The song, or null if the queue is empty.
+     */
+    public Song peekFirst() {
+        return isEmpty() ? null : m_slots[toSlot(m_headSequence)];
+    }
+
+    /**
+     * Function to take the song at the front of the queue.
+     *
+     * @return The song, or null if the queue is empty.
+     */
+    public Song pollFirst() {
+        if (isEmpty()) {
+            return null;
+        }
+        int sequence = m_headSequence;
+        Song song = m_slots[toSlot(sequence)];
+        clearSlot(sequence);
+        removePosition(song, sequence);
+        return song;
+    }
+
+    /**
+     * Function to get the song at a position in the queue.
+     *
+     * @param index The position of the song from the front of the queue.
+     * @return The song.
+     */
+    public Song get(int index) {
+        // Find the sequence first, it can compact the buffer into a new array.
+        int sequence = getSequence(index);
+        return m_slots[toSlot(sequence)];
+    }
+
+    /**
+     * Function to remove the song at a position in the queue.
+     *
+     * @param index The position of the song from the front of the queue.
+     * @return The song that was removed.
+     */
+    public Song remove(int index) {
+        int sequence = getSequence(index);
+        Song song = m_slots[toSlot(sequence)];
+        clearSlot(sequence);
+        removePosition(song, sequence);
+        return song;
+    }
+
+    /**
+     * Function to remove every instance of a song from the queue. Only the positions of the songs at that path are
+     * visited.
+     *
+     * @param songPath The path of the song to remove.
+     * @return The number of songs removed.
+     */
+    public int removeAllInstances(String songPath) {
+        int removedCount = 0;
+        for (Song song : findSongs(songPath)) {
+            ArrayDeque<Integer> positions = m_positions.remove(song);
+            for (int sequence : positions) {
+                clearSlot(sequence);
+            }
+            removedCount += positions.size();
+        }
+        compactIfSparse();
+        return removedCount;
+    }
+
+    /**
+     * Function to replace other objects of the songs that were moved or renamed with the moved objects, keeping their
+     * positions. The moved objects already point to their new files, so they stay as they are.
+     *
+     * @param relocatedSongs Map from the old path of each moved song to the moved song.
+     */
+    public void relocate(Map<String, Song> relocatedSongs) {
+        Set<Song> movedSongs = Collections.newSetFromMap(new IdentityHashMap<>());
+        movedSongs.addAll(relocatedSongs.values());
+
+        for (Song song : new ArrayList<>(m_positions.keySet())) {
+            Song newSong = relocatedSongs.get(getPath(song));
+            if (newSong == null || movedSongs.contains(song)) {
+                continue;
+            }
+            ArrayDeque<Integer> positions = m_positions.remove(song);
+            for (int sequence : positions) {
+                m_slots[toSlot(sequence)] = newSong;
+            }
+
+            ArrayDeque<Integer> existingPositions = m_positions.get(newSong);
+            if (existingPositions != null) {
+                // The moved song was queued too, keep the positions in queue order.
+                List<Integer> merged = new ArrayList<>(existingPositions);
+                merged.addAll(positions);
+                Collections.sort(merged);
+                positions = new ArrayDeque<>(merged);
+            }
+            m_positions.put(newSong, positions);
+            m_modificationCount++;
+        }
+    }
+
+    @Override
+    public void clear() {
+        m_slots = new Song[INITIAL_CAPACITY];
+        m_headSequence = 0;
+        m_tailSequence = 0;
+        m_size = 0;
+        m_positions.clear();
+        m_modificationCount++;
+    }
+
+    /**
+     * Function to get the paths of the songs in the queue, to save it.
+     *
+     * @return The paths, from the front of the queue to the back.
+     */
+    public List<String> getSongPaths() {
+        List<String> songPaths = new ArrayList<>(m_size);
+        for (Song song : this) {
+            songPaths.add(getPath(song));
+        }
+        return songPaths;
+    }
+
+    @Override
+    public int size() {
+        return m_size;
+    }
+
+    @Override
+    public Iterator<Song> iterator() {
+        return new Iterator<Song>() {
+            private final int m_expectedModificationCount = m_modificationCount;
+            private int m_sequence = m_headSequence;
+            private int m_returned = 0;
+
+            @Override
+            public boolean hasNext() {
+                return m_returned < m_size;
+            }
+
+            @Override
+            public Song next() {
+                if (m_expectedModificationCount != m_modificationCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Song song = m_slots[toSlot(m_sequence++)];
+                while (song == null) {
+                    song = m_slots[toSlot(m_sequence++)];
+                }
+                m_returned++;
+                return song;
+            }
+        };
+    }
+
+    /**
+     * Helper function to find the sequence number of a position in the queue. Compacts the buffer first if songs were
+     * removed from the middle, so the position maps straight to a slot.
+     *
+     * @param index The position from the front of the queue.
+     * @return The sequence number.
+     */
+    private int getSequence(int index) {
+        if (index < 0 || index >= m_size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + m_size);
+        }
+        if (getSpan() != m_size) {
+            compact(m_slots.length);
+        }
+        return m_headSequence + index;
+    }
+
+    /**
+     * Helper function to clear a slot that holds a song, and move the ends of the queue past cleared slots so the
+     * first and last slots in use always hold a song.
+     *
+     * @param sequence The sequence number of the slot.
+     */
+    private void clearSlot(int sequence) {
+        m_slots[toSlot(sequence)] = null;
+        m_size--;
+        m_modificationCount++;
+        while (m_headSequence != m_tailSequence && m_slots[toSlot(m_headSequence)] == null) {
+            m_headSequence++;
+        }
+        while (m_headSequence != m_tailSequence && m_slots[toSlot(m_tailSequence - 1)] == null) {
+            m_tailSequence--;
+        }
+    }
+
+    /**
+     * Helper function to remove one position from the index of a song. The position taken from the front of the
+     * queue is the first of its song, so that case does not search.
+     *
+     * @param song      The song.
+     * @param sequence  The sequence number to remove.
+     */
+    private void removePosition(Song song, int sequence) {
+        ArrayDeque<Integer> positions = m_positions.get(song);
+        if (positions != null) {
+            if (positions.peekFirst() == sequence) {
+                positions.pollFirst();
+            } else {
+                positions.removeFirstOccurrence(sequence);
+            }
+            if (positions.isEmpty()) {
+                m_positions.remove(song);
+            }
+        }
+        compactIfSparse();
+    }
+
+    /**
+     * Helper function to find the songs in the queue that are at a path. Usually one, but the same file can be
+     * queued through different song objects.
+     *
+     * @param songPath The path of the songs.
+     * @return The songs at that path.
+     */
+    private List<Song> findSongs(String songPath) {
+        List<Song> songs = new ArrayList<>();
+        for (Song song : m_positions.keySet()) {
+            if (getPath(song).equals(songPath)) {
+                songs.add(song);
+            }
+        }
+        return songs;
+    }
+
+    /**
+     * Helper function to make room for one more slot, by compacting the buffer if half of it is cleared slots and by
+     * doubling it otherwise.
+     */
+    private void ensureCapacity() {
+        if (getSpan() < m_slots.length) {
+            return;
+        }
+        compact(m_size * 2 < m_slots.length ? m_slots.length : m_slots.length * 2);
+    }
+
+    /**
+     * Helper function to compact the buffer once most of it is cleared slots, so the cost is spread over the removals
+     * that cleared them.
+     */
+    private void compactIfSparse() {
+        if (m_size * 2 < getSpan()) {
+            compact(m_slots.length);
+        }
+    }
+
+    /**
+     * Helper function to move the songs to the start of a new buffer without cleared slots in between, and number
+     * their positions again.
+     *
+     * @param capacity The size of the new buffer, a power of 2.
+     */
+    private void compact(int capacity) {
+        Song[] slots = new Song[capacity];
+        int count = 0;
+        for (int sequence = m_headSequence; sequence != m_tailSequence; sequence++) {
+            Song song = m_slots[toSlot(sequence)];
+            if (song != null) {
+                slots[count++] = song;
+            }
+        }
+        m_slots = slots;
+        m_headSequence = 0;
+        m_tailSequence = count;
+        m_modificationCount++;
+
+        m_positions.clear();
+        for (int sequence = 0; sequence < count; sequence++) {
+            getPositions(slots[sequence]).addLast(sequence);
+        }
+    }
+
+    /**
+     * Helper function to get the positions of a song, adding an empty entry if it is not in the queue.
+     *
+     * @param song The song.
+     * @return The positions of the song.
+     */
+    private ArrayDeque<Integer> getPositions(Song song) {
+        ArrayDeque<Integer> positions = m_positions.get(song);
+        if (positions == null) {
+            positions = new ArrayDeque<>();
+            m_positions.put(song, positions);
+        }
+        return positions;
+    }
+
+    /**
+     * Helper function to get the number of slots between the ends of the queue, cleared slots included.
+     *
+     * @return The number of slots.
+     */
+    private int getSpan() {
+        return m_tailSequence - m_headSequence;
+    }
+
+    /**
+     * Helper function to find the slot of a sequence number. Works for negative numbers too since the capacity is a
+     * power of 2.
+     *
+     * @param sequence The sequence number.
+     * @return The index in the buffer.
+     */
+    private int toSlot(int sequence) {
+        return sequence & (m_slots.length - 1);
+    }
+
+    /**
+     * Helper function to get the path of a song.
+     *
+     * @param song The song.
+     * @return The path of the song.
+     */
+    private static String getPath(Song song) {
+        return song.getFile().getAbsolutePath();
+    }
+}
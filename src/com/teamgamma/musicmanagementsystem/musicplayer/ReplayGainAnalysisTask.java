@@ -0,0 +1,279 @@
+package com.teamgamma.musicmanagementsystem.musicplayer;
+
+import com.teamgamma.musicmanagementsystem.codec.AudioCodec;
+import com.teamgamma.musicmanagementsystem.codec.CodecRegistry;
+import com.teamgamma.musicmanagementsystem.codec.PcmDecoder;
+import com.teamgamma.musicmanagementsystem.model.DatabaseManager;
+import com.teamgamma.musicmanagementsystem.model.ReplayGain;
+import com.teamgamma.musicmanagementsystem.model.Song;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.util.Pair;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background task to measure the loudness of every song that has no ReplayGain values yet, so the player can play
+ * them at the same loudness.
+ *
+ * The songs are decoded with the decoder of their codec on a pool of low priority workers and measured with a LoudnessMeter. The track
+ * gain and peak are stored in the ReplayGain table together with the modified time of the file, in batches on the
+ * JavaFX thread. Songs that are in the table with the same modified time, or have ReplayGain tags, are skipped, so a
+ * cancelled analysis continues where it stopped the next time it runs. Songs in a format that cannot be decoded are
+ * skipped.
+ *
+ * The number of workers can be set with -Dgamma.analysis.threads (half the processors by default), and the share of
+ * time each worker spends decoding with -Dgamma.analysis.dutyPercent (50 by default). Workers sleep in between, so
+ * playback always has CPU left.
+ */
+public class ReplayGainAnalysisTask extends Task<Void> {
+    private static final String THREADS_PROPERTY = "gamma.analysis.threads";
+    private static final String DUTY_PROPERTY = "gamma.analysis.dutyPercent";
+    private static final int DEFAULT_DUTY_PERCENT = 50;
+    private static final int MAX_DUTY_PERCENT = 100;
+    private static final int DECODE_CHUNK_IN_SAMPLES = 4608;
+    private static final int THROTTLE_INTERVAL_IN_CHUNKS = 32;
+    private static final long UPDATE_INTERVAL_IN_MILLISECONDS = 1000;
+    private static final double NANOSECONDS_IN_SECOND = 1000000000.0;
+    private static final long NANOSECONDS_IN_MILLISECOND = 1000000;
+    private static final long SHUTDOWN_TIMEOUT_IN_SECONDS = 10;
+
+    private final List<Song> m_songs;
+    private final Map<String, Long> m_analyzedTimes;
+    private final DatabaseManager m_databaseManager;
+    private final int m_workerCount;
+    private final int m_dutyPercent;
+    private final Queue<AnalysisResult> m_results;
+    private final AtomicInteger m_songsAnalyzed;
+    private final CountDownLatch m_finished = new CountDownLatch(1);
+    private volatile double m_tracksPerSecond = 0;
+
+    /**
+     * Constructor. Must be called on the JavaFX thread.
+     *
+     * @param songs             The songs to analyze if they have no values yet.
+     * @param databaseManager   The database to store the values in.
+     */
+    public ReplayGainAnalysisTask(List<Song> songs, DatabaseManager databaseManager) {
+        m_songs = new ArrayList<>(songs);
+        m_analyzedTimes = databaseManager.getReplayGainTimes();
+        m_databaseManager = databaseManager;
+        m_workerCount = Math.max(1, Integer.getInteger(THREADS_PROPERTY,
+                                                       Runtime.getRuntime().availableProcessors() / 2));
+        m_dutyPercent = Math.max(1, Math.min(MAX_DUTY_PERCENT, Integer.getInteger(DUTY_PROPERTY,
+                                                                                  DEFAULT_DUTY_PERCENT)));
+        m_results = new ConcurrentLinkedQueue<>();
+        m_songsAnalyzed = new AtomicInteger();
+    }
+
+    @Override
+    protected Void call() throws Exception {
+        try {
+            analyzePendingSongs();
+        } finally {
+            m_finished.countDown();
+        }
+        return null;
+    }
+
+    /**
+     * Function to wait until the analysis has stopped and the results it gathered are saved, so the database can be
+     * closed after it is cancelled. Must not be called on the JavaFX thread, since the results are saved there.
+     *
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public void awaitResultsSaved() throws InterruptedException {
+        if (!m_finished.await(SHUTDOWN_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)) {
+            System.out.println("Gave up waiting for the loudness analysis to stop");
+            return;
+        }
+        // Runs after the batches the analysis already handed to the JavaFX thread.
+        CountDownLatch saved = new CountDownLatch(1);
+        Platform.runLater(saved::countDown);
+        saved.await(SHUTDOWN_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Helper function to analyze the songs that have no values yet on the workers, reporting the progress and saving
+     * the results until they are done or the analysis is cancelled.
+     */
+    private void analyzePendingSongs() {
+        List<Song> pendingSongs = new ArrayList<>();
+        for (Song song : m_songs) {
+            File file = song.getFile();
+            Long analyzedTime = m_analyzedTimes.get(file.getAbsolutePath());
+            boolean isAnalyzed = analyzedTime != null && analyzedTime == file.lastModified();
+            if (!isAnalyzed && song.getM_replayGain().isEmpty() && file.isFile()) {
+                pendingSongs.add(song);
+            }
+        }
+        System.out.println("**** Loudness analysis: " + pendingSongs.size() + " of " + m_songs.size() +
+                " songs to analyze on " + m_workerCount + " workers");
+        if (pendingSongs.isEmpty()) {
+            return;
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(m_workerCount, runnable -> {
+            Thread workerThread = new Thread(runnable, "analysis-worker-" + threadCount.incrementAndGet());
+            workerThread.setDaemon(true);
+            workerThread.setPriority(Thread.MIN_PRIORITY);
+            return workerThread;
+        });
+        for (Song song : pendingSongs) {
+            workers.submit(() -> analyzeSong(song));
+        }
+        workers.shutdown();
+
+        long startTime = System.nanoTime();
+        try {
+            while (!workers.awaitTermination(UPDATE_INTERVAL_IN_MILLISECONDS, TimeUnit.MILLISECONDS)) {
+                reportProgress(pendingSongs.size(), startTime);
+            }
+        } catch (InterruptedException e) {
+            // Cancelled, the songs analyzed so far are still saved.
+        } finally {
+            workers.shutdownNow();
+            reportProgress(pendingSongs.size(), startTime);
+            System.out.println("**** Loudness analysis: " + m_songsAnalyzed + " songs analyzed, " +
+                    String.format("%.2f", m_tracksPerSecond) + " tracks/sec" + (isCancelled() ? " (cancelled)" : ""));
+        }
+    }
+
+    /**
+     * Helper function for a worker to decode a song and measure it. Errors are printed and the song is skipped.
+     *
+     * @param song The song to analyze.
+     */
+    private void analyzeSong(Song song) {
+        if (isCancelled()) {
+            return;
+        }
+        File file = song.getFile();
+        long lastModified = file.lastModified();
+        AudioCodec codec = CodecRegistry.detect(file);
+        if (codec == null || !codec.canDecode()) {
+            return;
+        }
+
+        LoudnessMeter meter;
+        try (PcmDecoder decoder = codec.openDecoder(file, 0)) {
+            AudioFormat format = decoder.getFormat();
+            meter = new LoudnessMeter((int) format.getSampleRate(), format.getChannels());
+            short[] samples = new short[DECODE_CHUNK_IN_SAMPLES];
+            long busyStartTime = System.nanoTime();
+            int chunkCount = 0;
+            int count;
+            while ((count = decoder.read(samples, 0, samples.length)) >= 0) {
+                if (isCancelled()) {
+                    return;
+                }
+                meter.addSamples(samples, count);
+
+                if (++chunkCount % THROTTLE_INTERVAL_IN_CHUNKS == 0) {
+                    throttle(System.nanoTime() - busyStartTime);
+                    busyStartTime = System.nanoTime();
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        } catch (InterruptedException e) {
+            return;
+        }
+
+        // Silent songs are stored without a gain, so they are not analyzed again.
+        ReplayGain replayGain = new ReplayGain((float) meter.getReplayGain(), (float) meter.getPeak(),
+                                               Float.NaN, Float.NaN);
+        m_results.add(new AnalysisResult(song, lastModified, replayGain));
+        m_songsAnalyzed.incrementAndGet();
+    }
+
+    /**
+     * Helper function for a worker to sleep long enough to only be busy for the duty share of the time.
+     *
+     * @param busyTimeInNanoseconds How long the worker was decoding since it last slept.
+     * @throws InterruptedException If the analysis is cancelled while sleeping.
+     */
+    private void throttle(long busyTimeInNanoseconds) throws InterruptedException {
+        if (m_dutyPercent >= MAX_DUTY_PERCENT) {
+            return;
+        }
+        long sleepTimeInNanoseconds = busyTimeInNanoseconds * (MAX_DUTY_PERCENT - m_dutyPercent) / m_dutyPercent;
+        Thread.sleep(sleepTimeInNanoseconds / NANOSECONDS_IN_MILLISECOND,
+                     (int) (sleepTimeInNanoseconds % NANOSECONDS_IN_MILLISECOND));
+    }
+
+    /**
+     * Helper function to update the progress and save the results gathered since the last update in one batch.
+     *
+     * @param songCount The number of songs being analyzed.
+     * @param startTime The time the analysis started, from System.nanoTime().
+     */
+    private void reportProgress(int songCount, long startTime) {
+        int songsAnalyzed = m_songsAnalyzed.get();
+        double elapsedTimeInSeconds = (System.nanoTime() - startTime) / NANOSECONDS_IN_SECOND;
+        m_tracksPerSecond = (elapsedTimeInSeconds > 0) ? songsAnalyzed / elapsedTimeInSeconds : 0;
+        updateProgress(songsAnalyzed, songCount);
+        updateMessage("Analyzed " + songsAnalyzed + " of " + songCount + " songs (" +
+                String.format("%.2f", m_tracksPerSecond) + " tracks/sec)");
+
+        List<AnalysisResult> results = new ArrayList<>();
+        for (AnalysisResult result = m_results.poll(); result != null; result = m_results.poll()) {
+            results.add(result);
+        }
+        if (results.isEmpty()) {
+            return;
+        }
+        Platform.runLater(() -> {
+            Map<String, Pair<Long, ReplayGain>> replayGains = new HashMap<>();
+            for (AnalysisResult result : results) {
+                result.m_song.setReplayGain(result.m_replayGain);
+                replayGains.put(result.m_song.getFile().getAbsolutePath(),
+                                new Pair<>(result.m_lastModified, result.m_replayGain));
+            }
+            m_databaseManager.saveReplayGains(replayGains);
+        });
+    }
+
+    /**********
+     * Getters for the analysis statistics
+     *************/
+
+    public int getSongsAnalyzed() {
+        return m_songsAnalyzed.get();
+    }
+
+    public double getTracksPerSecond() {
+        return m_tracksPerSecond;
+    }
+
+    /**
+     * The measured values of a song, waiting to be saved.
+     */
+    private static class AnalysisResult {
+        private final Song m_song;
+        private final long m_lastModified;
+        private final ReplayGain m_replayGain;
+
+        AnalysisResult(Song song, long lastModified, ReplayGain replayGain) {
+            m_song = song;
+            m_lastModified = lastModified;
+            m_replayGain = replayGain;
+        }
+    }
+}
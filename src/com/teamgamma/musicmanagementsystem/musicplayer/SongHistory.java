@@ -0,0 +1,237 @@
+package com.teamgamma.musicmanagementsystem.musicplayer;
+
+import com.teamgamma.musicmanagementsystem.model.Song;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class for the history of played songs. The songs are kept in a ring buffer of a fixed size, so adding a song is
+ * constant time and the oldest song is dropped once the history is full.
+ *
+ * The number of times each song is in the history is counted by song object, so removing a song that is not in the
+ * history does not look at the buffer, and removing one that is takes a single pass. The count is not by path, since
+ * renaming or moving a song changes the file of the same object.
+ */
+public class SongHistory extends AbstractList<Song> {
+    private final Song[] m_slots;
+
+    // The slot of the oldest song.
+    private int m_head = 0;
+
+    private int m_size = 0;
+
+    private final Map<Song, Integer> m_instanceCounts = new IdentityHashMap<>();
+
+    /**
+     * Constructor
+     *
+     * @param capacity The number of songs to keep.
+     */
+    public SongHistory(int capacity) {
+        m_slots = new Song[capacity];
+    }
+
+    /**
+     * Function to add a song as the newest song in the history, dropping the oldest song if the history is full.
+     *
+     * @param song The song to add.
+     * @return True if the oldest song was dropped to make room, false otherwise.
+     */
+    public boolean append(Song song) {
+        boolean isDroppingOldest = isFull();
+        if (isDroppingOldest) {
+            Song oldest = m_slots[m_head];
+            m_slots[m_head] = null;
+            m_head = toSlot(1);
+            m_size--;
+            removeInstance(oldest);
+        }
+        m_slots[toSlot(m_size)] = song;
+        m_size++;
+        addInstance(song);
+        modCount++;
+        return isDroppingOldest;
+    }
+
+    @Override
+    public boolean add(Song song) {
+        append(song);
+        return true;
+    }
+
+    @Override
+    public Song get(int index) {
+        checkIndex(index);
+        return m_slots[toSlot(index)];
+    }
+
+    @Override
+    public Song set(int index, Song song) {
+        checkIndex(index);
+        int slot = toSlot(index);
+        Song oldSong = m_slots[slot];
+        m_slots[slot] = song;
+        removeInstance(oldSong);
+        addInstance(song);
+        return oldSong;
+    }
+
+    @Override
+    public Song remove(int index) {
+        checkIndex(index);
+        Song song = m_slots[toSlot(index)];
+        for (int i = index; i < m_size - 1; i++) {
+            m_slots[toSlot(i)] = m_slots[toSlot(i + 1)];
+        }
+        m_slots[toSlot(m_size - 1)] = null;
+        m_size--;
+        removeInstance(song);
+        modCount++;
+        return song;
+    }
+
+    /**
+     * Function to remove every instance of a song from the history in one pass.
+     *
+     * @param songPath  The path of the song to remove.
+     * @param cursor    A position in the history to keep pointing at the same song.
+     * @return The position the cursor moved to after the songs before it were removed, kept inside the history.
+     */
+    public int removeAllInstances(String songPath, int cursor) {
+        Set<Song> removedSongs = Collections.newSetFromMap(new IdentityHashMap<>());
+        Iterator<Song> countedSongs = m_instanceCounts.keySet().iterator();
+        while (countedSongs.hasNext()) {
+            Song song = countedSongs.next();
+            if (getPath(song).equals(songPath)) {
+                removedSongs.add(song);
+                countedSongs.remove();
+            }
+        }
+        if (removedSongs.isEmpty()) {
+            return cursor;
+        }
+
+        int newCursor = cursor;
+        int kept = 0;
+        for (int i = 0; i < m_size; i++) {
+            Song song = m_slots[toSlot(i)];
+            if (removedSongs.contains(song)) {
+                if (i < cursor) {
+                    newCursor--;
+                }
+            } else {
+                m_slots[toSlot(kept++)] = song;
+            }
+        }
+        for (int i = kept; i < m_size; i++) {
+            m_slots[toSlot(i)] = null;
+        }
+        m_size = kept;
+        modCount++;
+        return Math.max(0, Math.min(newCursor, m_size - 1));
+    }
+
+    /**
+     * Function to replace other objects of the songs that were moved or renamed with the moved objects. The moved
+     * objects already point to their new files, so they stay as they are.
+     *
+     * @param relocatedSongs Map from the old path of each moved song to the moved song.
+     */
+    public void relocate(Map<String, Song> relocatedSongs) {
+        Set<Song> movedSongs = Collections.newSetFromMap(new IdentityHashMap<>());
+        movedSongs.addAll(relocatedSongs.values());
+
+        for (int i = 0; i < m_size; i++) {
+            Song song = m_slots[toSlot(i)];
+            Song newSong = relocatedSongs.get(getPath(song));
+            if (newSong != null && !movedSongs.contains(song)) {
+                set(i, newSong);
+            }
+        }
+    }
+
+    /**
+     * Function to check if adding another song will drop the oldest one.
+     *
+     * @return True if the history is full, false otherwise.
+     */
+    public boolean isFull() {
+        return m_size == m_slots.length;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < m_size; i++) {
+            m_slots[toSlot(i)] = null;
+        }
+        m_head = 0;
+        m_size = 0;
+        m_instanceCounts.clear();
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return m_size;
+    }
+
+    /**
+     * Helper function to find the slot of a position in the history.
+     *
+     * @param index The position from the oldest song.
+     * @return The index in the buffer.
+     */
+    private int toSlot(int index) {
+        return (m_head + index) % m_slots.length;
+    }
+
+    /**
+     * Helper function to check that a position is in the history.
+     *
+     * @param index The position to check.
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= m_size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + m_size);
+        }
+    }
+
+    /**
+     * Helper function to count one more instance of a song.
+     *
+     * @param song The song.
+     */
+    private void addInstance(Song song) {
+        Integer count = m_instanceCounts.get(song);
+        m_instanceCounts.put(song, (count == null) ? 1 : count + 1);
+    }
+
+    /**
+     * Helper function to count one less instance of a song.
+     *
+     * @param song The song.
+     */
+    private void removeInstance(Song song) {
+        Integer count = m_instanceCounts.get(song);
+        if (count == null || count == 1) {
+            m_instanceCounts.remove(song);
+        } else {
+            m_instanceCounts.put(song, count - 1);
+        }
+    }
+
+    /**
+     * Helper function to get the path of a song.
+     *
+     * @param song The song.
+     * @return The path of the song.
+     */
+    private static String getPath(Song song) {
+        return song.getFile().getAbsolutePath();
+    }
+}
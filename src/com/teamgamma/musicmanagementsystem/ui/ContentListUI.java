@@ -9,8 +9,8 @@ import com.teamgamma.musicmanagementsystem.util.FileTreeUtils;
 import com.teamgamma.musicmanagementsystem.util.UserInterfaceUtils;
 import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.control.cell.TextFieldTableCell;
 import javafx.scene.input.*;
 import javafx.scene.layout.StackPane;
@@ -60,6 +60,7 @@ public class ContentListUI extends StackPane {
     private DatabaseManager m_databaseManager;
     private ContextMenu m_contextMenu;
     private TableView<Song> m_table;
+    private ObservableList<Song> m_songs;
 
     /**
      * Constructor
@@ -84,20 +85,11 @@ public class ContentListUI extends StackPane {
      * Register as a observer to changes for the folder selected to be displayed here
      */
     private void registerAsObservers() {
-        m_model.addLibraryObserver((fileActions) -> {
-            clearTable();
-            updateTable();
-        });
+        m_model.addLibraryObserver((fileActions) -> updateTable());
 
-        m_model.addCenterFolderObserver((fileActions) -> {
-            clearTable();
-            updateTable();
-        });
+        m_model.addCenterFolderObserver((fileActions) -> updateTable());
 
-        m_model.addFileObserver((fileActions) -> {
-            clearTable();
-            updateTable();
-        });
+        m_model.addFileObserver((fileActions) -> updateTable());
     }
 
     /**
@@ -108,6 +100,8 @@ public class ContentListUI extends StackPane {
     private void initTableView(Map<String, Boolean> tableColumnVisibilityMap) {
         m_table = new TableView<>();
         m_table.setTableMenuButtonVisible(true);
+        m_songs = FXCollections.observableArrayList();
+        m_table.setItems(UserInterfaceUtils.createSortedItems(m_songs, m_table));
         setTableColumns(tableColumnVisibilityMap);
         setTableRowMouseEvents();
         setDragEvents();
@@ -176,28 +170,22 @@ public class ContentListUI extends StackPane {
     }
 
     /**
-     * Clear the song explorer table
-     */
-    private void clearTable() {
-        System.out.println("Clearing song explorer table...");
-        m_table.getItems().clear();
-    }
-
-    /**
-     * Update the song explorer table
+     * Update the song explorer table. Only the songs that were added or removed change in the table, so the scroll
+     * position and selection stay where they were. Edited songs update their own cells through their properties.
      */
     private void updateTable() {
         System.out.println("Updating song explorer table...");
+        List<Song> songs = new ArrayList<>();
         if (m_model.getM_selectedCenterFolder() != null) {
-            List<Song> songs = m_model.getCenterPanelSongs();
+            songs = m_model.getCenterPanelSongs();
             if (songs.isEmpty()) {
                 m_table.setPlaceholder(new Label("No songs in folder"));
-            } else {
-                m_table.setItems(FXCollections.observableArrayList(songs));
             }
         } else {
             m_table.setPlaceholder(new Label("Choose a folder to view its contents"));
         }
+
+        UserInterfaceUtils.updateSongList(m_songs, songs);
     }
 
     /**
@@ -254,19 +242,19 @@ public class ContentListUI extends StackPane {
 
         fileNameCol.setCellValueFactory((param) -> new ReadOnlyObjectWrapper<>(param.getValue().getFileName()));
 
-        titleCol.setCellValueFactory(new PropertyValueFactory<>("m_title"));
+        titleCol.setCellValueFactory((param) -> param.getValue().titleProperty());
         titleCol.setCellFactory(TextFieldTableCell.forTableColumn());
         titleCol.setOnEditCommit((t) -> t.getTableView().getItems().get(t.getTablePosition().getRow()).setTitle(t.getNewValue()));
 
-        artistCol.setCellValueFactory(new PropertyValueFactory<>("m_artist"));
+        artistCol.setCellValueFactory((param) -> param.getValue().artistProperty());
         artistCol.setCellFactory(TextFieldTableCell.forTableColumn());
         artistCol.setOnEditCommit((t) -> t.getTableView().getItems().get(t.getTablePosition().getRow()).setArtist(t.getNewValue()));
 
-        albumCol.setCellValueFactory(new PropertyValueFactory<>("m_album"));
+        albumCol.setCellValueFactory((param) -> param.getValue().albumProperty());
         albumCol.setCellFactory(TextFieldTableCell.forTableColumn());
         albumCol.setOnEditCommit((t) -> t.getTableView().getItems().get(t.getTablePosition().getRow()).setAlbum(t.getNewValue()));
 
-        genreCol.setCellValueFactory(new PropertyValueFactory<>("m_genre"));
+        genreCol.setCellValueFactory((param) -> param.getValue().genreProperty());
         genreCol.setCellFactory(TextFieldTableCell.forTableColumn());
         genreCol.setOnEditCommit((t) -> t.getTableView().getItems().get(t.getTablePosition().getRow()).setGenre(t.getNewValue()));
 
@@ -276,14 +264,15 @@ public class ContentListUI extends StackPane {
             return new ReadOnlyObjectWrapper<>(UserInterfaceUtils.convertDurationToTimeString(lengthOfSong));
         });
 
-        ratingCol.setCellValueFactory(new PropertyValueFactory<>("m_rating"));
+        ratingCol.setCellValueFactory((param) -> param.getValue().ratingProperty());
         ratingCol.setCellFactory(TextFieldTableCell.forTableColumn(new IntegerStringConverter()));
         ratingCol.setOnEditCommit((t) -> {
             try {
                 t.getTableView().getItems().get(t.getTablePosition().getRow()).setRating(t.getNewValue());
             } catch (IllegalArgumentException ex) {
                 PromptUI.customPromptError("Error", "", "Rating should be in range 0 to 5");
-                m_model.notifyCenterFolderObservers();
+                // The rating was not changed, draw the old one again instead of what was typed.
+                t.getTableView().refresh();
             }
         });
     }
@@ -6,6 +6,7 @@ import com.teamgamma.musicmanagementsystem.util.ConcreteFileActions;
 import com.teamgamma.musicmanagementsystem.util.FileActions;
 import com.teamgamma.musicmanagementsystem.ApplicationController;
 import com.teamgamma.musicmanagementsystem.util.GeneralObserver;
+import com.teamgamma.musicmanagementsystem.util.PlaylistExportTask;
 
 import javafx.application.Platform;
 import javafx.concurrent.Task;
@@ -294,7 +295,15 @@ public class MenuUI extends MenuBar{
         exportPlaylistMenu.setOnAction(event -> {
             Pair<Playlist, File> playlistFilePair = PromptUI.exportPlaylist(m_model.getM_playlists());
             if (playlistFilePair != null) {
-                m_model.copyPlaylistToDestination(playlistFilePair.getKey(), playlistFilePair.getValue());
+                boolean isWritingM3U = PromptUI.exportPlaylistM3U();
+                PlaylistExportTask exportTask = m_model.copyPlaylistToDestination(
+                        playlistFilePair.getKey(), playlistFilePair.getValue(), isWritingM3U);
+                exportTask.setOnFailed(failedEvent -> {
+                    Throwable ex = exportTask.getException();
+                    PromptUI.customPromptError("Error", null,
+                            "Failed to export playlist: " + (ex == null ? "" : ex.getMessage()));
+                });
+                PromptUI.createProgressScreen(new Stage(), exportTask, true);
             }
         });
 
@@ -1,15 +1,16 @@
 package com.teamgamma.musicmanagementsystem.ui;
 
+import com.teamgamma.musicmanagementsystem.model.Song;
 import com.teamgamma.musicmanagementsystem.model.SongManager;
 import com.teamgamma.musicmanagementsystem.util.Action;
 import com.teamgamma.musicmanagementsystem.util.ContextMenuBuilder;
 import com.teamgamma.musicmanagementsystem.musicplayer.MusicPlayerManager;
 import com.teamgamma.musicmanagementsystem.util.UserInterfaceUtils;
-import com.teamgamma.musicmanagementsystem.util.UserInterfaceUtils.ILabelAction;
 
 import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.scene.control.*;
-import javafx.scene.layout.*;
 import javafx.util.Pair;
 
 import java.io.File;
@@ -26,6 +27,12 @@ public class MusicPlayerHistoryUI extends Accordion{
 
     private MusicPlayerManager m_manager;
 
+    private ObservableList<Song> m_displayedHistory;
+
+    private ListView<Song> m_historyList;
+
+    private ContextMenu m_playbackMenu;
+
     /**
      * Constructor
      *
@@ -34,16 +41,15 @@ public class MusicPlayerHistoryUI extends Accordion{
     public MusicPlayerHistoryUI(SongManager model) {
         m_manager = model.getMusicPlayerManager();
 
-        TitledPane playbackHistory = UserInterfaceUtils.createTitlePane(PLAYBACK_HISTORY_HEADER, m_manager.getHistory(),
-                createHistoryAction(model));
+        m_displayedHistory = FXCollections.observableArrayList(m_manager.getHistory());
+        m_historyList = UserInterfaceUtils.createSongListView(m_displayedHistory,
+                listView -> createHistoryCell(model), null);
+        TitledPane playbackHistory = UserInterfaceUtils.createTitlePane(PLAYBACK_HISTORY_HEADER, m_historyList);
 
         this.getPanes().add(playbackHistory);
 
         m_manager.registerNewSongObserver(
-                () -> Platform.runLater(
-                    () -> playbackHistory.setContent(UserInterfaceUtils.createUIList(m_manager.getHistory(),
-                            createHistoryAction(model)))
-                )
+                () -> Platform.runLater(this::updateHistoryList)
         );
 
         model.addFileObserver(fileActions -> {
@@ -52,11 +58,7 @@ public class MusicPlayerHistoryUI extends Accordion{
                     m_manager.removeAllInstancesOfSongFromHistory(action.getValue().getAbsolutePath());
                 }
             }
-            Platform.runLater(
-                    () -> playbackHistory.setContent(UserInterfaceUtils.createUIList(m_manager.getHistory(),
-                            createHistoryAction(model)))
-            );
-
+            Platform.runLater(this::updateHistoryList);
         });
 
         model.addMinimodeObserver(() -> {
@@ -68,57 +70,47 @@ public class MusicPlayerHistoryUI extends Accordion{
     }
 
     /**
-     * Helper Function to create a styled label for the oldest element.
-     *
-     * @param message The message you want the label to have
-     * @return A styled label that contains the message given.
+     * Helper function to show the changes to the history, and mark the song that is playing from it again.
      */
-    private Label createCurrentPlayingLabelStyle(String message) {
-        Label styledLabel = new Label(message);
-        styledLabel.setStyle("-fx-font-style: italic; -fx-font-weight: bold");
-
-        return styledLabel;
+    private void updateHistoryList() {
+        UserInterfaceUtils.updateSongList(m_displayedHistory, m_manager.getHistory());
+        m_historyList.refresh();
     }
 
     /**
-     * Function to create a implementation of the interface that will contain the logic for displaying songs that are
-     * in the history.
+     * Function to create a cell for a song in the history. The song that is playing from the history is shown in
+     * bold, double clicking a song plays it.
      *
      * @param songManager The model
      *
-     * @return The implementation of the history action.
+     * @return The cell.
      */
-    private ILabelAction createHistoryAction(SongManager songManager){
-        return (songForRow, songNumber) -> {
-            HBox row = new HBox();
-
-            // Since we are starting the list from 1 the index needs to be compensated for.
-            if (m_manager.isPlayingSongOnFromHistoryList() && songNumber == m_manager.getM_historyIndex() + 1) {
-                row.getChildren().add(createCurrentPlayingLabelStyle(Integer.toString(songNumber)));
-
-                Label fileName = createCurrentPlayingLabelStyle(songForRow.getFileName());
-                row.getChildren().add(fileName);
-                HBox.setHgrow(fileName, Priority.ALWAYS);
-            } else {
-                row.getChildren().add(new Label(Integer.toString(songNumber)));
-
-                Label fileName = new Label(songForRow.getFileName());
-                row.getChildren().add(fileName);
-                HBox.setHgrow(fileName, Priority.ALWAYS);
+    private ListCell<Song> createHistoryCell(SongManager songManager) {
+        SongListCell cell = new SongListCell(null) {
+            @Override
+            protected void updateItem(Song song, boolean empty) {
+                super.updateItem(song, empty);
+                setHighlighted(!empty && m_manager.isPlayingSongOnFromHistoryList() &&
+                        getIndex() == m_manager.getM_historyIndex());
             }
+        };
 
-            ContextMenu playbackMenu = ContextMenuBuilder.buildPlaybackContextMenu(m_manager, songManager, songForRow);
-            row.setOnContextMenuRequested(event -> {
-                playbackMenu.hide();
-                playbackMenu.show(row, event.getScreenX(), event.getScreenY());
-            });
+        cell.setOnContextMenuRequested(event -> {
+            if (cell.isEmpty()) {
+                return;
+            }
+            if (m_playbackMenu != null) {
+                m_playbackMenu.hide();
+            }
+            m_playbackMenu = ContextMenuBuilder.buildPlaybackContextMenu(m_manager, songManager, cell.getItem());
+            m_playbackMenu.show(cell, event.getScreenX(), event.getScreenY());
+        });
 
-            row.setOnMouseClicked(event -> {
-                if (event.getClickCount() == DOUBLE_CLICK) {
-                    m_manager.playSongFromHistory(songNumber - 1);
-                }
-            });
-            return row;
-        };
+        cell.setOnMouseClicked(event -> {
+            if (!cell.isEmpty() && event.getClickCount() == DOUBLE_CLICK) {
+                m_manager.playSongFromHistory(cell.getIndex());
+            }
+        });
+        return cell;
     }
 }
@@ -7,9 +7,10 @@ import com.teamgamma.musicmanagementsystem.musicplayer.MusicPlayerManager;
 import com.teamgamma.musicmanagementsystem.util.Action;
 import com.teamgamma.musicmanagementsystem.util.ContextMenuBuilder;
 import com.teamgamma.musicmanagementsystem.util.UserInterfaceUtils;
-import com.teamgamma.musicmanagementsystem.util.UserInterfaceUtils.ILabelAction;
 
 import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.scene.control.*;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.TransferMode;
@@ -32,6 +33,10 @@ public class MusicPlayerPlaybackQueueUI extends Accordion{
 
     private MusicPlayerManager m_manager;
 
+    private ObservableList<Song> m_displayedQueue;
+
+    private ContextMenu m_playbackMenu;
+
     /**
      * Constructor
      * @param songManager   The song manager
@@ -39,8 +44,10 @@ public class MusicPlayerPlaybackQueueUI extends Accordion{
     public MusicPlayerPlaybackQueueUI(SongManager songManager) {
         m_manager = songManager.getMusicPlayerManager();
 
-        TitledPane queuingList = UserInterfaceUtils.createTitlePane(QUEUING_HEADER, m_manager.getPlayingQueue(),
-                createPlaybackQueueAction(songManager), BRIGHT_BACKGROUND_COLOR);
+        m_displayedQueue = FXCollections.observableArrayList(m_manager.getPlayingQueue());
+        ListView<Song> queueList = UserInterfaceUtils.createSongListView(m_displayedQueue,
+                listView -> createPlaybackQueueCell(songManager), BRIGHT_BACKGROUND_COLOR);
+        TitledPane queuingList = UserInterfaceUtils.createTitlePane(QUEUING_HEADER, queueList);
 
         queuingList.setStyle(BRIGHT_BACKGROUND_COLOR);
 
@@ -53,10 +60,7 @@ public class MusicPlayerPlaybackQueueUI extends Accordion{
         this.getPanes().add(queuingList);
 
         m_manager.registerQueingObserver(
-            () -> Platform.runLater(
-                () -> queuingList.setContent(UserInterfaceUtils.createUIList(m_manager.getPlayingQueue(),
-                        createPlaybackQueueAction(songManager), BRIGHT_BACKGROUND_COLOR))
-            )
+            () -> Platform.runLater(this::updateQueueList)
         );
 
         m_manager.registerNewSongObserver(
@@ -75,12 +79,7 @@ public class MusicPlayerPlaybackQueueUI extends Accordion{
                     m_manager.removeAllInstancesOfSongFromPlaybackQueue(action.getValue().getAbsolutePath());
                 }
             }
-            Platform.runLater(
-                () -> queuingList.setContent(UserInterfaceUtils.createUIList(
-                        m_manager.getPlayingQueue(),
-                            createPlaybackQueueAction(songManager),
-                            BRIGHT_BACKGROUND_COLOR))
-            );
+            Platform.runLater(this::updateQueueList);
         });
 
         songManager.addMinimodeObserver(() -> {
@@ -91,6 +90,13 @@ public class MusicPlayerPlaybackQueueUI extends Accordion{
         });
     }
 
+    /**
+     * Helper function to show the changes to the playback queue.
+     */
+    private void updateQueueList() {
+        UserInterfaceUtils.updateSongList(m_displayedQueue, m_manager.getPlayingQueue());
+    }
+
     /**
      * Function to set the dragging actions for the Queuing list.
      *
@@ -124,37 +130,29 @@ public class MusicPlayerPlaybackQueueUI extends Accordion{
     }
 
     /**
-     * Function to create a implementation of the interface that will contain the logic for displaying songs in the
-     * playback queue.
+     * Function to create a cell for a song in the playback queue, with a menu to remove the song from the queue.
      *
      * @param songManager The SongManager model
      *
-     * @return The implementation of the playback action.
+     * @return The cell.
      */
-    private ILabelAction createPlaybackQueueAction(SongManager songManager){
-        return (songForRow, songNumber) -> {
-            HBox row = new HBox();
+    private ListCell<Song> createPlaybackQueueCell(SongManager songManager) {
+        SongListCell cell = new SongListCell(BRIGHT_BACKGROUND_COLOR);
 
-            row.getChildren().add(new Label(Integer.toString(songNumber)));
-
-            Label fileName = new Label(songForRow.getFileName());
-            row.getChildren().add(fileName);
-            HBox.setHgrow(fileName, Priority.ALWAYS);
-
-            ContextMenu playbackMenu = ContextMenuBuilder.buildPlaybackContextMenu(m_manager, songManager, songForRow);
+        cell.setOnMouseClicked((event) -> {
+            if (cell.isEmpty() || event.getButton() != MouseButton.SECONDARY) {
+                return;
+            }
+            if (m_playbackMenu != null) {
+                m_playbackMenu.hide();
+            }
+            int songIndex = cell.getIndex();
+            m_playbackMenu = ContextMenuBuilder.buildPlaybackContextMenu(m_manager, songManager, cell.getItem());
             MenuItem removeSong = new MenuItem(REMOVE_SONG_FROM_QUEUE_MENU_MESSAGE);
-            removeSong.setOnAction((event) -> m_manager.removeSongFromPlaybackQueue(songNumber - 1));
-            playbackMenu.getItems().add(removeSong);
-
-            row.setOnMouseClicked((event) -> {
-                if (event.getButton() == MouseButton.SECONDARY) {
-                    playbackMenu.hide();
-                    playbackMenu.show(row, event.getScreenX(), event.getScreenY());
-                }
-            });
-
-            row.setStyle(BRIGHT_BACKGROUND_COLOR);
-            return row;
-        };
+            removeSong.setOnAction((menuEvent) -> m_manager.removeSongFromPlaybackQueue(songIndex));
+            m_playbackMenu.getItems().add(removeSong);
+            m_playbackMenu.show(cell, event.getScreenX(), event.getScreenY());
+        });
+        return cell;
     }
 }
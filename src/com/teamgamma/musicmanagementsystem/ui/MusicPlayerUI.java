@@ -623,11 +623,9 @@ public class MusicPlayerUI extends VBox {
             Duration currentPlayTime = manager.getCurrentPlayTime();
 
             double progress = currentPlayTime.toMillis() / manager.getEndTime().toMillis();
-            Platform.runLater(() -> {
-                songPlaybar.setProgress(progress);
-                playbackSlider.setValue(progress);
-                playbackTimeToolTip.setText(UserInterfaceUtils.convertDurationToTimeString(manager.getCurrentPlayTime()));
-            });
+            songPlaybar.setProgress(progress);
+            playbackSlider.setValue(progress);
+            playbackTimeToolTip.setText(UserInterfaceUtils.convertDurationToTimeString(currentPlayTime));
         });
 
         musicPlayerProgress.getChildren().addAll(progressWrapper, playbackSliderWrapper);
@@ -701,13 +699,9 @@ public class MusicPlayerUI extends VBox {
                         () -> songEndTimeText.setText(UserInterfaceUtils.convertDurationToTimeString(manager.getEndTime()))
                 )
         );
-        manager.registerPlaybackObserver(() ->
-            // http://stackoverflow.com/questions/29449297/java-lang-illegalstateexception-not-on-fx-application-thread-currentthread-t
-            // https://bugs.openjdk.java.net/browse/JDK-8088376
-            Platform.runLater(
-                    () -> currentTimeLabel.setText(
-                            UserInterfaceUtils.convertDurationToTimeString(manager.getCurrentPlayTime()))
-            )
+        // The playback observers are called on the JavaFX thread, and the text only changes once a second.
+        manager.registerPlaybackObserver(
+                () -> currentTimeLabel.setText(UserInterfaceUtils.convertDurationToTimeString(manager.getCurrentPlayTime()))
         );
         return songTimesWrapper;
     }
@@ -13,7 +13,6 @@ import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Label;
 import javafx.scene.control.TableView;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.*;
 import javafx.scene.layout.*;
@@ -21,6 +20,7 @@ import javafx.scene.control.*;
 import javafx.util.Callback;
 import javafx.util.Duration;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -88,6 +88,7 @@ public class PlaylistUI extends VBox {
     private DatabaseManager m_databaseManager;
     private ContextMenu m_contextMenu;
     private TableView<Song> m_table;
+    private ObservableList<Song> m_songs;
     private ComboBox<Playlist> m_dropDownMenu;
 
     public PlaylistUI(SongManager model,
@@ -121,23 +122,15 @@ public class PlaylistUI extends VBox {
         m_model.addPlaylistObserver(() -> {
             m_dropDownMenu.getItems().clear();
             m_dropDownMenu.getItems().addAll(m_model.getM_playlists());
-            clearTable();
             updateTable();
         });
 
-        m_model.addPlaylistSongObserver(() -> {
-            clearTable();
-            updateTable();
-        });
+        m_model.addPlaylistSongObserver(this::updateTable);
 
-        m_model.addLibraryObserver((fileActions) -> {
-            clearTable();
-            updateTable();
-        });
+        m_model.addLibraryObserver((fileActions) -> updateTable());
 
         m_model.addFileObserver((fileActions) -> {
             m_model.refreshPlaylists();
-            clearTable();
             updateTable();
         });
     }
@@ -429,6 +422,8 @@ public class PlaylistUI extends VBox {
     private void initTableView(Map<String, Boolean> tableColumnVisibilityMap) {
         m_table = new TableView<>();
         m_table.setTableMenuButtonVisible(true);
+        m_songs = FXCollections.observableArrayList();
+        m_table.setItems(UserInterfaceUtils.createSortedItems(m_songs, m_table));
         setTableColumns(tableColumnVisibilityMap);
         setTableDragEvents();
         setupTableRowFactory();
@@ -497,30 +492,23 @@ public class PlaylistUI extends VBox {
     }
 
     /**
-     * Function to clear the playlist table.
-     */
-    private void clearTable() {
-        m_table.getItems().clear();
-    }
-
-    /**
-     * Function to update the table based on new values from the model.
+     * Function to update the table based on new values from the model. Only the songs that were added or removed
+     * change in the table, edited songs update their own cells through their properties.
      */
     private void updateTable() {
         Playlist selectedPlaylist = m_model.getM_selectedPlaylist();
+        List<Song> songs = Collections.emptyList();
         if (selectedPlaylist != null) {
-            List<Song> songs = selectedPlaylist.getM_songList();
+            songs = selectedPlaylist.getM_songList();
 
             if (songs.isEmpty()) {
                 m_table.setPlaceholder(new Label(EMPTY_PLAYLIST_MESSAGE));
-            } else {
-                m_table.setItems(FXCollections.observableArrayList(songs));
             }
         } else {
             m_table.setPlaceholder(new Label(SELECT_PLAYLIST_HEADER));
         }
 
-        m_table.refresh();
+        UserInterfaceUtils.updateSongList(m_songs, songs);
     }
 
     /**
@@ -574,19 +562,19 @@ public class PlaylistUI extends VBox {
         fileNameCol.setCellValueFactory((param) -> new ReadOnlyObjectWrapper<>(param.getValue().getFileName()));
         fileNameCol.setSortable(false);
 
-        titleCol.setCellValueFactory(new PropertyValueFactory<>("m_title"));
+        titleCol.setCellValueFactory((param) -> param.getValue().titleProperty());
         titleCol.setSortable(false);
 
-        artistCol.setCellValueFactory(new PropertyValueFactory<>("m_artist"));
+        artistCol.setCellValueFactory((param) -> param.getValue().artistProperty());
         artistCol.setSortable(false);
 
-        albumCol.setCellValueFactory(new PropertyValueFactory<>("m_album"));
+        albumCol.setCellValueFactory((param) -> param.getValue().albumProperty());
         albumCol.setSortable(false);
 
-        genreCol.setCellValueFactory(new PropertyValueFactory<>("m_genre"));
+        genreCol.setCellValueFactory((param) -> param.getValue().genreProperty());
         genreCol.setSortable(false);
 
-        ratingCol.setCellValueFactory(new PropertyValueFactory<>("m_rating"));
+        ratingCol.setCellValueFactory((param) -> param.getValue().ratingProperty());
         ratingCol.setSortable(false);
 
         lengthCol.setCellValueFactory((param) -> {
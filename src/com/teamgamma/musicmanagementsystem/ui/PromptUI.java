@@ -19,7 +19,9 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
 import java.text.SimpleDateFormat;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -61,6 +63,7 @@ public class PromptUI {
     private static final String DELETE_MEDIA_TITLE = "Delete Media File";
     private static final String EXPORT_PLAYLIST_TITLE = "Export Playlist";
     private static final String EXPORT_PLAYLIST_HEADER = "Save a playlist to destination";
+    private static final String EXPORT_M3U_MESSAGE = "Also save an M3U playlist file with the exported songs?";
     private static final String PLAYLIST_EMPTY_HEADER = "Please enter at least one character for the playlist name";
     private static final String RENAME_FILE_LABEL = "Rename the file to:";
     private static final String CREATE_NEW_FOLDER_LABEL = "Folder name:";
@@ -77,7 +80,7 @@ public class PromptUI {
     private static final String RECYCLE_SONG_CONFIRM_MESSAGE = "Are you sure you want to move this song to the Recycle Bin?";
     private static final String DELETE_FOLDER_CONFIRM = "Are you sure you want to permanently delete this folder and all of its contents?";
     private static final String DELETE_SONG_CONFIRM = "Are you sure you want to permanently delete this song?";
-    private static final String CORRUPTED_FILE_WARNING = "The program has detected that this file is either corrupted or an invalid MP3 file.";
+    private static final String CORRUPTED_FILE_WARNING = "The program has detected that this file is either corrupted or an invalid audio file.";
     private static final String REMOVE_PLAYLIST_CONFIRMATION = "Are you sure you want to remove this playlist?";
     private static final String REMOVE_SONG_PLAYLIST_CONFIRMATION = "Are you sure you want to remove this song from the playlist?";
     private static final Image PROMPT_ICON = new Image(ClassLoader.getSystemResourceAsStream("gamma-logo.png"));
@@ -89,6 +92,7 @@ public class PromptUI {
     private static final int CLOSING_WINDOW_WIDTH = 400;
     private static final int CLOSING_WINDOW_HEIGHT = 100;
     private static final int LOADING_SIZE = 60;
+    private static final int PROGRESS_WINDOW_SPACING = 10;
     private static final double MESSAGE_OPACITY = .8;
     private static final int FONT_SIZE = 14;
     private static final String LOADING_BACKGROUND_IMAGE = "loading-bg.png";
@@ -394,6 +398,116 @@ public class PromptUI {
         }
     }
 
+    /**
+     * Prompt for editing the metadata of several songs at once. A field starts with the value the songs share, or
+     * empty if they differ, and only the fields that are changed are set on every song.
+     *
+     * @param songs files for editing
+     */
+    public static void editMetadata(List<Song> songs) {
+        final String SONGS_INFO_HEADER = "Editing " + songs.size() + " songs";
+        Dialog<ButtonType> dialog = makeDialog(PROMPT_ICON, EDIT_METADATA_TITLE, "edit-metadata.png", SONGS_INFO_HEADER, null);
+
+        ButtonType okButton = new ButtonType("OK", ButtonBar.ButtonData.OK_DONE);
+        dialog.getDialogPane().getButtonTypes().addAll(okButton, ButtonType.CANCEL);
+
+        final int GAP_SIZE = 10;
+        GridPane grid = new GridPane();
+        grid.setHgap(GAP_SIZE);
+        grid.setVgap(GAP_SIZE);
+
+        final int LEFT = 100;
+        final int BOTTOM = 10;
+        final int TOP = 20;
+        final int RIGHT = 10;
+        grid.setPadding(new Insets(TOP, LEFT, BOTTOM, RIGHT));
+
+        final int SET_WIDTH = 200;
+        final String MULTIPLE_VALUES = "Multiple values";
+        final String KEEP_RATINGS = "Keep ratings";
+
+        String sharedTitle = getSharedValue(songs, Song::getM_title);
+        String sharedArtist = getSharedValue(songs, Song::getM_artist);
+        String sharedAlbum = getSharedValue(songs, Song::getM_album);
+        String sharedGenre = getSharedValue(songs, Song::getM_genre);
+        Integer sharedRating = getSharedValue(songs, Song::getM_rating);
+
+        TextField title = new TextField(sharedTitle == null ? "" : sharedTitle);
+        title.setPromptText(MULTIPLE_VALUES);
+        title.setPrefWidth(SET_WIDTH);
+        TextField artist = new TextField(sharedArtist == null ? "" : sharedArtist);
+        artist.setPromptText(MULTIPLE_VALUES);
+        TextField album = new TextField(sharedAlbum == null ? "" : sharedAlbum);
+        album.setPromptText(MULTIPLE_VALUES);
+        TextField genre = new TextField(sharedGenre == null ? "" : sharedGenre);
+        genre.setPromptText(MULTIPLE_VALUES);
+
+        ChoiceBox<String> rating = new ChoiceBox<>();
+        rating.getItems().addAll(KEEP_RATINGS, "No rating", "1", "2", "3", "4", "5");
+        if (sharedRating == null) {
+            rating.getSelectionModel().select(KEEP_RATINGS);
+        } else if (sharedRating == 0) {
+            rating.getSelectionModel().select("No rating");
+        } else {
+            rating.getSelectionModel().select(sharedRating.toString());
+        }
+        String initialRating = rating.getValue();
+
+        grid.add(new Label("Title:"), 0, 0);
+        grid.add(title, 1, 0);
+        grid.add(new Label("Artist:"), 0, 1);
+        grid.add(artist, 1, 1);
+        grid.add(new Label("Album:"), 0, 2);
+        grid.add(album, 1, 2);
+        grid.add(new Label("Genre:"), 0, 3);
+        grid.add(genre, 1, 3);
+        grid.add(new Label("Rating:"), 0, 4);
+        grid.add(rating, 1, 4);
+
+        dialog.getDialogPane().setContent(grid);
+        Optional<ButtonType> result = dialog.showAndWait();
+
+        if (result.isPresent() && result.get() == okButton) {
+            // The tags are written in the background, so this only updates the songs and queues the writes.
+            for (Song song : songs) {
+                if (!title.getText().equals(sharedTitle == null ? "" : sharedTitle)) {
+                    song.setTitle(title.getText());
+                }
+                if (!artist.getText().equals(sharedArtist == null ? "" : sharedArtist)) {
+                    song.setArtist(artist.getText());
+                }
+                if (!album.getText().equals(sharedAlbum == null ? "" : sharedAlbum)) {
+                    song.setAlbum(album.getText());
+                }
+                if (!genre.getText().equals(sharedGenre == null ? "" : sharedGenre)) {
+                    song.setGenre(genre.getText());
+                }
+
+                String ratingStr = rating.getValue();
+                if (!ratingStr.equals(initialRating) && !ratingStr.equals(KEEP_RATINGS)) {
+                    song.setRating(ratingStr.equals("No rating") ? 0 : Integer.parseInt(ratingStr));
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper function to find a value that all of the songs share.
+     *
+     * @param songs     the songs
+     * @param getter    the function to get the value from a song
+     * @return the shared value, or null if the songs have different values
+     */
+    private static <T> T getSharedValue(List<Song> songs, Function<Song, T> getter) {
+        T sharedValue = getter.apply(songs.get(0));
+        for (Song song : songs) {
+            if (!Objects.equals(sharedValue, getter.apply(song))) {
+                return null;
+            }
+        }
+        return sharedValue;
+    }
+
     // ---------------------- Confirmation Prompts
 
     /**
@@ -556,7 +670,7 @@ public class PromptUI {
 
 
     /**
-     * Corrupted or invalid .mp3 file. Leaves user no choice but to delete the file
+     * Corrupted or invalid audio file. Leaves user no choice but to delete the file
      *
      * @param corruptedFile detected in the system
      * @return true if file has been deleted
@@ -1093,6 +1207,18 @@ public class PromptUI {
         return null;
     }
 
+    /**
+     * Prompt to ask if an M3U file should be written with an exported playlist
+     *
+     * @return true if the user wants an M3U file, false otherwise
+     */
+    public static boolean exportPlaylistM3U() {
+        Alert alert = makeAlertPrompt(AlertType.CONFIRMATION, EXPORT_PLAYLIST_TITLE, null, EXPORT_M3U_MESSAGE);
+        alert.getButtonTypes().setAll(ButtonType.YES, ButtonType.NO);
+        Optional<ButtonType> result = alert.showAndWait();
+        return result.isPresent() && result.get() == ButtonType.YES;
+    }
+
     /**
      * Create basic alert prompt
      *
@@ -1352,6 +1478,55 @@ public class PromptUI {
         new Thread(backgroundTask).start();
     }
 
+    /**
+     * Function to show the progress of a background task. The window closes itself when the task succeeds, fails or
+     * is cancelled.
+     *
+     * @param stage             The stage to use.
+     * @param backgroundTask    The task to do in the background, its message is shown above the progress bar.
+     * @param isCancellable     True to show a button to cancel the task.
+     */
+    public static void createProgressScreen(Stage stage, Task<?> backgroundTask, boolean isCancellable) {
+        ProgressBar progress = new ProgressBar();
+        progress.setMaxWidth(Double.MAX_VALUE);
+        progress.progressProperty().bind(backgroundTask.progressProperty());
+
+        Label text = new Label();
+        text.setFont(new Font(FONT_SIZE));
+        text.textProperty().bind(backgroundTask.messageProperty());
+
+        VBox progressWindow = new VBox(text, progress);
+        if (isCancellable) {
+            Button cancelButton = new Button("Cancel");
+            cancelButton.setOnAction(event -> backgroundTask.cancel());
+            progressWindow.getChildren().add(cancelButton);
+        }
+        progressWindow.setSpacing(PROGRESS_WINDOW_SPACING);
+        progressWindow.setPadding(new Insets(PROGRESS_WINDOW_SPACING));
+
+        stage.setTitle(ApplicationController.APP_TITLE);
+        stage.getIcons().add(
+                getLogoIcon()
+        );
+        stage.setScene(new Scene(progressWindow, CLOSING_WINDOW_WIDTH, CLOSING_WINDOW_HEIGHT));
+        stage.setOnCloseRequest(event -> {
+            if (isCancellable) {
+                backgroundTask.cancel();
+            } else {
+                event.consume();
+            }
+        });
+        stage.show();
+
+        backgroundTask.stateProperty().addListener((observable, oldState, newState) -> {
+            if (backgroundTask.isDone()) {
+                stage.close();
+            }
+        });
+
+        new Thread(backgroundTask).start();
+    }
+
     /**
      * Function to get the icon for the application.
      *
@@ -0,0 +1,76 @@
+package com.teamgamma.musicmanagementsystem.ui;
+
+import com.teamgamma.musicmanagementsystem.model.Song;
+import com.teamgamma.musicmanagementsystem.util.UserInterfaceUtils;
+
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+
+/**
+ * Cell to show a numbered song in the playback queue and history lists. The row is built once, and only its text
+ * changes when the list reuses the cell for another song while scrolling.
+ */
+public class SongListCell extends ListCell<Song> {
+    private static final String MOUSE_OVER_STYLE = "-fx-background-color: lightgray";
+    private static final String HIGHLIGHTED_STYLE = "-fx-font-style: italic; -fx-font-weight: bold";
+
+    private final HBox m_row;
+    private final Label m_songNumber;
+    private final Label m_fileName;
+    private final String m_style;
+
+    /**
+     * Constructor
+     *
+     * @param style The style of the cell when the mouse is not over it, null for the default style.
+     */
+    public SongListCell(String style) {
+        m_style = (style == null) ? "" : style;
+
+        m_songNumber = new Label();
+        m_fileName = new Label();
+        HBox.setHgrow(m_fileName, Priority.ALWAYS);
+
+        m_row = new HBox(m_songNumber, m_fileName);
+        m_row.setSpacing(UserInterfaceUtils.HORIZONTAL_ELEMENT_SPACING);
+        m_row.setFillHeight(true);
+
+        setStyle(m_style);
+        setOnMouseEntered(event -> {
+            if (!isEmpty()) {
+                setStyle(MOUSE_OVER_STYLE);
+            }
+        });
+        setOnMouseExited(event -> setStyle(m_style));
+    }
+
+    @Override
+    protected void updateItem(Song song, boolean empty) {
+        super.updateItem(song, empty);
+        setText(null);
+        if (empty || song == null) {
+            setGraphic(null);
+            setStyle(m_style);
+            return;
+        }
+
+        // Songs are numbered from 1 in the lists.
+        m_songNumber.setText(Integer.toString(getIndex() + 1));
+        m_fileName.setText(song.getFileName());
+        setHighlighted(false);
+        setGraphic(m_row);
+    }
+
+    /**
+     * Function to show the song in the cell in bold, to mark the song that is playing.
+     *
+     * @param isHighlighted True to show the song in bold, false to show it normally.
+     */
+    public void setHighlighted(boolean isHighlighted) {
+        String labelStyle = isHighlighted ? HIGHLIGHTED_STYLE : "";
+        m_songNumber.setStyle(labelStyle);
+        m_fileName.setStyle(labelStyle);
+    }
+}
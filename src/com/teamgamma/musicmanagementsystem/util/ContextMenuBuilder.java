@@ -6,6 +6,7 @@ import com.teamgamma.musicmanagementsystem.ui.CellType;
 import com.teamgamma.musicmanagementsystem.ui.PromptUI;
 
 import javafx.scene.control.*;
+import javafx.stage.Stage;
 
 import java.io.File;
 import java.io.IOException;
@@ -174,7 +175,7 @@ public class ContextMenuBuilder {
         MenuItem addToPlaylist = createAddToPlaylistMenuItem(model, musicPlayerManager, selectedSongs);
         MenuItem addToCurrentPlaylist = createAddToCurrentPlaylistMenuItem(model, musicPlayerManager, selectedSongs);
 
-        MenuItem editProperties = createEditPropertiesMenuItem(model, selectedItem);
+        MenuItem editProperties = createEditPropertiesMenuItem(model, selectedItem, selectedSongs);
 
         MenuItem copy = createCopyMenuItem(model, selectedSongs);
         MenuItem paste = createCenterPanelPasteMenuItem(model);
@@ -241,7 +242,7 @@ public class ContextMenuBuilder {
 
         MenuItem removeFromPlaylist = createRemoveFromPlaylistMenuItem(model, musicPlayerManager, selectedSongIndex);
 
-        MenuItem editProperties = createEditPropertiesMenuItem(model, selectedSong);
+        MenuItem editProperties = createEditPropertiesMenuItem(model, selectedSong, selectedSongs);
 
         MenuItem rename = createRenameMenuItem(model, selectedSong);
         MenuItem delete = createTableViewDeleteMenuItem(model, musicPlayerManager, databaseManager, selectedSongs);
@@ -405,19 +406,41 @@ public class ContextMenuBuilder {
                     PromptUI.customPromptError("Not a directory!", null, "Please select a directory as the paste target.");
                     return;
                 }
-                try {
-                    model.copyToDestination(dest);
-                } catch (IOException ex) {
-                    PromptUI.customPromptError("Error", null, "IOException: " + ex.getMessage());
-                } catch (Exception ex) {
-                    PromptUI.customPromptError("Error", null, "Exception: " + ex.getMessage());
-                }
+                startCopy(model, dest);
             }
         });
 
         return paste;
     }
 
+    /**
+     * Function to copy the files in the model copy buffer to a folder in the background, showing the progress.
+     *
+     * @param model     The model to get the files that are to be copied.
+     * @param dest      The folder to paste the files to.
+     */
+    private static void startCopy(SongManager model, File dest) {
+        CopyTask copyTask;
+        try {
+            copyTask = model.copyToDestination(dest);
+        } catch (IOException ex) {
+            PromptUI.customPromptError("Error", null, "IOException: " + ex.getMessage());
+            return;
+        } catch (Exception ex) {
+            PromptUI.customPromptError("Error", null, "Exception: " + ex.getMessage());
+            return;
+        }
+        if (copyTask == null) {
+            return;
+        }
+
+        copyTask.setOnFailed(event -> {
+            Throwable ex = copyTask.getException();
+            PromptUI.customPromptError("Error", null, "Failed to copy: " + (ex == null ? "" : ex.getMessage()));
+        });
+        PromptUI.createProgressScreen(new Stage(), copyTask, true);
+    }
+
     /**
      * Function to create the menu item to set what folder is in the center panel.
      *
@@ -433,13 +456,7 @@ public class ContextMenuBuilder {
                 PromptUI.customPromptError("Not a directory!", null, "Please select a directory as the paste target.");
                 return;
             }
-            try {
-                model.copyToDestination(dest);
-            } catch (IOException ex) {
-                PromptUI.customPromptError("Error", null, "IOException: " + ex.getMessage());
-            } catch (Exception ex) {
-                PromptUI.customPromptError("Error", null, "Exception: " + ex.getMessage());
-            }
+            startCopy(model, dest);
         });
 
         return paste;
@@ -688,13 +705,18 @@ public class ContextMenuBuilder {
      *
      * @param model             The model to update UI.
      * @param selectedItem      The song to edit.
+     * @param selectedSongs     The selected songs, all of them are edited together if there is more than one.
      * @return                  A menu item containing the logic to edit a song metadata.
      */
-    private static MenuItem createEditPropertiesMenuItem(SongManager model, Item selectedItem) {
+    private static MenuItem createEditPropertiesMenuItem(SongManager model, Item selectedItem, List<Song> selectedSongs) {
         MenuItem editProperties = new MenuItem(EDIT_PROPERTIES);
 
         editProperties.setOnAction((event) -> {
-            if (selectedItem instanceof Song) {
+            if (selectedSongs.size() > 1) {
+                PromptUI.editMetadata(new ArrayList<>(selectedSongs));
+                model.notifyCenterFolderObservers();
+                model.notifyPlaylistSongsObservers();
+            } else if (selectedItem instanceof Song) {
                 PromptUI.editMetadata((Song) selectedItem);
                 model.notifyCenterFolderObservers();
                 model.notifyPlaylistSongsObservers();
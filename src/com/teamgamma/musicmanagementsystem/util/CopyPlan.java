@@ -0,0 +1,146 @@
+package com.teamgamma.musicmanagementsystem.util;
+
+import javafx.util.Pair;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class to plan a copy before any data is transferred. Every source is walked once to find the folders to create
+ * and the files to copy with their sizes, so the total amount of work is known up front.
+ */
+public class CopyPlan {
+    private final List<File> m_sources;
+    private final File m_destDir;
+    private final List<File> m_skippedSources;
+    private final List<File> m_foldersToCreate;
+    private final List<Pair<File, File>> m_transfers;
+    private long m_totalBytes;
+
+    /**
+     * Constructor
+     *
+     * @param sources   The files and folders to copy.
+     * @param destDir   The destination directory.
+     */
+    private CopyPlan(List<File> sources, File destDir) {
+        m_sources = new ArrayList<>(sources);
+        m_destDir = destDir;
+        m_skippedSources = new ArrayList<>();
+        m_foldersToCreate = new ArrayList<>();
+        m_transfers = new ArrayList<>();
+        m_totalBytes = 0;
+    }
+
+    /**
+     * Function to plan copying the sources into the destination directory. Sources whose name already exists in the
+     * destination are skipped, the same as a failed copy of an existing file.
+     *
+     * @param sources   The files and folders to copy.
+     * @param destDir   The destination directory.
+     * @return The plan for the copy.
+     * @throws IOException If a folder would be copied into itself or a source cannot be read.
+     */
+    public static CopyPlan create(List<File> sources, File destDir) throws IOException {
+        CopyPlan plan = new CopyPlan(sources, destDir);
+        Path destDirPath = destDir.toPath().toAbsolutePath().normalize();
+
+        for (File source : sources) {
+            Path sourcePath = source.toPath().toAbsolutePath().normalize();
+            if (source.isDirectory() && sourcePath.equals(destDirPath)) {
+                throw new IOException("Cannot copy a directory to itself!");
+            } else if (source.isDirectory() && destDirPath.startsWith(sourcePath)) {
+                throw new IOException("Cannot copy a directory into its subfolder!");
+            }
+
+            Path targetPath = destDirPath.resolve(sourcePath.getFileName());
+            if (Files.exists(targetPath)) {
+                System.out.println("### Skipping: " + source);
+                plan.m_skippedSources.add(source);
+                continue;
+            }
+            plan.addSource(sourcePath, targetPath);
+        }
+        return plan;
+    }
+
+    /**
+     * Helper function to walk a source and add its folders and files to the plan.
+     *
+     * @param sourcePath    The source to walk.
+     * @param targetPath    Where the source will be copied to.
+     * @throws IOException If the source cannot be read.
+     */
+    private void addSource(Path sourcePath, Path targetPath) throws IOException {
+        Files.walkFileTree(sourcePath, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                m_foldersToCreate.add(targetPath.resolve(sourcePath.relativize(dir)).toFile());
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                File target = targetPath.resolve(sourcePath.relativize(file)).toFile();
+                m_transfers.add(new Pair<>(file.toFile(), target));
+                m_totalBytes += attrs.size();
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Function to check if this plan copies the same sources to the same destination, used to resume a copy that
+     * was cancelled.
+     *
+     * @param sources   The files and folders to copy.
+     * @param destDir   The destination directory.
+     * @return True if the copy is the same, false otherwise.
+     */
+    public boolean isSameCopy(List<File> sources, File destDir) {
+        return m_destDir.equals(destDir) && m_sources.equals(sources);
+    }
+
+    /**
+     * Function to delete the partial files left by a cancelled run of this plan, when the copy is not going to be
+     * resumed.
+     */
+    public void deletePartialFiles() {
+        for (Pair<File, File> transfer : m_transfers) {
+            File target = transfer.getValue();
+            try {
+                Files.deleteIfExists(target.toPath().resolveSibling(target.getName() + CopyTask.PARTIAL_FILE_SUFFIX));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**********
+     * Getters
+     **********/
+
+    public File getM_destDir() {
+        return m_destDir;
+    }
+
+    public List<File> getM_skippedSources() {
+        return m_skippedSources;
+    }
+
+    public List<File> getM_foldersToCreate() {
+        return m_foldersToCreate;
+    }
+
+    public List<Pair<File, File>> getM_transfers() {
+        return m_transfers;
+    }
+
+    public long getM_totalBytes() {
+        return m_totalBytes;
+    }
+}
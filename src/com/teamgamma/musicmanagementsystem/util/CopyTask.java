@@ -0,0 +1,258 @@
+package com.teamgamma.musicmanagementsystem.util;
+
+import com.teamgamma.musicmanagementsystem.model.SongManager;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.util.Pair;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background task to carry out a CopyPlan. Files are copied in chunks with FileChannel.transferTo on a small shared
+ * worker pool, with a limit on how many files are written to the same device at once. Progress is reported through
+ * the Task progress, and the file tree is updated in batches while the copy runs.
+ *
+ * Each file is written to a ".part" file that is renamed once it is complete. If the task is cancelled, running the
+ * same plan again skips the files that are done and continues the partial ones where they stopped.
+ */
+public class CopyTask extends Task<Void> {
+    public static final String PARTIAL_FILE_SUFFIX = ".part";
+    private static final int WORKER_COUNT = 4;
+    private static final int MAX_COPIES_PER_DEVICE = 2;
+    private static final long CHUNK_SIZE_IN_BYTES = 4 * 1024 * 1024;
+    private static final long UPDATE_INTERVAL_IN_MILLISECONDS = 250;
+
+    private static final ExecutorService WORKERS = Executors.newFixedThreadPool(WORKER_COUNT, new ThreadFactory() {
+        private final AtomicInteger m_threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread workerThread = new Thread(runnable, "copy-worker-" + m_threadCount.incrementAndGet());
+            workerThread.setDaemon(true);
+            return workerThread;
+        }
+    });
+    private static final Map<FileStore, Semaphore> DEVICE_LIMITS = new ConcurrentHashMap<>();
+
+    private final SongManager m_model;
+    private final CopyPlan m_plan;
+    private final AtomicLong m_bytesCopied;
+    private FileActions m_pendingActions;
+
+    /**
+     * Constructor
+     *
+     * @param model The model to update as files are copied.
+     * @param plan  The copy to carry out.
+     */
+    public CopyTask(SongManager model, CopyPlan plan) {
+        m_model = model;
+        m_plan = plan;
+        m_bytesCopied = new AtomicLong();
+        m_pendingActions = new ConcreteFileActions();
+    }
+
+    @Override
+    protected Void call() throws Exception {
+        updateMessage("Copying to " + m_plan.getM_destDir().getName() + "...");
+
+        for (File folder : m_plan.getM_foldersToCreate()) {
+            Files.createDirectories(folder.toPath());
+            addPendingAction(folder);
+        }
+
+        List<Future<Void>> transfers = new ArrayList<>();
+        for (Pair<File, File> transfer : m_plan.getM_transfers()) {
+            transfers.add(submit(() -> {
+                copyFile(transfer.getKey().toPath(), transfer.getValue().toPath());
+                return null;
+            }));
+        }
+
+        awaitTransfers(transfers, this, this::reportProgress);
+        return null;
+    }
+
+    /**
+     * Function to copy a single file, continuing a partial copy left by a cancelled run.
+     *
+     * @param source    The file to copy.
+     * @param target    The path of the copy.
+     * @throws IOException If the copy fails.
+     * @throws InterruptedException If interrupted while waiting for the device.
+     */
+    private void copyFile(Path source, Path target) throws IOException, InterruptedException {
+        if (Files.exists(target)) {
+            // Finished by a previous run of this plan.
+            m_bytesCopied.addAndGet(Files.size(source));
+            return;
+        }
+
+        Path partialPath = target.resolveSibling(target.getFileName() + PARTIAL_FILE_SUFFIX);
+        if (transferFile(source, partialPath, true, m_bytesCopied, this)) {
+            Files.move(partialPath, target);
+            Files.setLastModifiedTime(target, Files.getLastModifiedTime(source));
+            addPendingAction(target.toFile());
+        }
+    }
+
+    /**
+     * Function to copy the content of a file in chunks on the calling thread, waiting for the device limit of the
+     * target first. Shared with the other transfer tasks.
+     *
+     * @param source        The file to copy.
+     * @param target        The file to write to.
+     * @param isResume      True to continue after the content already in the target, false to overwrite it.
+     * @param bytesCopied   Counter to add the copied bytes to.
+     * @param task          The task the copy belongs to, checked for cancellation between chunks.
+     * @return True if the whole file was copied, false if the task was cancelled.
+     * @throws IOException If the copy fails.
+     * @throws InterruptedException If interrupted while waiting for the device.
+     */
+    static boolean transferFile(Path source, Path target, boolean isResume, AtomicLong bytesCopied, Task<?> task)
+            throws IOException, InterruptedException {
+        Semaphore deviceLimit = getDeviceLimit(target.getParent());
+        deviceLimit.acquire();
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long size = in.size();
+            long position = isResume ? out.size() : 0;
+            if (position > size) {
+                position = 0;
+            }
+            out.truncate(position);
+            out.position(position);
+            bytesCopied.addAndGet(position);
+
+            while (position < size) {
+                if (task.isCancelled()) {
+                    return false;
+                }
+                long transferred = in.transferTo(position, Math.min(CHUNK_SIZE_IN_BYTES, size - position), out);
+                position += transferred;
+                bytesCopied.addAndGet(transferred);
+            }
+            return true;
+        } finally {
+            deviceLimit.release();
+        }
+    }
+
+    /**
+     * Function to run a transfer on the shared copy workers.
+     *
+     * @param transfer The transfer to run.
+     * @return The future of the transfer.
+     */
+    static Future<Void> submit(Callable<Void> transfer) {
+        return WORKERS.submit(transfer);
+    }
+
+    /**
+     * Function to wait for transfers to finish, calling back at a fixed interval while waiting. The interval is timed
+     * from the last call back, so it keeps firing when many small transfers finish one after another.
+     *
+     * @param transfers     The transfers to wait for.
+     * @param task          The task the transfers belong to, waiting stops if it is cancelled.
+     * @param onInterval    Called every interval and once more at the end.
+     * @throws Exception The first exception thrown by a transfer.
+     */
+    static void awaitTransfers(List<Future<Void>> transfers, Task<?> task, Runnable onInterval) throws Exception {
+        long lastUpdateTime = System.currentTimeMillis();
+        try {
+            for (Future<Void> transfer : transfers) {
+                while (true) {
+                    long timeToNextUpdate =
+                            lastUpdateTime + UPDATE_INTERVAL_IN_MILLISECONDS - System.currentTimeMillis();
+                    boolean isDone = false;
+                    try {
+                        transfer.get(Math.max(0, timeToNextUpdate), TimeUnit.MILLISECONDS);
+                        isDone = true;
+                    } catch (TimeoutException e) {
+                        // Not done yet, update and keep waiting.
+                    }
+                    if (System.currentTimeMillis() - lastUpdateTime >= UPDATE_INTERVAL_IN_MILLISECONDS) {
+                        onInterval.run();
+                        lastUpdateTime = System.currentTimeMillis();
+                    }
+                    if (isDone) {
+                        break;
+                    }
+                }
+                if (task.isCancelled()) {
+                    break;
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw (cause instanceof Exception) ? (Exception) cause : e;
+        } finally {
+            // Drop the transfers that have not started if the task stopped early.
+            for (Future<Void> transfer : transfers) {
+                transfer.cancel(false);
+            }
+            onInterval.run();
+        }
+    }
+
+    /**
+     * Helper function to get the semaphore that limits the number of copies to a device.
+     *
+     * @param dir A folder on the device.
+     * @return The semaphore for the device.
+     * @throws IOException If the device cannot be found.
+     */
+    private static Semaphore getDeviceLimit(Path dir) throws IOException {
+        FileStore device = Files.getFileStore(dir);
+        return DEVICE_LIMITS.computeIfAbsent(device, key -> new Semaphore(MAX_COPIES_PER_DEVICE));
+    }
+
+    /**
+     * Helper function to queue a tree update for a file or folder that was created.
+     *
+     * @param file The new file or folder.
+     */
+    private synchronized void addPendingAction(File file) {
+        m_pendingActions.add(Action.ADD, file);
+    }
+
+    /**
+     * Helper function to update the progress and send the queued tree updates to the model in one batch.
+     */
+    private void reportProgress() {
+        updateProgress(m_bytesCopied.get(), Math.max(m_plan.getM_totalBytes(), 1));
+
+        FileActions fileActions;
+        synchronized (this) {
+            if (m_pendingActions.isEmpty()) {
+                return;
+            }
+            fileActions = m_pendingActions;
+            m_pendingActions = new ConcreteFileActions();
+        }
+        Platform.runLater(() -> {
+            try {
+                m_model.updateAndNotifyFileSysChange(fileActions);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Getter for the plan of this task
+     */
+    public CopyPlan getM_plan() {
+        return m_plan;
+    }
+}
@@ -0,0 +1,95 @@
+package com.teamgamma.musicmanagementsystem.util;
+
+import javafx.concurrent.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background task to delete files and folders. If the OS has a trash, everything is moved there with a single call,
+ * otherwise the files are deleted in parallel on the shared copy workers. The result is one DELETE action for every
+ * file that is gone, so the tree can be updated in one go.
+ */
+public class DeleteTask extends Task<FileActions> {
+    private final List<File> m_filesToDelete;
+    private final List<File> m_failedFiles;
+
+    /**
+     * Constructor
+     *
+     * @param filesToDelete The files and folders to delete.
+     */
+    public DeleteTask(List<File> filesToDelete) {
+        m_filesToDelete = new ArrayList<>(filesToDelete);
+        m_failedFiles = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @Override
+    protected FileActions call() throws Exception {
+        updateMessage("Deleting " + m_filesToDelete.size() + " items...");
+
+        List<File> existingFiles = new ArrayList<>();
+        for (File fileToDelete : m_filesToDelete) {
+            // Skip files that are already gone, they are still removed from the tree below
+            if (fileToDelete.exists()) {
+                existingFiles.add(fileToDelete);
+            }
+        }
+
+        if (FileManager.hasTrash()) {
+            updateProgress(-1, 1);
+            try {
+                FileManager.moveToTrash(existingFiles);
+            } catch (IOException e) {
+                // Some files may have been moved before the failure, check each one below
+                e.printStackTrace();
+            }
+        } else {
+            deleteInParallel(existingFiles);
+        }
+
+        FileActions deleteFileActions = new ConcreteFileActions();
+        for (File fileToDelete : m_filesToDelete) {
+            if (fileToDelete.exists()) {
+                m_failedFiles.add(fileToDelete);
+            } else {
+                deleteFileActions.add(Action.DELETE, fileToDelete);
+            }
+        }
+        updateProgress(1, 1);
+        return deleteFileActions;
+    }
+
+    /**
+     * Helper function to permanently delete the files on the shared copy workers, reporting progress per file.
+     *
+     * @param files The files and folders to delete.
+     * @throws Exception If waiting for the workers fails.
+     */
+    private void deleteInParallel(List<File> files) throws Exception {
+        AtomicInteger deletedCount = new AtomicInteger();
+        List<Future<Void>> deletes = new ArrayList<>(files.size());
+        for (File file : files) {
+            deletes.add(CopyTask.submit(() -> {
+                if (!isCancelled()) {
+                    FileManager.deleteFolderOrFile(file);
+                    deletedCount.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        CopyTask.awaitTransfers(deletes, this, () -> updateProgress(deletedCount.get(), Math.max(files.size(), 1)));
+    }
+
+    /**
+     * Getter for the files that could not be deleted
+     */
+    public List<File> getM_failedFiles() {
+        return m_failedFiles;
+    }
+}
@@ -1,6 +1,7 @@
 package com.teamgamma.musicmanagementsystem.util;
 
 import com.sun.jna.platform.FileUtils;
+import com.teamgamma.musicmanagementsystem.codec.CodecRegistry;
 import com.teamgamma.musicmanagementsystem.model.Song;
 
 import java.io.File;
@@ -9,7 +10,6 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -17,8 +17,6 @@ import java.util.List;
  * Class to manage files in the program.
  */
 public class FileManager {
-    private static final String[] extensions = new String[]{".mp3"}; //edit this if later support more file types.
-    private static final String MATCH_DIGIT_TO_FIRST_ALPHA = "^(\\p{Digit}.*?)(?=\\p{Alpha})";
 
     /**
      * Generate list of Song objects based on path
@@ -84,21 +82,22 @@ public class FileManager {
     }
 
     /**
-     * Move to trash if trash exist in OS, else remove from file system
+     * Check if the OS has a trash that files can be moved to
      *
-     * @param fileToRemove: file to be removed
-     * @return true if file is removed successfully
-     * @throws IOException
+     * @return true if there is a trash, false otherwise
      */
-    public static boolean removeFile(File fileToRemove) throws IOException {
-        FileUtils fileUtils = FileUtils.getInstance();
-        if (fileUtils.hasTrash()) {
-            fileUtils.moveToTrash( new File[]{fileToRemove} );
-            return true;
-        }
-        else {
-            return deleteFolderOrFile(fileToRemove);
-        }
+    public static boolean hasTrash() {
+        return FileUtils.getInstance().hasTrash();
+    }
+
+    /**
+     * Move files to the trash with a single call, which is much faster than one call per file
+     *
+     * @param filesToRemove: files to be moved to the trash
+     * @throws IOException If the files could not be moved to the trash
+     */
+    public static void moveToTrash(List<File> filesToRemove) throws IOException {
+        FileUtils.getInstance().moveToTrash(filesToRemove.toArray(new File[filesToRemove.size()]));
     }
 
     /**
@@ -107,7 +106,7 @@ public class FileManager {
      * @param path File with path of the folder/file to delete
      * @return True if delete was successful, false otherwise
      */
-    private static boolean deleteFolderOrFile(File path) {
+    public static boolean deleteFolderOrFile(File path) {
         if (path.exists()) {
             if (path.isDirectory()) {
                 File[] files = path.listFiles();
@@ -144,34 +143,6 @@ public class FileManager {
         return (resultPath.getParent().equals(destDir.toPath()));
     }
 
-    /**
-     * Export a file to a destination
-     *
-     * @param file:     File to export
-     * @param dest:     File object with path to destination directory
-     * @param prefix:   Prefix to be added to file name
-     * @return true if successful export
-     * @throws IOException
-     * @throws InvalidPathException
-     */
-    public static boolean exportFile(File file, File dest, String prefix) throws IOException, InvalidPathException {
-        if (!copyFile(file, dest)) { //one of the files failed to be copied
-            return false;
-        }
-
-        // Resolve file name
-        File resultFile = new File(dest.getAbsolutePath() + File.separator + file.getName());
-        String resultName = resultFile.getName();
-        String regex = MATCH_DIGIT_TO_FIRST_ALPHA;
-        resultName = resultName.replaceFirst(regex, "");
-
-        // Rename file
-        String targetName = resultFile.getParent() + File.separator + prefix + "_" + resultName;
-        File targetFile = new File(targetName);
-        Path result = Files.move(resultFile.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-        return result.toFile().equals(targetFile);
-    }
-
     /**
      * Copy src to dest recursively
      *
@@ -203,18 +174,30 @@ public class FileManager {
     }
 
     /**
-     * File filter for finding music files
+     * File filter for finding music files when scanning a library. Files with the extension of a codec are accepted
+     * without reading them, other files are accepted if their content is in a supported format (see CodecRegistry).
      *
      * @param file file to check
      * @return true if file is accepted, false otherwise
      */
     public static boolean isAccept(File file) {
-        for (String extension : extensions) {
-            if (file.getName().endsWith(extension)) {
-                return true;
-            }
+        if (file.getName().endsWith(CopyTask.PARTIAL_FILE_SUFFIX)) {
+            // Not accepted until the copy is complete and the file is renamed.
+            return false;
         }
-        return false;
+        return CodecRegistry.hasExtension(file) || CodecRegistry.detect(file) != null;
+    }
+
+    /**
+     * File filter for music files that were just created. Only the extension is checked, since the file can still be
+     * empty while it is being copied into a library.
+     *
+     * @param file file to check
+     * @return true if file is accepted, false otherwise
+     */
+    public static boolean isAcceptByExtension(File file) {
+        // Partial copies end with CopyTask.PARTIAL_FILE_SUFFIX, so they are not accepted until they are renamed.
+        return CodecRegistry.hasExtension(file);
     }
 
 }
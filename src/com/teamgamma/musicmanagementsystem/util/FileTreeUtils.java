@@ -8,7 +8,9 @@ import javafx.scene.control.TreeView;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Utility class that provides functionality for the FileTree
@@ -277,6 +279,17 @@ public class FileTreeUtils {
         recursivelyRenameNodes(nodeToRename, renamedFile.getAbsolutePath());
     }
 
+    /**
+     * Rename a node in place, changing the files of its Item and of every Item under it while keeping the same Item
+     * objects
+     *
+     * @param nodeToRename the node to rename
+     * @param newFile the new file of the node, in the same folder
+     */
+    public static void renameNode(TreeItem<Item> nodeToRename, File newFile) {
+        recursivelyRenameNodes(nodeToRename, newFile.getAbsolutePath());
+    }
+
     /**
      * Helper function for renameNode(), rename nodes recursively starting from the root
      *
@@ -326,16 +339,42 @@ public class FileTreeUtils {
      *
      * @param nodeToMove the node intended to be moved
      * @param destParentNode the destination parent node
+     * @param newFile the new file of the moved node, inside the folder of destParentNode
      */
-    private static void moveNode(TreeItem<Item> nodeToMove, TreeItem<Item> destParentNode) {
-        String fileName = nodeToMove.getValue().getFile().getName();
-        String destPath = destParentNode.getValue().getFile().getAbsolutePath();
-        String newPath = destPath + File.separator + fileName;
-
-        destParentNode.getChildren().add(moveNodesRecursively(nodeToMove, newPath));
+    public static void moveNode(TreeItem<Item> nodeToMove, TreeItem<Item> destParentNode, File newFile) {
+        destParentNode.getChildren().add(moveNodesRecursively(nodeToMove, newFile.getAbsolutePath()));
         deleteNode(nodeToMove);
     }
 
+    /**
+     * Build a map from path to node for every node under the given node, so many nodes can be looked up with a single
+     * traversal of the tree
+     *
+     * @param node the root node of the sub-tree
+     * @return map from absolute path to tree node
+     */
+    public static Map<String, TreeItem<Item>> indexTreeItems(TreeItem<Item> node) {
+        Map<String, TreeItem<Item>> treeIndex = new HashMap<>();
+        indexTreeItemsRecursively(node, treeIndex);
+        return treeIndex;
+    }
+
+    /**
+     * Helper function for indexTreeItems()
+     *
+     * @param node the current node
+     * @param treeIndex the map to add the nodes to
+     */
+    private static void indexTreeItemsRecursively(TreeItem<Item> node, Map<String, TreeItem<Item>> treeIndex) {
+        Item item = node.getValue();
+        if (item != null && !(item instanceof DummyItem)) {
+            treeIndex.put(item.getFile().getAbsolutePath(), node);
+        }
+        for (TreeItem<Item> child : node.getChildren()) {
+            indexTreeItemsRecursively(child, treeIndex);
+        }
+    }
+
     /**
      * Helper function for moveNode(), doesn't actually move the nodes, create nodes with the update file while
      * keeping the same Item reference for all nodes
@@ -0,0 +1,145 @@
+package com.teamgamma.musicmanagementsystem.util;
+
+import com.teamgamma.musicmanagementsystem.model.Song;
+
+import javafx.concurrent.Task;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Background task to export the songs of a playlist to a folder. Each song is written to a ".part" file on the shared
+ * copy workers and renamed to its track numbered name once it is complete, so a cancelled or failed export does not
+ * leave truncated songs. An M3U file listing the exported songs can be written alongside.
+ */
+public class PlaylistExportTask extends Task<Void> {
+    private static final Pattern LEADING_TRACK_NUMBER = Pattern.compile("^(\\p{Digit}.*?)(?=\\p{Alpha})");
+    private static final String TRACK_NUMBER_FORMAT = "%03d_";
+    private static final String M3U_EXTENSION = ".m3u8";
+
+    private final String m_playlistName;
+    private final List<Song> m_songs;
+    private final File m_destDir;
+    private final boolean m_isWritingM3U;
+    private final AtomicLong m_bytesCopied;
+    private long m_totalBytes;
+
+    /**
+     * Constructor
+     *
+     * @param playlistName  The name of the playlist, used for the M3U file.
+     * @param songs         The songs to export in playlist order.
+     * @param destDir       The folder to export to, created if it does not exist.
+     * @param isWritingM3U  True to write an M3U file with the exported songs.
+     */
+    public PlaylistExportTask(String playlistName, List<Song> songs, File destDir, boolean isWritingM3U) {
+        m_playlistName = playlistName;
+        m_songs = new ArrayList<>(songs);
+        m_destDir = destDir;
+        m_isWritingM3U = isWritingM3U;
+        m_bytesCopied = new AtomicLong();
+        m_totalBytes = 0;
+    }
+
+    @Override
+    protected Void call() throws Exception {
+        updateMessage("Exporting " + m_playlistName + "...");
+        Files.createDirectories(m_destDir.toPath());
+
+        List<String> exportedNames = new ArrayList<>(m_songs.size());
+        for (int i = 0; i < m_songs.size(); ++i) {
+            exportedNames.add(getExportedName(m_songs.get(i).getFile(), i + 1));
+            m_totalBytes += m_songs.get(i).getFile().length();
+        }
+
+        List<Future<Void>> transfers = new ArrayList<>(m_songs.size());
+        for (int i = 0; i < m_songs.size(); ++i) {
+            Path source = m_songs.get(i).getFile().toPath();
+            Path target = m_destDir.toPath().resolve(exportedNames.get(i));
+            transfers.add(CopyTask.submit(() -> {
+                exportSong(source, target);
+                return null;
+            }));
+        }
+        CopyTask.awaitTransfers(transfers, this,
+                () -> updateProgress(m_bytesCopied.get(), Math.max(m_totalBytes, 1)));
+
+        if (m_isWritingM3U && !isCancelled()) {
+            writeM3U(exportedNames);
+        }
+        return null;
+    }
+
+    /**
+     * Helper function to export a single song, replacing a file with the same name from an earlier export. The partial
+     * file is deleted if the export is cancelled or fails.
+     *
+     * @param source    The song file.
+     * @param target    The path of the exported song.
+     * @throws IOException If the copy fails.
+     * @throws InterruptedException If interrupted while waiting for the device.
+     */
+    private void exportSong(Path source, Path target) throws IOException, InterruptedException {
+        Path partialPath = target.resolveSibling(target.getFileName() + CopyTask.PARTIAL_FILE_SUFFIX);
+        boolean isExported = false;
+        try {
+            if (CopyTask.transferFile(source, partialPath, false, m_bytesCopied, this)) {
+                Files.move(partialPath, target, StandardCopyOption.REPLACE_EXISTING);
+                isExported = true;
+            }
+        } finally {
+            if (!isExported) {
+                Files.deleteIfExists(partialPath);
+            }
+        }
+    }
+
+    /**
+     * Helper function to get the name of an exported song: the track number followed by the file name without any
+     * track number it already starts with.
+     *
+     * @param file          The song file.
+     * @param trackNumber   The position of the song in the playlist, starting at 1.
+     * @return The exported file name.
+     */
+    private static String getExportedName(File file, int trackNumber) {
+        String name = LEADING_TRACK_NUMBER.matcher(file.getName()).replaceFirst("");
+        return String.format(TRACK_NUMBER_FORMAT, trackNumber) + name;
+    }
+
+    /**
+     * Helper function to write an extended M3U file with paths relative to the export folder.
+     *
+     * @param exportedNames The exported file names in playlist order.
+     * @throws IOException If the file cannot be written.
+     */
+    private void writeM3U(List<String> exportedNames) throws IOException {
+        Path m3uPath = m_destDir.toPath().resolve(m_playlistName + M3U_EXTENSION);
+        try (BufferedWriter writer = Files.newBufferedWriter(m3uPath, StandardCharsets.UTF_8)) {
+            writer.write("#EXTM3U");
+            writer.newLine();
+            for (int i = 0; i < m_songs.size(); ++i) {
+                Song song = m_songs.get(i);
+                String artist = song.getM_artist();
+                String title = song.getM_title();
+                String displayName = (title == null || title.isEmpty()) ? song.getFileName() :
+                        (artist == null || artist.isEmpty()) ? title : artist + " - " + title;
+
+                writer.write("#EXTINF:" + Math.round(song.getM_length()) + "," + displayName);
+                writer.newLine();
+                writer.write(exportedNames.get(i));
+                writer.newLine();
+            }
+        }
+    }
+}
@@ -6,17 +6,26 @@ import com.teamgamma.musicmanagementsystem.model.SongManager;
 import com.teamgamma.musicmanagementsystem.musicplayer.MusicPlayerConstants;
 import com.teamgamma.musicmanagementsystem.musicplayer.MusicPlayerManager;
 import com.teamgamma.musicmanagementsystem.ui.PromptUI;
+import javafx.concurrent.WorkerStateEvent;
 import javafx.scene.Node;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.SortedList;
 import javafx.scene.control.Button;
-import javafx.scene.control.ScrollPane;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TableView;
 import javafx.scene.control.TitledPane;
 import javafx.scene.image.ImageView;
-import javafx.scene.layout.*;
+import javafx.stage.Stage;
+import javafx.util.Callback;
 import javafx.util.Duration;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.AccessDeniedException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -114,41 +123,57 @@ public class UserInterfaceUtils {
             return;
         }
 
-        //try to actually delete (retry if FileSystemException happens)
-        final int NUM_TRIES = 2;
-        for (int i = 0; i < NUM_TRIES; i++) {
-            try {
-                model.deleteFile(filesToDelete);
-                break;
-            } catch (IOException ex) {
-                musicPlayerManager.stopSong();
-                musicPlayerManager.removeSongFromHistory(musicPlayerManager.getCurrentSongPlaying());
+        // Release the song that is playing if it is about to be deleted, otherwise the file may be locked
+        Song currentSong = musicPlayerManager.getCurrentSongPlaying();
+        if (currentSong != null && isInFiles(currentSong.getFile(), filesToDelete)) {
+            musicPlayerManager.stopSong();
+            musicPlayerManager.removeSongFromHistory(currentSong);
+
+            if (musicPlayerManager.isThereANextSong()) {
+                musicPlayerManager.playNextSong();
+            } else if (!musicPlayerManager.getHistory().isEmpty()) {
+                musicPlayerManager.playPreviousSong();
+            } else {
+                musicPlayerManager.unloadSong();
+            }
+        }
 
-                if (musicPlayerManager.isThereANextSong()) {
-                    musicPlayerManager.playNextSong();
-                } else if (!musicPlayerManager.getHistory().isEmpty()) {
-                    musicPlayerManager.playPreviousSong();
-                } else {
-                    musicPlayerManager.unloadSong();
-                }
+        DeleteTask deleteTask = model.deleteFile(filesToDelete);
+        deleteTask.addEventHandler(WorkerStateEvent.WORKER_STATE_SUCCEEDED, event -> {
+            musicPlayerManager.notifyNewSongObservers();
+            musicPlayerManager.notifyQueingObserver();
+            musicPlayerManager.notifyChangeStateObservers();
 
-                if (i == 1) { //if this exception still thrown after retry (for debugging)
-                    ex.printStackTrace();
-                }
-            } catch (Exception ex) {
-                PromptUI.customPromptError("Error", null, "Exception: \n" + ex.getMessage());
-                ex.printStackTrace();
-                break;
+            for (File fileToDelete: filesToDelete) {
+                databaseManager.removeLibrary(fileToDelete.getAbsolutePath()); //only succeed if fileToDelete is library folder
             }
-        }
 
-        musicPlayerManager.notifyNewSongObservers();
-        musicPlayerManager.notifyQueingObserver();
-        musicPlayerManager.notifyChangeStateObservers();
+            if (!deleteTask.getM_failedFiles().isEmpty()) {
+                PromptUI.customPromptError("Error", null, "Could not delete: \n" + deleteTask.getM_failedFiles());
+            }
+        });
+        deleteTask.setOnFailed(event -> {
+            Throwable ex = deleteTask.getException();
+            PromptUI.customPromptError("Error", null, "Exception: \n" + (ex == null ? "" : ex.getMessage()));
+        });
+        PromptUI.createProgressScreen(new Stage(), deleteTask, false);
+    }
 
-        for (File fileToDelete: filesToDelete) {
-            databaseManager.removeLibrary(fileToDelete.getAbsolutePath()); //only succeed if fileToDelete is library folder
+    /**
+     * Helper function to check if a file is one of the files given or inside one of the folders given.
+     *
+     * @param file  The file to check.
+     * @param files The files and folders.
+     * @return True if the file is or is under one of the files, false otherwise.
+     */
+    private static boolean isInFiles(File file, List<File> files) {
+        Path path = file.toPath().toAbsolutePath();
+        for (File otherFile : files) {
+            if (path.startsWith(otherFile.toPath().toAbsolutePath())) {
+                return true;
+            }
         }
+        return false;
     }
 
     /**
@@ -195,94 +220,84 @@ public class UserInterfaceUtils {
     }
 
     /**
-     * Interface to abstract the logic needed to build a row for displaying a collection of songs. This will be used
-     * so that we can have less duplicate code for displaying songs from a collection.
+     * Function to create a list that shows the songs given. Only the rows that are on screen are built, and the list
+     * reuses them as it scrolls.
+     *
+     * @param songs         The songs to display, changes to it are shown as they happen.
+     * @param cellFactory   The function to create a cell for a row.
+     * @param style         The styling to style the list, null for the default style.
+     * @return              A scrollable list of the songs.
      */
-    public interface ILabelAction {
-        HBox createRow(Song songForRow, int songIndex);
+    public static ListView<Song> createSongListView(ObservableList<Song> songs,
+                                                    Callback<ListView<Song>, ListCell<Song>> cellFactory,
+                                                    String style) {
+        ListView<Song> songList = new ListView<>(songs);
+        songList.setCellFactory(cellFactory);
+        songList.setStyle(style);
+        songList.setPlaceholder(new Label());
+        songList.setPrefHeight(PREF_HEIGHT);
+        songList.setMaxHeight(MAX_HEIGHT);
+        return songList;
     }
 
     /**
-     * Function to create a UI element that will hold a list of songs based on collection passed in and will use the
-     * default style.
+     * Function to make the displayed list of songs match the songs given. Only the part between the songs that are
+     * the same at the start and the end is replaced, so taking the next song off a long queue or adding a song to the
+     * history is a single change to the list.
      *
-     * @param listOfSongs       The list of songs to display.
-     * @param rowCreation       The row creation action.
-     * @return
+     * @param displayedSongs    The list that is shown.
+     * @param songs             The songs that should be shown, in order.
      */
-    public static ScrollPane createUIList(Collection<Song> listOfSongs, ILabelAction rowCreation){
-        return createUIList(listOfSongs, rowCreation, null);
+    public static void updateSongList(ObservableList<Song> displayedSongs, Collection<Song> songs) {
+        List<Song> newSongs = new ArrayList<>(songs);
+        int displayedSize = displayedSongs.size();
+        int newSize = newSongs.size();
+        int commonSize = Math.min(displayedSize, newSize);
+
+        int start = 0;
+        while (start < commonSize && displayedSongs.get(start) == newSongs.get(start)) {
+            start++;
+        }
+        int end = 0;
+        while (end < commonSize - start &&
+                displayedSongs.get(displayedSize - 1 - end) == newSongs.get(newSize - 1 - end)) {
+            end++;
+        }
+
+        if (start < displayedSize - end) {
+            displayedSongs.remove(start, displayedSize - end);
+        }
+        if (start < newSize - end) {
+            displayedSongs.addAll(start, newSongs.subList(start, newSize - end));
+        }
     }
 
     /**
-     * Function to create UI element that will hold a list of songs in it based on the collection passed in.
+     * Function to create the list a table of songs shows: the songs in the order of the columns the user sorted by.
+     * Sorting this list instead of the songs keeps the songs in the order of the model, so updates to them stay small.
      *
-     * @param listOfSongs   The list of songs to displays.
-     * @param rowCreation   The row creation action.
-     * @param style         The styling to style the list.
-     * @return              A scrollable UI element that contains all the songs in the collection.
+     * @param songs         The songs to show.
+     * @param table         The table the list is for.
+     * @return              The sorted list.
      */
-    public static ScrollPane createUIList(Collection<Song> listOfSongs, ILabelAction rowCreation, String style) {
-        ScrollPane wrapper = new ScrollPane();
-
-        wrapper.setStyle(style);
-        wrapper.setFitToHeight(true);
-        wrapper.setFitToWidth(true);
-
-        VBox allSongs = new VBox();
-        allSongs.setStyle(style);
-        allSongs.setSpacing(VERTICAL_SPACING);
-
-        int songNumber = 1;
-        for (Song song : listOfSongs) {
-            HBox row = rowCreation.createRow(song, songNumber);
-            String baseStyle = row.getStyle();
-
-            row.setOnMouseEntered(event -> row.setStyle("-fx-background-color: lightgray"));
-            row.setOnMouseExited(event -> row.setStyle(baseStyle));
-
-            HBox.setHgrow(row, Priority.ALWAYS);
-            row.setFillHeight(true);
-            row.setMaxWidth(Double.MAX_VALUE);
-            row.setSpacing(HORIZONTAL_ELEMENT_SPACING);
-            allSongs.getChildren().add(row);
-
-            songNumber++;
-        }
-        allSongs.setPrefHeight(PREF_HEIGHT);
-        allSongs.setMaxHeight(MAX_HEIGHT);
-        allSongs.setFillWidth(true);
-
-        wrapper.setContent(allSongs);
-        return wrapper;
+    public static SortedList<Song> createSortedItems(ObservableList<Song> songs, TableView<Song> table) {
+        SortedList<Song> sortedSongs = new SortedList<>(songs);
+        sortedSongs.comparatorProperty().bind(table.comparatorProperty());
+        return sortedSongs;
     }
 
     /**
-     * Helper function to create a titled pane for the accordion with styling.
+     * Helper function to create a titled pane for the accordion.
      *
      * @param title         The title of the accordion
-     * @param songs         The collection of songs that is wanted to be displayed.
-     * @param action        The action to take when building a row.
-     * @param style         The styling of the body of the title pane
-     * @return              A TitlePane with the title and collection of songs displayed.
+     * @param content       The content of the pane.
+     * @return              A TitlePane with the title and the content.
      */
-    public static TitledPane createTitlePane(String title, Collection<Song> songs, ILabelAction action, String style) {
-        TitledPane titlePane = new TitledPane(title, UserInterfaceUtils.createUIList(songs, action, style));
+    public static TitledPane createTitlePane(String title, Node content) {
+        TitledPane titlePane = new TitledPane(title, content);
         titlePane.setAnimated(true);
         titlePane.setCollapsible(true);
         titlePane.setExpanded(false);
         return titlePane;
     }
-
-    /**
-     * Helper function to create a titled pane for the accordion with the default styling
-     *
-     * @param title         The title of the accordion
-     * @param songs         The collection of songs that is wanted to be displayed.
-     * @param action        The action to take when building a row.
-     * @return              A TitlePane with the title and collection of songs displayed.
-     */
-    public static TitledPane createTitlePane(String title, Collection<Song> songs, ILabelAction action) {
-        return createTitlePane(title, songs, action, null);
-    }
 }
@@ -0,0 +1,239 @@
+package com.teamgamma.musicmanagementsystem.watchservice;
+
+import com.teamgamma.musicmanagementsystem.util.Action;
+import com.teamgamma.musicmanagementsystem.util.ConcreteFileActions;
+import com.teamgamma.musicmanagementsystem.util.FileActions;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Class to collapse a burst of file system events into the smallest set of FileActions with the same net effect.
+ *
+ * For each path only the state before the first event and after the last event matters:
+ * a file created and deleted again in the same batch produces nothing, a file deleted and created again produces a
+ * delete followed by an add, and repeated events for the same path produce a single action.
+ * Events for paths inside a folder that is itself added or deleted in the batch are dropped, since updating the
+ * folder already covers everything under it.
+ *
+ * A delete and an add with the same name in different folders are paired into a relocation when no other delete or
+ * add in the batch has that name, so a file or folder moved outside the application keeps its songs in the playlists,
+ * the playback queue and the history. The watcher does not know the size or modified time of a file that is already
+ * gone, so a file renamed in place is not paired and stays a delete and an add. The remaining deletes are emitted
+ * before all adds, so the two halves are always applied together and in the right order.
+ */
+public class FileEventCoalescer {
+    private Map<String, PathState> m_pathStates;
+    private long m_batchStartTime;
+
+    /**
+     * Constructor
+     */
+    public FileEventCoalescer() {
+        m_pathStates = new LinkedHashMap<>();
+        m_batchStartTime = 0;
+    }
+
+    /**
+     * Function to record a file system event in the current batch.
+     *
+     * @param action    The action for the event, only ADD and DELETE are recorded.
+     * @param file      The file the event is about.
+     */
+    public void add(Action action, File file) {
+        if (action != Action.ADD && action != Action.DELETE) {
+            return;
+        }
+        if (m_pathStates.isEmpty()) {
+            m_batchStartTime = System.currentTimeMillis();
+        }
+
+        String path = file.getAbsolutePath();
+        PathState state = m_pathStates.get(path);
+        if (state == null) {
+            // The first event tells us if the path existed before the batch started.
+            state = new PathState(file, action == Action.DELETE);
+            m_pathStates.put(path, state);
+        }
+        state.m_existsAfter = (action == Action.ADD);
+    }
+
+    /**
+     * Function to check if there are events waiting to be flushed.
+     *
+     * @return True if no events were recorded since the last drain, false otherwise.
+     */
+    public boolean isEmpty() {
+        return m_pathStates.isEmpty();
+    }
+
+    /**
+     * Function to get how long the current batch has been collecting events.
+     *
+     * @return The age of the batch in milliseconds, or 0 if it is empty.
+     */
+    public long getBatchAgeInMilliseconds() {
+        return m_pathStates.isEmpty() ? 0 : System.currentTimeMillis() - m_batchStartTime;
+    }
+
+    /**
+     * Function to get the net changes of the current batch and start a new batch.
+     *
+     * @return The relocations and the coalesced file actions.
+     */
+    public Batch drain() {
+        Set<String> deletedPaths = new HashSet<>();
+        Set<String> addedPaths = new HashSet<>();
+        for (Map.Entry<String, PathState> entry : m_pathStates.entrySet()) {
+            PathState state = entry.getValue();
+            if (state.m_existedBefore) {
+                deletedPaths.add(entry.getKey());
+            }
+            if (state.m_existsAfter) {
+                addedPaths.add(entry.getKey());
+            }
+        }
+
+        List<File> deletedFiles = new ArrayList<>();
+        List<File> addedFiles = new ArrayList<>();
+        for (Map.Entry<String, PathState> entry : m_pathStates.entrySet()) {
+            PathState state = entry.getValue();
+            if (state.m_existedBefore && !isAncestorIn(state.m_file, deletedPaths)) {
+                deletedFiles.add(state.m_file);
+            }
+            if (state.m_existsAfter && !isAncestorIn(state.m_file, addedPaths)) {
+                addedFiles.add(state.m_file);
+            }
+        }
+
+        m_pathStates.clear();
+        m_batchStartTime = 0;
+
+        Map<File, File> relocations = pairByName(deletedFiles, addedFiles);
+
+        FileActions fileActions = new ConcreteFileActions();
+        for (File deletedFile : deletedFiles) {
+            if (!relocations.containsKey(deletedFile)) {
+                fileActions.add(Action.DELETE, deletedFile);
+            }
+        }
+        Collection<File> relocatedFiles = relocations.values();
+        for (File addedFile : addedFiles) {
+            if (!relocatedFiles.contains(addedFile)) {
+                fileActions.add(Action.ADD, addedFile);
+            }
+        }
+        return new Batch(relocations, fileActions);
+    }
+
+    /**
+     * Helper function to pair deleted and added files that have a name no other deleted or added file in the batch
+     * has, and are in different folders.
+     *
+     * @param deletedFiles  The deleted files.
+     * @param addedFiles    The added files.
+     * @return Map from the old location of each moved file to its new location.
+     */
+    private static Map<File, File> pairByName(List<File> deletedFiles, List<File> addedFiles) {
+        Map<String, File> deletedByName = indexByUniqueName(deletedFiles);
+        Map<String, File> addedByName = indexByUniqueName(addedFiles);
+
+        Map<File, File> relocations = new LinkedHashMap<>();
+        for (Map.Entry<String, File> deleted : deletedByName.entrySet()) {
+            File oldFile = deleted.getValue();
+            File newFile = addedByName.get(deleted.getKey());
+            if (newFile != null && !oldFile.getParentFile().equals(newFile.getParentFile())) {
+                relocations.put(oldFile, newFile);
+            }
+        }
+        return relocations;
+    }
+
+    /**
+     * Helper function to index files by name, leaving out names that more than one file has.
+     *
+     * @param files The files.
+     * @return Map from name to the only file with that name.
+     */
+    private static Map<String, File> indexByUniqueName(List<File> files) {
+        Map<String, File> filesByName = new LinkedHashMap<>();
+        Set<String> repeatedNames = new HashSet<>();
+        for (File file : files) {
+            String name = file.getName();
+            if (filesByName.put(name, file) != null) {
+                repeatedNames.add(name);
+            }
+        }
+        filesByName.keySet().removeAll(repeatedNames);
+        return filesByName;
+    }
+
+    /**
+     * Helper function to check if any parent folder of the file is in the set of paths.
+     *
+     * @param file  The file to check.
+     * @param paths The set of absolute paths.
+     * @return True if an ancestor of the file is in the set, false otherwise.
+     */
+    private static boolean isAncestorIn(File file, Set<String> paths) {
+        File parent = file.getParentFile();
+        while (parent != null) {
+            if (paths.contains(parent.getAbsolutePath())) {
+                return true;
+            }
+            parent = parent.getParentFile();
+        }
+        return false;
+    }
+
+    /**
+     * The net changes of a batch.
+     */
+    public static class Batch {
+        private final Map<File, File> m_relocations;
+        private final FileActions m_fileActions;
+
+        Batch(Map<File, File> relocations, FileActions fileActions) {
+            m_relocations = relocations;
+            m_fileActions = fileActions;
+        }
+
+        /**
+         * Function to check if the batch has no changes.
+         *
+         * @return True if there are no relocations and no file actions, false otherwise.
+         */
+        public boolean isEmpty() {
+            return m_relocations.isEmpty() && m_fileActions.isEmpty();
+        }
+
+        /**
+         * @return Map from the old location of each moved file or folder to its new location.
+         */
+        public Map<File, File> getRelocations() {
+            return m_relocations;
+        }
+
+        /**
+         * @return The deletes and adds that are not part of a relocation, deletes first.
+         */
+        public FileActions getFileActions() {
+            return m_fileActions;
+        }
+    }
+
+    /**
+     * Net state of a single path within a batch.
+     */
+    private static class PathState {
+        private final File m_file;
+        private final boolean m_existedBefore;
+        private boolean m_existsAfter;
+
+        PathState(File file, boolean existedBefore) {
+            m_file = file;
+            m_existedBefore = existedBefore;
+            m_existsAfter = existedBefore;
+        }
+    }
+}
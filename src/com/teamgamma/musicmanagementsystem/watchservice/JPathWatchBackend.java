@@ -0,0 +1,175 @@
+package com.teamgamma.musicmanagementsystem.watchservice;
+
+import com.teamgamma.musicmanagementsystem.util.Action;
+
+import name.pachler.nio.file.*;
+import name.pachler.nio.file.ext.ExtendedWatchEventKind;
+import name.pachler.nio.file.ext.ExtendedWatchEventModifier;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Watcher backend using jpathwatch. Each library root is registered once with the FILE_TREE modifier, which is only
+ * supported on Windows.
+ */
+public class JPathWatchBackend implements WatcherBackend {
+    private WatchService m_watcher;
+    private Thread m_watcherThread;
+    private Map<WatchKey, Path> m_keyMaps;
+    private Map<String, WatchKey> m_rootKeys;
+    private WatchEventBatcher m_batcher;
+
+    /**
+     * Constructor
+     */
+    public JPathWatchBackend() {
+        m_keyMaps = new ConcurrentHashMap<>();
+        m_rootKeys = new ConcurrentHashMap<>();
+        m_watcher = FileSystems.getDefault().newWatchService();
+    }
+
+    @Override
+    public void start(WatchEventBatcher batcher) {
+        m_batcher = batcher;
+        m_watcherThread = new Thread(() -> {
+            System.out.println("**** Watching...");
+
+            watcherRoutine();
+            System.out.println("**** Watcher thread terminated...");
+        }, "watcher");
+
+        m_watcherThread.setDaemon(true);
+        m_watcherThread.start();
+    }
+
+    /**
+     * The main routine of the backend. Only moves events from the watch service to the batcher so the
+     * watch keys are reset as quickly as possible, it never exits until the backend is stopped.
+     */
+    private void watcherRoutine() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                WatchKey watchKey = m_watcher.take();
+                handleEvents(watchKey);
+                if (!watchKey.reset()) {
+                    // The root is gone, stop tracking the key. The model is updated by the delete event.
+                    removeInvalidKey(watchKey);
+                }
+            } catch (InterruptedException e) {
+                System.out.println("**** Watcher thread interrupted...");
+                break;
+            } catch (ClosedWatchServiceException e) {
+                System.out.println("**** Watch service closed...");
+                break;
+            }
+        }
+    }
+
+    /**
+     * Handle the WatchKey events.
+     *
+     * @param watchKey The key that has pending events.
+     */
+    private void handleEvents(WatchKey watchKey) {
+        Path dir = m_keyMaps.get(watchKey);
+        if (dir == null) {
+            // Key was cancelled while the events were waiting
+            watchKey.pollEvents();
+            return;
+        }
+        File root = new File(dir.toString());
+        for (WatchEvent<?> event : watchKey.pollEvents()) {
+            WatchEvent.Kind<?> kind = event.kind();
+            if (kind.equals(StandardWatchEventKind.OVERFLOW)) {
+                System.out.println("**** OVERFLOW: [ " + dir + " ]");
+                m_batcher.reportOverflow(root);
+                continue;
+            }
+
+            Path eventPath = (Path) event.context();
+            System.out.println("**** " + kind + ": " + eventPath
+                    + " [ " + dir + File.separator + eventPath + " ]");
+
+            File file = new File(dir + File.separator + eventPath);
+            Action action = handleAction(kind);
+            if (action != Action.NONE) {
+                m_batcher.offer(action, file, root);
+            }
+        }
+    }
+
+    /**
+     * Set the Action of the event.
+     *
+     * @param eventKind The type of the event.
+     * @return The resulting Action.
+     */
+    private Action handleAction(WatchEvent.Kind<?> eventKind) {
+        Action action;
+        if (eventKind.equals(StandardWatchEventKind.ENTRY_CREATE)) {
+            action = Action.ADD;
+        } else if (eventKind.equals(StandardWatchEventKind.ENTRY_DELETE)) {
+            action = Action.DELETE;
+        } else if (eventKind.equals(ExtendedWatchEventKind.ENTRY_RENAME_FROM)) {
+            action = Action.DELETE;
+        } else if (eventKind.equals(ExtendedWatchEventKind.ENTRY_RENAME_TO)) {
+            action = Action.ADD;
+        } else {
+            action = Action.NONE;
+        }
+        return action;
+    }
+
+    @Override
+    public void addRoot(String rootDirPath) throws IOException {
+        Path path = Paths.get(rootDirPath);
+
+        WatchEvent.Kind[] eventKinds = {
+                StandardWatchEventKind.ENTRY_CREATE,
+                StandardWatchEventKind.ENTRY_DELETE,
+                ExtendedWatchEventKind.ENTRY_RENAME_FROM,
+                ExtendedWatchEventKind.ENTRY_RENAME_TO
+        };
+        WatchKey key = path.register(m_watcher, eventKinds, ExtendedWatchEventModifier.FILE_TREE);
+        m_keyMaps.put(key, path);
+        m_rootKeys.put(rootDirPath, key);
+        System.out.println("**** Watching root: " + rootDirPath);
+    }
+
+    @Override
+    public void removeRoot(String rootDirPath) {
+        WatchKey key = m_rootKeys.remove(rootDirPath);
+        if (key != null) {
+            key.cancel();
+            m_keyMaps.remove(key);
+            System.out.println("**** Stopped watching root: " + rootDirPath);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (m_watcherThread != null) {
+            m_watcherThread.interrupt();
+        }
+        try {
+            m_watcher.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Stop tracking a key that is no longer valid.
+     *
+     * @param watchKey The invalid key.
+     */
+    private void removeInvalidKey(WatchKey watchKey) {
+        Path path = m_keyMaps.remove(watchKey);
+        if (path != null) {
+            m_rootKeys.remove(path.toString(), watchKey);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.teamgamma.musicmanagementsystem.watchservice;
+
+import com.teamgamma.musicmanagementsystem.util.Action;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Watcher backend using java.nio.file.WatchService, which on Linux is backed by inotify and has no recursive mode.
+ * Every folder under a library root is registered on its own and folders created later are registered as they
+ * appear. If a root would exceed the inotify watch limit it is handed over to a PollingScanBackend instead.
+ */
+public class NioRecursiveWatchBackend implements WatcherBackend {
+    private static final String INOTIFY_MAX_WATCHES_PATH = "/proc/sys/fs/inotify/max_user_watches";
+    private static final int DEFAULT_MAX_WATCHES = 8192;
+    // Leave some watches for other applications of the same user.
+    private static final double WATCH_LIMIT_SHARE = 0.8;
+
+    private final WatchService m_watcher;
+    private final Map<WatchKey, WatchedFolder> m_keyMaps;
+    private final Map<String, Set<WatchKey>> m_rootKeys;
+    private final PollingScanBackend m_fallback;
+    private final Set<String> m_polledRoots;
+    private final ExecutorService m_registrationExecutor;
+    private final int m_maxWatches;
+    private Thread m_watcherThread;
+    private WatchEventBatcher m_batcher;
+
+    /**
+     * Constructor
+     *
+     * @throws IOException If the watch service could not be created.
+     */
+    public NioRecursiveWatchBackend() throws IOException {
+        m_watcher = FileSystems.getDefault().newWatchService();
+        m_keyMaps = new ConcurrentHashMap<>();
+        m_rootKeys = new ConcurrentHashMap<>();
+        m_fallback = new PollingScanBackend();
+        m_polledRoots = ConcurrentHashMap.newKeySet();
+        m_registrationExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread registrationThread = new Thread(runnable, "watcher-register");
+            registrationThread.setDaemon(true);
+            return registrationThread;
+        });
+        m_maxWatches = (int) (readMaxWatches() * WATCH_LIMIT_SHARE);
+    }
+
+    @Override
+    public void start(WatchEventBatcher batcher) {
+        m_batcher = batcher;
+        m_fallback.start(batcher);
+
+        m_watcherThread = new Thread(() -> {
+            System.out.println("**** Watching...");
+
+            watcherRoutine();
+            System.out.println("**** Watcher thread terminated...");
+        }, "watcher");
+
+        m_watcherThread.setDaemon(true);
+        m_watcherThread.start();
+    }
+
+    @Override
+    public void addRoot(String rootDirPath) throws IOException {
+        Path root = Paths.get(rootDirPath);
+        if (!Files.isDirectory(root)) {
+            throw new IOException(rootDirPath + " is not a directory");
+        }
+        // Registering tens of thousands of folders takes a while, do not block the caller.
+        m_registrationExecutor.execute(() -> {
+            m_rootKeys.put(rootDirPath, ConcurrentHashMap.newKeySet());
+            try {
+                registerTree(root, rootDirPath);
+                System.out.println("**** Watching root: " + rootDirPath + " (" +
+                        m_rootKeys.get(rootDirPath).size() + " folders)");
+            } catch (IOException e) {
+                System.out.println("**** Cannot watch " + rootDirPath + " natively (" + e.getMessage() +
+                        "), falling back to polling");
+                switchToPolling(rootDirPath);
+            }
+        });
+    }
+
+    @Override
+    public void removeRoot(String rootDirPath) {
+        m_registrationExecutor.execute(() -> {
+            cancelKeys(rootDirPath);
+            if (m_polledRoots.remove(rootDirPath)) {
+                m_fallback.removeRoot(rootDirPath);
+            }
+            System.out.println("**** Stopped watching root: " + rootDirPath);
+        });
+    }
+
+    @Override
+    public void stop() {
+        if (m_watcherThread != null) {
+            m_watcherThread.interrupt();
+        }
+        m_registrationExecutor.shutdownNow();
+        m_fallback.stop();
+        try {
+            m_watcher.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * The main routine of the backend. Moves events to the batcher and registers new folders as they are created.
+     */
+    private void watcherRoutine() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                WatchKey watchKey = m_watcher.take();
+                handleEvents(watchKey);
+                if (!watchKey.reset()) {
+                    // The folder is gone or no longer accessible.
+                    WatchedFolder folder = m_keyMaps.remove(watchKey);
+                    if (folder != null) {
+                        Set<WatchKey> keys = m_rootKeys.get(folder.m_root);
+                        if (keys != null) {
+                            keys.remove(watchKey);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                System.out.println("**** Watcher thread interrupted...");
+                break;
+            } catch (ClosedWatchServiceException e) {
+                System.out.println("**** Watch service closed...");
+                break;
+            }
+        }
+    }
+
+    /**
+     * Handle the WatchKey events.
+     *
+     * @param watchKey The key that has pending events.
+     */
+    private void handleEvents(WatchKey watchKey) {
+        WatchedFolder folder = m_keyMaps.get(watchKey);
+        if (folder == null) {
+            watchKey.pollEvents();
+            return;
+        }
+        File root = new File(folder.m_root);
+        for (WatchEvent<?> event : watchKey.pollEvents()) {
+            WatchEvent.Kind<?> kind = event.kind();
+            if (kind == StandardWatchEventKinds.OVERFLOW) {
+                System.out.println("**** OVERFLOW: [ " + folder.m_path + " ]");
+                m_batcher.reportOverflow(root);
+                continue;
+            }
+
+            Path eventPath = folder.m_path.resolve((Path) event.context());
+            System.out.println("**** " + kind + ": " + eventPath);
+
+            if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
+                if (Files.isDirectory(eventPath, LinkOption.NOFOLLOW_LINKS)) {
+                    registerNewFolder(eventPath, folder.m_root);
+                }
+                m_batcher.offer(Action.ADD, eventPath.toFile(), root);
+            } else if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+                m_batcher.offer(Action.DELETE, eventPath.toFile(), root);
+            }
+        }
+    }
+
+    /**
+     * Register a folder that was created under a watched root, falling back to polling if the limit is reached.
+     *
+     * @param folder        The new folder.
+     * @param rootDirPath   The library root the folder is in.
+     */
+    private void registerNewFolder(Path folder, String rootDirPath) {
+        if (m_polledRoots.contains(rootDirPath)) {
+            return;
+        }
+        try {
+            registerTree(folder, rootDirPath);
+        } catch (IOException e) {
+            System.out.println("**** Watch limit reached under " + rootDirPath + ", falling back to polling");
+            switchToPolling(rootDirPath);
+        }
+    }
+
+    /**
+     * Register a folder and every folder under it.
+     *
+     * @param start         The folder to start from.
+     * @param rootDirPath   The library root the folder is in.
+     * @throws IOException  If a folder could not be registered or the watch limit would be exceeded.
+     */
+    private void registerTree(Path start, String rootDirPath) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (m_keyMaps.size() >= m_maxWatches) {
+                    throw new IOException("Watch limit of " + m_maxWatches + " folders reached");
+                }
+                WatchKey key = dir.register(m_watcher,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE);
+                m_keyMaps.put(key, new WatchedFolder(dir, rootDirPath));
+                Set<WatchKey> keys = m_rootKeys.get(rootDirPath);
+                if (keys != null) {
+                    keys.add(key);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                // Folder vanished or is not readable, skip it.
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Release the native watches of a root and watch it with the polling backend instead.
+     *
+     * @param rootDirPath The library root.
+     */
+    private void switchToPolling(String rootDirPath) {
+        cancelKeys(rootDirPath);
+        if (m_polledRoots.add(rootDirPath)) {
+            try {
+                m_fallback.addRoot(rootDirPath);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Cancel every native watch of a root.
+     *
+     * @param rootDirPath The library root.
+     */
+    private void cancelKeys(String rootDirPath) {
+        Set<WatchKey> keys = m_rootKeys.remove(rootDirPath);
+        if (keys != null) {
+            for (WatchKey key : keys) {
+                key.cancel();
+                m_keyMaps.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Read the number of inotify watches the user is allowed to have.
+     *
+     * @return The limit from the kernel, or a conservative default if it cannot be read.
+     */
+    private static int readMaxWatches() {
+        try {
+            List<String> lines = Files.readAllLines(Paths.get(INOTIFY_MAX_WATCHES_PATH));
+            if (!lines.isEmpty()) {
+                return Integer.parseInt(lines.get(0).trim());
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Not Linux or not readable, use the default.
+        }
+        return DEFAULT_MAX_WATCHES;
+    }
+
+    /**
+     * A registered folder and the library root it belongs to.
+     */
+    private static class WatchedFolder {
+        private final Path m_path;
+        private final String m_root;
+
+        WatchedFolder(Path path, String root) {
+            m_path = path;
+            m_root = root;
+        }
+    }
+}
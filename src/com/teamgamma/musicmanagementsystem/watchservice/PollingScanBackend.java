@@ -0,0 +1,199 @@
+package com.teamgamma.musicmanagementsystem.watchservice;
+
+import com.teamgamma.musicmanagementsystem.util.Action;
+import com.teamgamma.musicmanagementsystem.util.FileManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watcher backend that periodically compares the modified time of every folder under its roots. Only folders whose
+ * modified time changed are listed again, so a scan of an unchanged library costs one stat per folder.
+ * Used when no native watch service is available or the native limits have been reached.
+ */
+public class PollingScanBackend implements WatcherBackend {
+    private static final long SCAN_INTERVAL_IN_SECONDS = 10;
+
+    private final Map<String, Map<String, FolderState>> m_rootStates;
+    private final ScheduledExecutorService m_scanExecutor;
+    private WatchEventBatcher m_batcher;
+
+    /**
+     * Constructor
+     */
+    public PollingScanBackend() {
+        m_rootStates = new ConcurrentHashMap<>();
+        m_scanExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread scanThread = new Thread(runnable, "watcher-scan");
+            scanThread.setDaemon(true);
+            return scanThread;
+        });
+    }
+
+    @Override
+    public void start(WatchEventBatcher batcher) {
+        m_batcher = batcher;
+        m_scanExecutor.scheduleWithFixedDelay(this::scanAllRoots,
+                SCAN_INTERVAL_IN_SECONDS, SCAN_INTERVAL_IN_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void addRoot(String rootDirPath) throws IOException {
+        File root = new File(rootDirPath);
+        if (!root.isDirectory()) {
+            throw new IOException(rootDirPath + " is not a directory");
+        }
+        // Take the initial snapshot on the scan thread so the caller is not blocked by a large library.
+        m_scanExecutor.execute(() -> {
+            Map<String, FolderState> states = new HashMap<>();
+            snapshotFolder(root, states);
+            m_rootStates.put(rootDirPath, states);
+            System.out.println("**** Polling root: " + rootDirPath + " (" + states.size() + " folders)");
+        });
+    }
+
+    @Override
+    public void removeRoot(String rootDirPath) {
+        m_scanExecutor.execute(() -> {
+            if (m_rootStates.remove(rootDirPath) != null) {
+                System.out.println("**** Stopped polling root: " + rootDirPath);
+            }
+        });
+    }
+
+    @Override
+    public void stop() {
+        m_scanExecutor.shutdownNow();
+    }
+
+    /**
+     * Function to compare every root against the file system and report the differences.
+     */
+    private void scanAllRoots() {
+        for (Map.Entry<String, Map<String, FolderState>> entry : m_rootStates.entrySet()) {
+            File root = new File(entry.getKey());
+            scanFolder(root, root, entry.getValue());
+        }
+    }
+
+    /**
+     * Helper function to scan a folder that is already in the snapshot and its sub folders.
+     *
+     * @param folder    The folder to scan.
+     * @param root      The library root the folder is in.
+     * @param states    The snapshot of every folder under the root.
+     */
+    private void scanFolder(File folder, File root, Map<String, FolderState> states) {
+        FolderState state = states.get(folder.getAbsolutePath());
+        if (state == null) {
+            return;
+        }
+        if (!folder.isDirectory()) {
+            // Reported as deleted by the parent folder, or the root itself is gone.
+            removeSnapshot(folder, states);
+            if (folder.equals(root)) {
+                m_batcher.offer(Action.DELETE, folder, root);
+            }
+            return;
+        }
+
+        long lastModified = folder.lastModified();
+        if (lastModified != state.m_lastModified) {
+            Set<String> oldEntries = state.m_entries;
+            FolderState newState = readFolder(folder);
+            states.put(folder.getAbsolutePath(), newState);
+
+            for (String name : oldEntries) {
+                if (!newState.m_entries.contains(name)) {
+                    File removed = new File(folder, name);
+                    removeSnapshot(removed, states);
+                    m_batcher.offer(Action.DELETE, removed, root);
+                }
+            }
+            for (String name : newState.m_entries) {
+                if (!oldEntries.contains(name)) {
+                    File added = new File(folder, name);
+                    if (added.isDirectory()) {
+                        snapshotFolder(added, states);
+                    }
+                    m_batcher.offer(Action.ADD, added, root);
+                }
+            }
+        }
+
+        for (String name : states.get(folder.getAbsolutePath()).m_entries) {
+            File child = new File(folder, name);
+            if (states.containsKey(child.getAbsolutePath())) {
+                scanFolder(child, root, states);
+            }
+        }
+    }
+
+    /**
+     * Helper function to record the state of a folder and all folders under it.
+     *
+     * @param folder    The folder to record.
+     * @param states    The snapshot to add to.
+     */
+    private static void snapshotFolder(File folder, Map<String, FolderState> states) {
+        FolderState state = readFolder(folder);
+        states.put(folder.getAbsolutePath(), state);
+        for (String name : state.m_entries) {
+            File child = new File(folder, name);
+            if (child.isDirectory()) {
+                snapshotFolder(child, states);
+            }
+        }
+    }
+
+    /**
+     * Helper function to remove a folder and everything under it from the snapshot.
+     *
+     * @param folder    The folder to remove.
+     * @param states    The snapshot to remove from.
+     */
+    private static void removeSnapshot(File folder, Map<String, FolderState> states) {
+        FolderState state = states.remove(folder.getAbsolutePath());
+        if (state != null) {
+            for (String name : state.m_entries) {
+                removeSnapshot(new File(folder, name), states);
+            }
+        }
+    }
+
+    /**
+     * Helper function to list the folders and music files directly in a folder.
+     *
+     * @param folder The folder to list.
+     * @return The state of the folder.
+     */
+    private static FolderState readFolder(File folder) {
+        long lastModified = folder.lastModified();
+        Set<String> entries = new HashSet<>();
+        File[] children = folder.listFiles(f -> f.isDirectory() || FileManager.isAcceptByExtension(f));
+        if (children != null) {
+            for (File child : children) {
+                entries.add(child.getName());
+            }
+        }
+        return new FolderState(lastModified, entries);
+    }
+
+    /**
+     * Modified time and listing of a folder at the time of the last scan.
+     */
+    private static class FolderState {
+        private final long m_lastModified;
+        private final Set<String> m_entries;
+
+        FolderState(long lastModified, Set<String> entries) {
+            m_lastModified = lastModified;
+            m_entries = entries;
+        }
+    }
+}
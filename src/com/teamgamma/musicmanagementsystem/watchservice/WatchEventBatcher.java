@@ -0,0 +1,328 @@
+package com.teamgamma.musicmanagementsystem.watchservice;
+
+import com.teamgamma.musicmanagementsystem.model.Item;
+import com.teamgamma.musicmanagementsystem.model.SongManager;
+import com.teamgamma.musicmanagementsystem.ui.PromptUI;
+import com.teamgamma.musicmanagementsystem.util.Action;
+import com.teamgamma.musicmanagementsystem.util.FileActions;
+import com.teamgamma.musicmanagementsystem.util.FileManager;
+import javafx.application.Platform;
+import javafx.scene.control.TreeItem;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class for the batching stage of the watcher. The watcher thread only queues raw events here, this class collects
+ * them on its own thread, coalesces them and hands each batch to the model on the JavaFX thread.
+ *
+ * Delivery is at-least-once: if the queue is full or the watch service reports an OVERFLOW, the affected library root
+ * is rescanned and compared against the model so that no change is lost.
+ */
+public class WatchEventBatcher {
+    private static final int QUEUE_CAPACITY = 10000;
+    private static final long QUIET_WINDOW_IN_MILLISECONDS = 500;
+    private static final long MAX_BATCH_WINDOW_IN_MILLISECONDS = 5000;
+    private static final PendingEvent WAKE_UP = new PendingEvent(Action.NONE, null);
+
+    private final BlockingQueue<PendingEvent> m_queue;
+    private final Set<File> m_rootsToRescan;
+    private final FileEventCoalescer m_coalescer;
+    private final SongManager m_model;
+    private Thread m_batcherThread;
+
+    private final AtomicLong m_eventsReceived;
+    private final AtomicLong m_eventsDropped;
+    private final AtomicLong m_overflowCount;
+    private final AtomicLong m_rescanCount;
+    private final AtomicLong m_batchesDelivered;
+
+    /**
+     * Constructor
+     *
+     * @param model The model to deliver the file actions to.
+     */
+    public WatchEventBatcher(SongManager model) {
+        m_model = model;
+        m_queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+        m_rootsToRescan = ConcurrentHashMap.newKeySet();
+        m_coalescer = new FileEventCoalescer();
+
+        m_eventsReceived = new AtomicLong();
+        m_eventsDropped = new AtomicLong();
+        m_overflowCount = new AtomicLong();
+        m_rescanCount = new AtomicLong();
+        m_batchesDelivered = new AtomicLong();
+    }
+
+    /**
+     * Function to start the batching thread.
+     */
+    public void start() {
+        m_batcherThread = new Thread(this::batcherRoutine, "watcher-batcher");
+        m_batcherThread.setDaemon(true);
+        m_batcherThread.start();
+    }
+
+    /**
+     * Function to stop the batching thread. Events that are still queued are discarded.
+     */
+    public void stop() {
+        if (m_batcherThread != null) {
+            m_batcherThread.interrupt();
+        }
+        System.out.println("**** Watcher stats: received " + m_eventsReceived + ", dropped " + m_eventsDropped +
+                ", overflows " + m_overflowCount + ", rescans " + m_rescanCount +
+                ", batches " + m_batchesDelivered);
+    }
+
+    /**
+     * Function to queue a file system event. Never blocks the watcher thread; if the queue is full the event is
+     * dropped and the library root is rescanned instead. Events for files that are not shown in the file tree are
+     * ignored.
+     *
+     * @param action    The action for the event.
+     * @param file      The file the event is about.
+     * @param root      The library root the file is in.
+     */
+    public void offer(Action action, File file, File root) {
+        if (!isValidEvent(file, action)) {
+            return;
+        }
+        m_eventsReceived.incrementAndGet();
+        if (!m_queue.offer(new PendingEvent(action, file))) {
+            m_eventsDropped.incrementAndGet();
+            requestRescan(root);
+        }
+    }
+
+    /**
+     * Checks if the event is a valid event.
+     *
+     * @param file The file of the event.
+     * @param action The action to take for the event.
+     * @return true if valid, false otherwise.
+     */
+    private static boolean isValidEvent(File file, Action action) {
+        if (!file.exists() && action.equals(Action.DELETE)) {
+            return true;
+        } else if (FileManager.isAcceptByExtension(file)) {
+            return true;
+        } else if (file.isDirectory()) {
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Function to report that the watch service lost events for a library root.
+     *
+     * @param root The library root that overflowed.
+     */
+    public void reportOverflow(File root) {
+        m_overflowCount.incrementAndGet();
+        requestRescan(root);
+    }
+
+    /**
+     * Function to ask for the library root to be compared against the file system on the next pass.
+     *
+     * @param root The library root to rescan.
+     */
+    private void requestRescan(File root) {
+        if (root != null && m_rootsToRescan.add(root)) {
+            // Wake up the batcher if it is waiting, if the queue is full it is busy and will see the request anyway.
+            m_queue.offer(WAKE_UP);
+        }
+    }
+
+    /**
+     * The main routine of the batching thread.
+     */
+    private void batcherRoutine() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                PendingEvent event = m_coalescer.isEmpty() ?
+                        m_queue.take() :
+                        m_queue.poll(QUIET_WINDOW_IN_MILLISECONDS, TimeUnit.MILLISECONDS);
+
+                if (event != null && event != WAKE_UP) {
+                    m_coalescer.add(event.m_action, event.m_file);
+                }
+
+                boolean isQuiet = (event == null);
+                if (!m_coalescer.isEmpty() &&
+                        (isQuiet || m_coalescer.getBatchAgeInMilliseconds() > MAX_BATCH_WINDOW_IN_MILLISECONDS)) {
+                    deliver(m_coalescer.drain());
+                }
+
+                if (!m_rootsToRescan.isEmpty() && (isQuiet || event == WAKE_UP || m_queue.isEmpty())) {
+                    if (!m_coalescer.isEmpty()) {
+                        deliver(m_coalescer.drain());
+                    }
+                    rescanRequestedRoots();
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Send the coalesced batch to the model on the JavaFX thread.
+     *
+     * @param batch The relocations and the file actions of the batch.
+     */
+    private void deliver(FileEventCoalescer.Batch batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        m_batchesDelivered.incrementAndGet();
+        Platform.runLater(() -> {
+            System.out.println("**** NOTIFYING FILE SYS CHANGE...");
+            try {
+                applyBatch(batch);
+            } catch (IOException ex) {
+                PromptUI.customPromptError("Error", null, "Exception: \n" + ex.getMessage());
+                ex.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Apply a coalesced batch to the model, the relocations first so the moved songs are kept. Must be called on the
+     * JavaFX thread.
+     *
+     * @param batch The relocations and the file actions of the batch.
+     * @throws IOException If the file tree cannot be updated.
+     */
+    private void applyBatch(FileEventCoalescer.Batch batch) throws IOException {
+        if (!batch.getRelocations().isEmpty()) {
+            m_model.relocateFiles(batch.getRelocations());
+        }
+        FileActions fileActions = batch.getFileActions();
+        if (!fileActions.isEmpty()) {
+            m_model.updateAndNotifyFileSysChange(fileActions);
+        }
+    }
+
+    /**
+     * Compare every library root that lost events against the model. The file system is listed on this thread,
+     * the model tree is read and updated on the JavaFX thread.
+     */
+    private void rescanRequestedRoots() {
+        for (File root : new ArrayList<>(m_rootsToRescan)) {
+            m_rootsToRescan.remove(root);
+            m_rescanCount.incrementAndGet();
+            System.out.println("**** Rescanning " + root);
+
+            Set<String> diskPaths = new HashSet<>();
+            listPaths(root, diskPaths);
+
+            Platform.runLater(() -> {
+                TreeItem<Item> rootNode = m_model.search(root);
+                if (rootNode == null) {
+                    return;
+                }
+                Set<String> modelPaths = new HashSet<>();
+                collectTreePaths(rootNode, modelPaths);
+
+                FileEventCoalescer differences = new FileEventCoalescer();
+                for (String path : modelPaths) {
+                    if (!diskPaths.contains(path)) {
+                        differences.add(Action.DELETE, new File(path));
+                    }
+                }
+                for (String path : diskPaths) {
+                    if (!modelPaths.contains(path)) {
+                        differences.add(Action.ADD, new File(path));
+                    }
+                }
+
+                if (!differences.isEmpty()) {
+                    try {
+                        applyBatch(differences.drain());
+                    } catch (IOException ex) {
+                        ex.printStackTrace();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Helper function to list the folders and music files under a folder, the same way the file tree is built.
+     *
+     * @param folder    The folder to list.
+     * @param paths     The set to add the absolute paths to.
+     */
+    private static void listPaths(File folder, Set<String> paths) {
+        paths.add(folder.getAbsolutePath());
+        File[] children = folder.listFiles(f -> f.isDirectory() || FileManager.isAccept(f));
+        if (children != null) {
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    listPaths(child, paths);
+                } else {
+                    paths.add(child.getAbsolutePath());
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper function to collect the paths of every node in the model tree.
+     *
+     * @param node      The root of the sub-tree.
+     * @param paths     The set to add the absolute paths to.
+     */
+    private static void collectTreePaths(TreeItem<Item> node, Set<String> paths) {
+        paths.add(node.getValue().getFile().getAbsolutePath());
+        for (TreeItem<Item> child : node.getChildren()) {
+            collectTreePaths(child, paths);
+        }
+    }
+
+    /**********
+     * Getters for the watcher statistics
+     *************/
+
+    public long getEventsReceived() {
+        return m_eventsReceived.get();
+    }
+
+    public long getEventsDropped() {
+        return m_eventsDropped.get();
+    }
+
+    public long getOverflowCount() {
+        return m_overflowCount.get();
+    }
+
+    public long getRescanCount() {
+        return m_rescanCount.get();
+    }
+
+    public long getBatchesDelivered() {
+        return m_batchesDelivered.get();
+    }
+
+    /**
+     * A raw event waiting in the queue.
+     */
+    private static class PendingEvent {
+        private final Action m_action;
+        private final File m_file;
+
+        PendingEvent(Action action, File file) {
+            m_action = action;
+            m_file = file;
+        }
+    }
+}
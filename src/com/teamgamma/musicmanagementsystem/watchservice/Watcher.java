@@ -1,29 +1,27 @@
 package com.teamgamma.musicmanagementsystem.watchservice;
 
-import com.teamgamma.musicmanagementsystem.ui.PromptUI;
-import com.teamgamma.musicmanagementsystem.util.Action;
 import com.teamgamma.musicmanagementsystem.model.*;
-import com.teamgamma.musicmanagementsystem.util.ConcreteFileActions;
 import com.teamgamma.musicmanagementsystem.util.FileActions;
-import javafx.application.Platform;
 
-import name.pachler.nio.file.*;
-import name.pachler.nio.file.ext.ExtendedWatchEventKind;
-import name.pachler.nio.file.ext.ExtendedWatchEventModifier;
-
-import java.io.File;
 import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 
 /**
- * Class to monitor the file system changes
+ * Class to monitor the file system changes. A WatcherBackend reports the raw events to a WatchEventBatcher, which
+ * coalesces them and delivers them to the model.
+ *
+ * The backend is jpathwatch on Windows, where it can watch a whole tree with one registration, and the JDK watch
+ * service on other platforms. It can be forced with -Dgamma.watcher=jpathwatch|nio|poll.
  */
 public class Watcher {
-    private WatchService m_watcher;
-    private WatchKey m_watchKey;
-    private Thread m_watcherThread;
-    private Map<WatchKey, Path> m_keyMaps;
+    private static final String BACKEND_PROPERTY = "gamma.watcher";
+    private static final String JPATHWATCH_BACKEND = "jpathwatch";
+    private static final String NIO_BACKEND = "nio";
+    private static final String POLLING_BACKEND = "poll";
+
+    private WatcherBackend m_backend;
+    private Set<String> m_watchedRoots;
+    private WatchEventBatcher m_batcher;
     private SongManager m_model;
 
     /**
@@ -33,7 +31,8 @@ public class Watcher {
      */
     public Watcher(SongManager model) {
         m_model = model;
-        m_keyMaps = new HashMap<>();
+        m_watchedRoots = new HashSet<>();
+        m_batcher = new WatchEventBatcher(model);
 
         registerAsObserver();
         openWatcher();
@@ -41,191 +40,91 @@ public class Watcher {
     }
 
     /**
-     * Creates a new Thread for the Watcher class to monitor the File System.
+     * Start the batching stage and the backend.
      */
     public void startWatcher() {
-        m_watcherThread = new Thread(() -> {
-            System.out.println("**** Watching...");
-            FileActions fileActions = new ConcreteFileActions();
-
-            watcherRoutine(fileActions);
-            System.out.println("**** Watcher thread terminated...");
-        });
-
-        m_watcherThread.start();
-    }
-
-    /**
-     * The main routine of the Watcher class.
-     *
-     * @param fileActions The list of actions and files changed.
-     */
-    private void watcherRoutine(FileActions fileActions) {
-        boolean isFirst = true;
-        while (true) {
-            try {
-                if (isFirst) {
-                    m_watchKey = m_watcher.take();
-
-                    System.out.println("**** File system changed...");
-                    isFirst = false;
-                } else {
-                    // Try for more events with timeout
-                    int timeout = 2000;
-                    m_watchKey = m_watcher.poll(timeout, TimeUnit.MILLISECONDS);
-                }
-
-                // WatchKey failed to grab more events
-                if (m_watchKey == null) {
-                    Platform.runLater(() -> {
-                        System.out.println("**** NOTIFYING FILE SYS CHANGE...");
-                        try {
-                            m_model.updateAndNotifyFileSysChange(fileActions);
-                        } catch (IOException ex) {
-                            PromptUI.customPromptError("Error", null, "Exception: \n" + ex.getMessage());
-                            ex.printStackTrace();
-                        }
-                    });
-                    break;
-                }
-
-                handleEvents(fileActions);
-                m_watchKey.reset();
-            } catch (InterruptedException e) {
-                System.out.println("**** Watcher thread interrupted...");
-                break;
-            }
-        }
+        m_batcher.start();
+        m_backend.start(m_batcher);
     }
 
     /**
-     * Handle the WatchKey events.
-     *
-     * @param fileActions List of action and file pairs.
+     * Stop the Watcher class.
      */
-    private void handleEvents(FileActions fileActions) {
-        Path dir = m_keyMaps.get(m_watchKey);
-        for (WatchEvent<?> event : m_watchKey.pollEvents()) {
-            WatchEvent.Kind<?> kind = event.kind();
-            Path eventPath = (Path) event.context();
-            System.out.println("**** " + kind + ": " + eventPath
-                    + " [ " + dir + File.separator + eventPath + " ]");
-
-            File file = new File(dir + File.separator + eventPath);
-            Action action = handleAction(kind);
-            if (isValidEvent(file, action)) {
-                fileActions.add(action, file);
-            }
-        }
+    public void stopWatcher() {
+        m_backend.stop();
+        m_batcher.stop();
     }
 
     /**
-     * Checks if the event is a valid event.
-     *
-     * @param file The file of the event.
-     * @param action The action to take for the event.
-     * @return true if valid, false otherwise.
+     * Create the backend for this platform.
      */
-    private boolean isValidEvent(File file, Action action) {
-        if (!file.exists() && action.equals(Action.DELETE)) {
-            return true;
-        } else if (file.toString().endsWith(".mp3")) {
-            return true;
-        } else if (file.isDirectory()) {
-            return true;
+    private void openWatcher() {
+        String backendName = System.getProperty(BACKEND_PROPERTY);
+        if (backendName == null) {
+            boolean isWindows = System.getProperty("os.name").toLowerCase().startsWith("windows");
+            backendName = isWindows ? JPATHWATCH_BACKEND : NIO_BACKEND;
         }
-        return false;
-    }
 
-    /**
-     * Set the Action of the event.
-     *
-     * @param eventKind The type of the event.
-     * @return The resulting Action.
-     */
-    private Action handleAction(WatchEvent.Kind<?> eventKind) {
-        Action action;
-        if (eventKind.equals(StandardWatchEventKind.ENTRY_CREATE)) {
-            action = Action.ADD;
-        } else if (eventKind.equals(StandardWatchEventKind.ENTRY_DELETE)) {
-            action = Action.DELETE;
-        } else if (eventKind.equals(ExtendedWatchEventKind.ENTRY_RENAME_FROM)) {
-            action = Action.DELETE;
-        } else if (eventKind.equals(ExtendedWatchEventKind.ENTRY_RENAME_TO)) {
-            action = Action.ADD;
+        if (backendName.equals(JPATHWATCH_BACKEND)) {
+            m_backend = new JPathWatchBackend();
+        } else if (backendName.equals(POLLING_BACKEND)) {
+            m_backend = new PollingScanBackend();
         } else {
-            action = Action.NONE;
+            try {
+                m_backend = new NioRecursiveWatchBackend();
+            } catch (IOException e) {
+                e.printStackTrace();
+                m_backend = new PollingScanBackend();
+            }
         }
-        return action;
+        System.out.println("**** Watcher backend: " + m_backend.getClass().getSimpleName());
     }
 
     /**
-     * Stop the Watcher class.
+     * Update the watched root directories so they match the libraries in the model. Only roots that were added or
+     * removed are registered or cancelled, the backend keeps running.
      */
-    public void stopWatcher() {
-        m_watcherThread.interrupt();
-        try {
-            m_watcher.close();
-        } catch (IOException e) {
-            e.printStackTrace();
+    private void updateWatcher() {
+        Set<String> libraryRoots = new HashSet<>();
+        for (Library lib : m_model.getM_libraries()) {
+            libraryRoots.add(lib.getRootDirPath());
         }
-    }
 
-    /**
-     * Set the WatchService to File System default.
-     */
-    private void openWatcher() {
-        m_watcher = FileSystems.getDefault().newWatchService();
-    }
-
-    /**
-     * Restart Watcher class.
-     */
-    private void restartWatcher() {
-        stopWatcher();
-        openWatcher();
-        updateWatcher();
-        startWatcher();
-    }
+        for (String watchedRoot : new ArrayList<>(m_watchedRoots)) {
+            if (!libraryRoots.contains(watchedRoot)) {
+                m_backend.removeRoot(watchedRoot);
+                m_watchedRoots.remove(watchedRoot);
+            }
+        }
 
-    /**
-     * Update the watched root directories.
-     */
-    private void updateWatcher() {
-        for (Library lib : m_model.getM_libraries()) {
-            try {
-                addWatchDir(lib.getRootDirPath());
-            } catch (IOException e) {
-                e.printStackTrace();
+        for (String libraryRoot : libraryRoots) {
+            if (!m_watchedRoots.contains(libraryRoot)) {
+                try {
+                    m_backend.addRoot(libraryRoot);
+                    m_watchedRoots.add(libraryRoot);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
             }
         }
     }
 
     /**
-     * Add a directory to be watched.
+     * Function to get the batching stage, which holds the statistics of the watcher.
      *
-     * @param rootDirPath The path to the directory.
-     * @throws IOException
+     * @return The batcher for this watcher.
      */
-    private void addWatchDir(String rootDirPath) throws IOException {
-        Path path = Paths.get(rootDirPath);
-
-        WatchEvent.Kind[] eventKinds = {
-                StandardWatchEventKind.ENTRY_CREATE,
-                StandardWatchEventKind.ENTRY_DELETE,
-                ExtendedWatchEventKind.ENTRY_RENAME_FROM,
-                ExtendedWatchEventKind.ENTRY_RENAME_TO
-        };
-        WatchKey key = path.register(m_watcher, eventKinds, ExtendedWatchEventModifier.FILE_TREE);
-        m_keyMaps.put(key, path);
+    public WatchEventBatcher getBatcher() {
+        return m_batcher;
     }
 
     /**
-     * Register model observers.
+     * Register model observers. Both only re-check which library roots are watched (a file action can rename a
+     * library root), changes inside a library are already reported by the backend.
      */
     private void registerAsObserver() {
-        m_model.addLibraryObserver((FileActions fileActions) -> restartWatcher());
-        m_model.addFileObserver((FileActions fileActions) -> restartWatcher());
+        m_model.addLibraryObserver((FileActions fileActions) -> updateWatcher());
+        m_model.addFileObserver((FileActions fileActions) -> updateWatcher());
     }
 
 }
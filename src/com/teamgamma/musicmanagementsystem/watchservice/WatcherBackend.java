@@ -0,0 +1,36 @@
+package com.teamgamma.musicmanagementsystem.watchservice;
+
+import java.io.IOException;
+
+/**
+ * Interface for the part of the watcher that talks to the operating system. A backend reports every file or folder
+ * that is created or deleted under its library roots to the WatchEventBatcher it was started with.
+ */
+public interface WatcherBackend {
+    /**
+     * Function to start delivering events.
+     *
+     * @param batcher The batching stage to send the events to.
+     */
+    void start(WatchEventBatcher batcher);
+
+    /**
+     * Function to start watching a library root and everything under it.
+     *
+     * @param rootDirPath The path to the library root.
+     * @throws IOException If the root could not be watched.
+     */
+    void addRoot(String rootDirPath) throws IOException;
+
+    /**
+     * Function to stop watching a library root.
+     *
+     * @param rootDirPath The path to the library root.
+     */
+    void removeRoot(String rootDirPath);
+
+    /**
+     * Function to stop the backend and release its resources.
+     */
+    void stop();
+}